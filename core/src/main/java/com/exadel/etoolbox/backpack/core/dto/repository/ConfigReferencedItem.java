@@ -0,0 +1,28 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.dto.repository;
+
+/**
+ * Data model representing a context-aware configuration item accessible by its path
+ */
+public class ConfigReferencedItem extends ReferencedItem {
+    /**
+     * Basic constructor
+     *
+     * @param path String value representing path to a JCR storage item
+     */
+    public ConfigReferencedItem(final String path) {
+        super(path, "Configurations");
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.dto.repository;
+
+import java.util.Objects;
+
+/**
+ * Data model representing the state of a JCR subtree at a given moment. Used to detect whether content under
+ * a package filter root has changed since the package was last built
+ */
+public class ContentFingerprint {
+    private final long lastModified;
+    private final long nodeCount;
+
+    /**
+     * Basic constructor
+     * @param lastModified Latest modification timestamp (in milliseconds) found within the subtree
+     * @param nodeCount    Number of nodes in the subtree
+     */
+    public ContentFingerprint(long lastModified, long nodeCount) {
+        this.lastModified = lastModified;
+        this.nodeCount = nodeCount;
+    }
+
+    /**
+     * Gets the latest modification timestamp (in milliseconds) found within the subtree
+     * @return Long value
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Gets the number of nodes in the subtree. A change of this value reveals added or removed nodes that
+     * modification timestamps do not account for
+     * @return Long value
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Overrides the standard {@code equals()} routine to implement fingerprints comparison by their values
+     * @param o Object to test for equality with the current object
+     * @return True or false
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ContentFingerprint that = (ContentFingerprint) o;
+        return lastModified == that.lastModified && nodeCount == that.nodeCount;
+    }
+
+    /**
+     * Overrides the standard {@code hashCode()} routine to accompany {@link ContentFingerprint#equals(Object)}
+     * @return Integer value
+     */
+    @Override
+    public int hashCode() {
+        return Objects.hash(lastModified, nodeCount);
+    }
+}
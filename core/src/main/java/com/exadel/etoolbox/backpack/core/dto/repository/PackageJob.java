@@ -0,0 +1,133 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.dto.repository;
+
+import java.util.Calendar;
+
+/**
+ * Data model representing a package operation (build, install or replication) persisted in the JCR storage so that
+ * it is not lost upon an instance restart
+ */
+public class PackageJob {
+
+    /**
+     * Represents the kinds of package operations that can be persisted
+     */
+    public enum Type {
+        BUILD,
+        INSTALL,
+        REPLICATE
+    }
+
+    /**
+     * Represents the lifecycle states of a persisted job
+     */
+    public enum State {
+        PENDING,
+        RUNNING
+    }
+
+    private final String id;
+    private final Type type;
+    private final String packagePath;
+    private final String userId;
+    private final String parameters;
+    private final Calendar created;
+    private State state;
+
+    /**
+     * Basic constructor
+     *
+     * @param id          String value uniquely identifying the job
+     * @param type        {@link Type} of the package operation
+     * @param packagePath String value representing path to the package in the JCR storage
+     * @param userId      ID of the user who requested the operation
+     * @param parameters  JSON string representing the operation's options
+     * @param created     {@code Calendar} value representing the moment the job was enqueued
+     * @param state       Current {@link State} of the job
+     */
+    public PackageJob(String id, Type type, String packagePath, String userId, String parameters, Calendar created, State state) {
+        this.id = id;
+        this.type = type;
+        this.packagePath = packagePath;
+        this.userId = userId;
+        this.parameters = parameters;
+        this.created = created;
+        this.state = state;
+    }
+
+    /**
+     * Gets the ID of the current job
+     * @return String value
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the type of the current job
+     * @return {@link Type} value
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the JCR path of the package the current job is performed over
+     * @return String value
+     */
+    public String getPackagePath() {
+        return packagePath;
+    }
+
+    /**
+     * Gets the ID of the user who requested the current job
+     * @return String value
+     */
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Gets the JSON-coded options of the current job
+     * @return String value
+     */
+    public String getParameters() {
+        return parameters;
+    }
+
+    /**
+     * Gets the moment the current job was enqueued
+     * @return {@code Calendar} value
+     */
+    public Calendar getCreated() {
+        return created;
+    }
+
+    /**
+     * Gets the state of the current job
+     * @return {@link State} value
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Sets the state of the current job
+     * @param state {@link State} value
+     */
+    public void setState(State state) {
+        this.state = state;
+    }
+}
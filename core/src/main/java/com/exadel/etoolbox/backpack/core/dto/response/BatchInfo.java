@@ -0,0 +1,198 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.dto.response;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data model representing aggregate progress of a batch of package builds requested at once. Upon initialization,
+ * serialized to a JSON-coded HTTP response
+ */
+public class BatchInfo {
+
+    private final String batchId;
+    private final List<String> packagePaths;
+    private final Calendar created;
+    private int concurrency;
+    private int done;
+    private int failed;
+    private int remaining;
+    private long totalSize;
+    private List<String> log = new ArrayList<>();
+
+    /**
+     * Basic constructor
+     *
+     * @param batchId      String value uniquely identifying the batch
+     * @param packagePaths {@code List} of paths to the packages built within the batch
+     */
+    public BatchInfo(final String batchId, final List<String> packagePaths) {
+        this.batchId = batchId;
+        this.packagePaths = Collections.unmodifiableList(new ArrayList<>(packagePaths));
+        this.created = Calendar.getInstance();
+        this.remaining = packagePaths.size();
+    }
+
+    /**
+     * Copy constructor. Creates a snapshot of the given batch's progress
+     *
+     * @param batchInfo {@link BatchInfo} instance to copy
+     */
+    public BatchInfo(final BatchInfo batchInfo) {
+        synchronized (batchInfo) {
+            this.batchId = batchInfo.batchId;
+            this.packagePaths = batchInfo.packagePaths;
+            this.created = batchInfo.created;
+            this.concurrency = batchInfo.concurrency;
+            this.done = batchInfo.done;
+            this.failed = batchInfo.failed;
+            this.remaining = batchInfo.remaining;
+            this.totalSize = batchInfo.totalSize;
+            this.log = new ArrayList<>(batchInfo.log);
+        }
+    }
+
+    /**
+     * Gets the ID of the current batch
+     *
+     * @return String value
+     */
+    public String getBatchId() {
+        return batchId;
+    }
+
+    /**
+     * Gets the paths to the packages built within the current batch
+     *
+     * @return {@code List} of String values
+     */
+    public List<String> getPackagePaths() {
+        return packagePaths;
+    }
+
+    /**
+     * Gets the moment the current batch was requested
+     *
+     * @return {@code Calendar} value
+     */
+    public Calendar getCreated() {
+        return created;
+    }
+
+    /**
+     * Gets the maximal number of packages of the current batch built simultaneously
+     *
+     * @return Integer value
+     */
+    public synchronized int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Sets the maximal number of packages of the current batch built simultaneously
+     *
+     * @param concurrency Integer value
+     */
+    public synchronized void setConcurrency(final int concurrency) {
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * Gets the number of packages of the current batch that have been built successfully
+     *
+     * @return Integer value
+     */
+    public synchronized int getDone() {
+        return done;
+    }
+
+    /**
+     * Gets the number of packages of the current batch that failed to build or were cancelled
+     *
+     * @return Integer value
+     */
+    public synchronized int getFailed() {
+        return failed;
+    }
+
+    /**
+     * Gets the number of packages of the current batch that are queued or being built
+     *
+     * @return Integer value
+     */
+    public synchronized int getRemaining() {
+        return remaining;
+    }
+
+    /**
+     * Gets the summary size of the packages of the current batch built so far
+     *
+     * @return Long value representing size in bytes
+     */
+    public synchronized long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Gets the messages reported for the current batch
+     *
+     * @return {@code List} of String values
+     */
+    public synchronized List<String> getLog() {
+        return Collections.unmodifiableList(new ArrayList<>(log));
+    }
+
+    /**
+     * Appends a message to the log of the current batch
+     *
+     * @param message String value
+     */
+    public synchronized void addLogMessage(final String message) {
+        log.add(message);
+    }
+
+    /**
+     * Accounts for a package of the current batch which build is over. A package is reported as done if it has been
+     * built; otherwise, as failed
+     *
+     * @param packageInfo {@link PackageInfo} of the package
+     */
+    public synchronized void onBuildFinished(final PackageInfo packageInfo) {
+        if (PackageStatus.BUILT.equals(packageInfo.getPackageStatus())) {
+            done++;
+            if (packageInfo.getDataSize() != null) {
+                totalSize += packageInfo.getDataSize();
+            }
+        } else {
+            failed++;
+            addLogMessage(packageInfo.getPackagePath() + ": " + packageInfo.getPackageStatus());
+        }
+        remaining = Math.max(remaining - 1, 0);
+    }
+
+    /**
+     * Accounts for a package of the current batch that could not be scheduled for building
+     *
+     * @param packagePath String value representing path to the package in the JCR storage
+     * @param message     String value describing the reason
+     */
+    public synchronized void onBuildSkipped(final String packagePath, final String message) {
+        failed++;
+        remaining = Math.max(remaining - 1, 0);
+        addLogMessage(packagePath + ": " + message);
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.dto.response;
+
+/**
+ * Enumerates possible modes of a package build
+ */
+public enum BuildMode {
+    /**
+     * The package is always assembled anew
+     */
+    FULL,
+    /**
+     * The package is assembled only if the content under its filter has changed since the last build
+     */
+    INCREMENTAL,
+    /**
+     * A sibling package is assembled that contains only the subtrees modified since the last full build
+     */
+    DELTA,
+    /**
+     * The filter roots are distributed among several sibling packages not exceeding the configured size, plus an index
+     * package depending on all of them
+     */
+    SPLIT
+}
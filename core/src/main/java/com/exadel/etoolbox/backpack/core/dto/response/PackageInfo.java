@@ -54,14 +54,34 @@ public class PackageInfo {
 
     private Long dataSize;
 
+    private Boolean dataSizeEstimated;
+
+    private Long dataSizeLowerBound;
+
+    private Long dataSizeUpperBound;
+
     private String query;
 
     private boolean toggle;
 
+    private int referenceDepth;
+
     private Calendar packageInstalled;
 
     private Calendar packageReplicated;
 
+    private Integer queuePosition;
+
+    private Map<String, Long> logCounters;
+
+    private Integer nextLogIndex;
+
+    private transient int logOffset;
+
+    private transient int logCapacity;
+
+    private transient String logFile;
+
     /**
      * Default constructor
      */
@@ -88,9 +108,13 @@ public class PackageInfo {
         this.referencedResources = new HashMap<>(packageInfo.getReferencedResources());
         this.log = packageInfo.log;
         this.dataSize = packageInfo.dataSize;
+        this.dataSizeEstimated = packageInfo.dataSizeEstimated;
+        this.dataSizeLowerBound = packageInfo.dataSizeLowerBound;
+        this.dataSizeUpperBound = packageInfo.dataSizeUpperBound;
         this.paths = packageInfo.paths;
         this.query = packageInfo.query;
         this.toggle = packageInfo.toggle;
+        this.referenceDepth = packageInfo.referenceDepth;
         if (packageInfo.packageInstalled != null) {
             this.packageInstalled = Calendar.getInstance();
             this.packageInstalled.setTime(packageInfo.packageInstalled.getTime());
@@ -100,6 +124,15 @@ public class PackageInfo {
             this.packageReplicated = Calendar.getInstance();
             this.packageReplicated.setTime(packageInfo.packageReplicated.getTime());
         }
+        this.queuePosition = packageInfo.queuePosition;
+        synchronized (packageInfo) {
+            if (packageInfo.logCounters != null) {
+                this.logCounters = new TreeMap<>(packageInfo.logCounters);
+            }
+            this.logOffset = packageInfo.logOffset;
+        }
+        this.logCapacity = packageInfo.logCapacity;
+        this.logFile = packageInfo.logFile;
     }
 
     /**
@@ -152,7 +185,7 @@ public class PackageInfo {
      *
      * @return {@code List<String>} object, read-only
      */
-    public List<String> getLog() {
+    public synchronized List<String> getLog() {
         return Collections.unmodifiableList(log);
     }
 
@@ -161,7 +194,7 @@ public class PackageInfo {
      *
      * @param log {@code List<String>} object
      */
-    public void setLog(final List<String> log) {
+    public synchronized void setLog(final List<String> log) {
         this.log = log;
     }
 
@@ -175,27 +208,122 @@ public class PackageInfo {
     }
 
     /**
-     * Gets the collection of log entries for the current package starting from the specified position
+     * Gets the collection of log entries for the current package starting from the specified position. The position
+     * is counted from the beginning of the log, including the entries that have already been dropped from the bounded
+     * in-memory tail; if some of the requested entries were dropped, the output starts from the oldest retained entry
      *
      * @param latestLogIndex Position to start log output from
      * @return {@code List<String>} object, read-only
      */
-    public List<String> getLatestBuildInfo(int latestLogIndex) {
-        int currentBuildLogSize = log.size();
+    public synchronized List<String> getLatestBuildInfo(int latestLogIndex) {
+        int start = Math.max(latestLogIndex - logOffset, 0);
 
         List<String> latestLog = Collections.emptyList();
-        if (currentBuildLogSize > 0) {
-            latestLog = new ArrayList<>(log.subList(latestLogIndex, currentBuildLogSize));
+        if (start < log.size()) {
+            latestLog = new ArrayList<>(log.subList(start, log.size()));
         }
 
         return Collections.unmodifiableList(latestLog);
     }
 
     /**
-     * Clears the log entries for the current package
+     * Gets the total number of log entries appended since the log was last cleared, including the entries that have
+     * already been dropped from the bounded in-memory tail
+     *
+     * @return Integer value
      */
-    public void clearLog() {
+    public synchronized int getLogSize() {
+        return logOffset + log.size();
+    }
+
+    /**
+     * Clears the log entries and counters for the current package
+     */
+    public synchronized void clearLog() {
         log.clear();
+        logOffset = 0;
+        logCounters = null;
+    }
+
+    /**
+     * Sets the number of log entries kept in memory. Once the number is exceeded, the oldest entries are dropped
+     *
+     * @param logCapacity Integer value; zero or a negative value means no limit
+     */
+    public synchronized void setLogCapacity(final int logCapacity) {
+        this.logCapacity = logCapacity;
+        trimLog();
+    }
+
+    /**
+     * Increments the counter of log entries with the given status code, such as <i>A</i> (added), <i>U</i> (updated),
+     * <i>D</i> (deleted), or <i>E</i> (error)
+     *
+     * @param statusCode String value
+     */
+    public synchronized void incrementLogCounter(final String statusCode) {
+        if (logCounters == null) {
+            logCounters = new TreeMap<>();
+        }
+        logCounters.merge(StringUtils.defaultIfBlank(statusCode, "-"), 1L, Long::sum);
+    }
+
+    /**
+     * Gets the numbers of log entries per status code
+     *
+     * @return {@code Map<String, Long>} object, read-only, or null if no entries have been counted
+     */
+    public synchronized Map<String, Long> getLogCounters() {
+        return logCounters != null ? Collections.unmodifiableMap(new TreeMap<>(logCounters)) : null;
+    }
+
+    /**
+     * Gets the path to the file the full log of the current package is written to, if any
+     *
+     * @return String value, or null
+     */
+    public String getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * Sets the path to the file the full log of the current package is written to
+     *
+     * @param logFile String value
+     */
+    public void setLogFile(final String logFile) {
+        this.logFile = logFile;
+    }
+
+    /**
+     * Gets the position the next chunk of log entries should be requested from
+     *
+     * @return Integer value, or null if not reported
+     */
+    public Integer getNextLogIndex() {
+        return nextLogIndex;
+    }
+
+    /**
+     * Sets the position the next chunk of log entries should be requested from
+     *
+     * @param nextLogIndex Integer value
+     */
+    public void setNextLogIndex(final Integer nextLogIndex) {
+        this.nextLogIndex = nextLogIndex;
+    }
+
+    /**
+     * Drops the oldest log entries exceeding the log capacity. The entries are dropped in chunks of a quarter of the
+     * capacity so that the remaining entries are not shifted upon every appended message
+     */
+    private void trimLog() {
+        if (logCapacity <= 0 || log.size() <= logCapacity + Math.max(logCapacity / 4, 1)) {
+            return;
+        }
+        int excess = log.size() - logCapacity;
+        log.subList(0, excess).clear();
+        logOffset += excess;
     }
 
     /**
@@ -344,9 +472,10 @@ public class PackageInfo {
      *
      * @param message String value, non-blank
      */
-    public void addLogMessage(final String message) {
+    public synchronized void addLogMessage(final String message) {
         if (log != null) {
             log.add(message);
+            trimLog();
         }
     }
 
@@ -368,6 +497,46 @@ public class PackageInfo {
         this.dataSize = dataSize;
     }
 
+    /**
+     * Sets the computed size of the current package along with the flag showing whether the size is an estimate,
+     * and the confidence bounds of a sampled estimate
+     *
+     * @param sizeInfo {@link SizeInfo} object
+     */
+    public void setDataSize(final SizeInfo sizeInfo) {
+        this.dataSize = sizeInfo.getSize();
+        this.dataSizeEstimated = sizeInfo.isEstimated() ? Boolean.TRUE : null;
+        this.dataSizeLowerBound = sizeInfo.getLowerBound();
+        this.dataSizeUpperBound = sizeInfo.getUpperBound();
+    }
+
+    /**
+     * Gets whether the computed size of the current package is an estimate rather than an exact value
+     *
+     * @return True if the size is an estimate; otherwise, null
+     */
+    public Boolean getDataSizeEstimated() {
+        return dataSizeEstimated;
+    }
+
+    /**
+     * Gets the lower bound of the confidence interval of the sampled package size
+     *
+     * @return Long value, or null if the size was not sampled
+     */
+    public Long getDataSizeLowerBound() {
+        return dataSizeLowerBound;
+    }
+
+    /**
+     * Gets the upper bound of the confidence interval of the sampled package size
+     *
+     * @return Long value, or null if the size was not sampled
+     */
+    public Long getDataSizeUpperBound() {
+        return dataSizeUpperBound;
+    }
+
     /**
      * Gets the SQL2 query of the current package
      *
@@ -404,6 +573,24 @@ public class PackageInfo {
         this.toggle = toggle;
     }
 
+    /**
+     * Gets the number of reference levels followed when the referenced resources of the current package were collected
+     *
+     * @return Integer value; 0 or 1 stand for the direct references only
+     */
+    public int getReferenceDepth() {
+        return referenceDepth;
+    }
+
+    /**
+     * Sets the number of reference levels followed when the referenced resources of the current package are collected
+     *
+     * @param referenceDepth Integer value
+     */
+    public void setReferenceDepth(int referenceDepth) {
+        this.referenceDepth = referenceDepth;
+    }
+
     /**
      * Gets the value representing when the package was installed
      *
@@ -440,6 +627,24 @@ public class PackageInfo {
         this.packageReplicated = packageReplicated;
     }
 
+    /**
+     * Gets the position of the current package in the build queue while it is waiting for a free worker
+     *
+     * @return Integer value starting from 1, or null if the package is not queued
+     */
+    public Integer getQueuePosition() {
+        return queuePosition;
+    }
+
+    /**
+     * Sets the position of the current package in the build queue
+     *
+     * @param queuePosition Integer value starting from 1, or null if the package is not queued
+     */
+    public void setQueuePosition(Integer queuePosition) {
+        this.queuePosition = queuePosition;
+    }
+
     /**
      * Overrides the standard {@code equals()} routine to implement packages comparison by their name and group name
      * requisites
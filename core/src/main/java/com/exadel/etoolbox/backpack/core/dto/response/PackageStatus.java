@@ -20,8 +20,10 @@ package com.exadel.etoolbox.backpack.core.dto.response;
 public enum PackageStatus {
     CREATED,
     MODIFIED,
+    QUEUED,
     BUILD_IN_PROGRESS,
     BUILT,
+    CANCELLED,
     ERROR,
     INSTALL_IN_PROGRESS,
     INSTALL
@@ -0,0 +1,96 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.dto.response;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
+
+/**
+ * Data model representing a single record of the streamed reference search results: either a found item together
+ * with the running totals, or the final totals once the search is complete
+ */
+public class ReferenceSearchProgress {
+
+    private final ReferencedItem item;
+    private final int level;
+    private final int count;
+    private final long totalSize;
+    private final boolean done;
+
+    /**
+     * Basic constructor
+     *
+     * @param item      Found {@link ReferencedItem}, or null for the final record
+     * @param level     Reference level the item was found at, starting with 1 for the direct references, or 0 for
+     *                  the final record
+     * @param count     Number of items found so far
+     * @param totalSize Total size of the assets found so far, in bytes
+     * @param done      True if the search is complete
+     */
+    public ReferenceSearchProgress(final ReferencedItem item,
+                                   final int level,
+                                   final int count,
+                                   final long totalSize,
+                                   final boolean done) {
+        this.item = item;
+        this.level = level;
+        this.count = count;
+        this.totalSize = totalSize;
+        this.done = done;
+    }
+
+    /**
+     * Gets the found item
+     *
+     * @return {@link ReferencedItem} object, or null for the final record
+     */
+    public ReferencedItem getItem() {
+        return item;
+    }
+
+    /**
+     * Gets the reference level the item was found at
+     *
+     * @return Integer value starting with 1 for the direct references, or 0 for the final record
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * Gets the number of items found so far
+     *
+     * @return Integer value
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Gets the total size of the assets found so far
+     *
+     * @return Size in bytes
+     */
+    public long getTotalSize() {
+        return totalSize;
+    }
+
+    /**
+     * Gets whether the search is complete
+     *
+     * @return True or false
+     */
+    public boolean isDone() {
+        return done;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.dto.response;
+
+/**
+ * Data model representing the computed size of a set of JCR subtrees. The size is flagged as an estimate if it was
+ * not computed over the complete content. A sampled estimate also carries the bounds of its confidence interval
+ */
+public class SizeInfo {
+
+    private final long size;
+    private final boolean estimated;
+    private final Long lowerBound;
+    private final Long upperBound;
+
+    /**
+     * Basic constructor
+     *
+     * @param size      Size in bytes
+     * @param estimated True if the size is not exact
+     */
+    public SizeInfo(final long size, final boolean estimated) {
+        this.size = size;
+        this.estimated = estimated;
+        this.lowerBound = null;
+        this.upperBound = null;
+    }
+
+    /**
+     * Creates an instance representing a sampled estimate
+     *
+     * @param size       Estimated size in bytes
+     * @param lowerBound Lower bound of the confidence interval, in bytes
+     * @param upperBound Upper bound of the confidence interval, in bytes
+     */
+    public SizeInfo(final long size, final long lowerBound, final long upperBound) {
+        this.size = size;
+        this.estimated = true;
+        this.lowerBound = lowerBound;
+        this.upperBound = upperBound;
+    }
+
+    /**
+     * Gets the computed size
+     *
+     * @return Size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Gets whether the size is an estimate rather than an exact value
+     *
+     * @return True or false
+     */
+    public boolean isEstimated() {
+        return estimated;
+    }
+
+    /**
+     * Gets the lower bound of the confidence interval of a sampled estimate
+     *
+     * @return Size in bytes, or null if the size was not sampled
+     */
+    public Long getLowerBound() {
+        return lowerBound;
+    }
+
+    /**
+     * Gets the upper bound of the confidence interval of a sampled estimate
+     *
+     * @return Size in bytes, or null if the size was not sampled
+     */
+    public Long getUpperBound() {
+        return upperBound;
+    }
+}
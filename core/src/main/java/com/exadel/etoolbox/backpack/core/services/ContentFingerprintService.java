@@ -0,0 +1,55 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.ContentFingerprint;
+import org.apache.sling.api.resource.ResourceResolver;
+
+import java.util.List;
+
+/**
+ * Represents a service running in an AEM instance responsible for detecting content changes under package filter roots
+ */
+public interface ContentFingerprintService {
+
+    /**
+     * Gets the {@link ContentFingerprint} of the subtree under the specified JCR path
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param rootPath         String value representing the root of the subtree
+     * @return {@link ContentFingerprint} instance, or null if the path does not exist
+     */
+    ContentFingerprint getFingerprint(ResourceResolver resourceResolver, String rootPath);
+
+    /**
+     * Gets the paths of the topmost resources under the specified JCR path that were modified after the given moment
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param rootPath         String value representing the root of the subtree
+     * @param since            Timestamp (in milliseconds) the modifications are looked for after
+     * @return {@code List} of paths, or an empty list
+     */
+    List<String> getModifiedPaths(ResourceResolver resourceResolver, String rootPath, long since);
+
+    /**
+     * Gets a value that changes whenever content is added, modified or removed within the subtree under the specified
+     * JCR path, or the path itself or any of its ancestors is added or removed. Unlike
+     * {@link ContentFingerprintService#getFingerprint(ResourceResolver, String)}, the value is derived from the resource
+     * change events and the subtree is not traversed
+     *
+     * @param rootPath String value representing the root of the subtree
+     * @return Long value, or null if the changes under the path are not observed
+     */
+    Long getChangeWatermark(String rootPath);
+}
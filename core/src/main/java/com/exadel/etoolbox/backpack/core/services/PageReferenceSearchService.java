@@ -15,9 +15,14 @@
 package com.exadel.etoolbox.backpack.core.services;
 
 import com.day.cq.wcm.api.Page;
+import com.day.cq.wcm.api.PageManager;
+import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Represents a service running in an AEM instance responsible for gathering pages referenced by resources
@@ -34,4 +39,68 @@ public interface PageReferenceSearchService {
      * @return {@code Set<Page>} object, or an empty {@code Set}.
      */
     Set<Page> findPageReferences(ResourceResolver resourceResolver, String searchPath);
+
+    /**
+     * Adds pages referenced by a single property value to the given collection. Used by the traversals that visit
+     * each resource once and dispatch its property values to several reference extractors.
+     *
+     * @param propertyValue    String value of a resource property.
+     * @param pages            {@code Set} of found referenced pages.
+     * @param pageManager      {@link PageManager} instance.
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources.
+     * @param resolvedPages    {@code Map} of the paths already resolved within the current search to their containing
+     *                         pages, or to null if there is none. Filled in by this method.
+     */
+    void addPageReferences(String propertyValue,
+                           Set<Page> pages,
+                           PageManager pageManager,
+                           ResourceResolver resourceResolver,
+                           Map<String, Page> resolvedPages);
+
+    /**
+     * Filters the found pages by the configured templates and excludes the page the search started from.
+     *
+     * @param pages           {@code Set} of found referenced pages.
+     * @param initialResource {@code Resource} the search started from.
+     * @return {@code Set<Page>} object, or an empty {@code Set}.
+     */
+    Set<Page> filterPages(Set<Page> pages, Resource initialResource);
+
+    /**
+     * Gets whether the given resource and its descendants are skipped during reference search due to the configured
+     * node types and path patterns.
+     *
+     * @param resource {@code Resource} to check.
+     * @return True or false.
+     */
+    boolean isSkipped(Resource resource);
+
+    /**
+     * Gets whether values of the property with the given name are searched for references due to the configured
+     * property names.
+     *
+     * @param propertyName Name of the property.
+     * @return True or false.
+     */
+    boolean isSearched(String propertyName);
+
+    /**
+     * Passes the given resource and those of its descendants that may contain references to the visitor, using the
+     * configured search strategy. Skipped resources and their descendants are not visited.
+     *
+     * @param root    {@code Resource} the search starts from.
+     * @param visitor {@code Consumer} inspecting the properties of a resource.
+     */
+    void forEachCandidate(Resource root, Consumer<Resource> visitor);
+
+    /**
+     * Passes the given resource and those of its descendants that may contain references to the visitor, using the
+     * configured search strategy. The resources having any of the given properties set are always visited, even if
+     * the search strategy would not find them otherwise. Skipped resources and their descendants are not visited.
+     *
+     * @param root          {@code Resource} the search starts from.
+     * @param propertyNames Names of the properties which make a resource worth visiting whenever they are set.
+     * @param visitor       {@code Consumer} inspecting the properties of a resource.
+     */
+    void forEachCandidate(Resource root, Collection<String> propertyNames, Consumer<Resource> visitor);
 }
@@ -11,11 +11,45 @@ import java.util.List;
 public interface QueryService {
 
     /**
-     * The method to get Resources paths by SQL2 query String
+     * The method to get Resources paths by SQL2 query String. A query returning more paths than the configured maximum
+     * is considered erroneous, and no paths are returned. A query that would traverse the repository is rejected
      *
      * @param resourceResolver {@code ResourceResolver} instance used to build the package
      * @param queryString {@code String} SQL2 query
      * @return {@code List} of Resources paths
      */
     List<String> getResourcesPathsFromQuery(ResourceResolver resourceResolver, String queryString, PackageInfo packageInfo);
+
+    /**
+     * The method to get Resources paths by SQL2 query String. The query plan is inspected before the execution; the index
+     * chosen by the repository and the plan itself are added to the log of the package. A query returning more paths
+     * than the configured maximum is considered erroneous, and no paths are returned
+     *
+     * @param resourceResolver {@code ResourceResolver} instance used to build the package
+     * @param queryString {@code String} SQL2 query
+     * @param packageInfo {@code PackageInfo} the plan and the errors are reported to
+     * @param allowTraversal True to run the query even if the repository would traverse nodes instead of using an index
+     * @return {@code List} of Resources paths
+     */
+    List<String> getResourcesPathsFromQuery(ResourceResolver resourceResolver, String queryString, PackageInfo packageInfo, boolean allowTraversal);
+
+    /**
+     * The method to get a page of Resources paths by SQL2 query String, e.g. to preview the paths a query would add
+     * to a package. Paths are read from the query result rows without loading the nodes. The query plan is inspected
+     * before the execution as well
+     *
+     * @param resourceResolver {@code ResourceResolver} instance used to run the query
+     * @param queryString {@code String} SQL2 query
+     * @param packageInfo {@code PackageInfo} the plan and the errors are reported to
+     * @param limit Maximal number of paths to return; the configured maximum applies if 0 or greater than it
+     * @param offset Number of paths to skip
+     * @param allowTraversal True to run the query even if the repository would traverse nodes instead of using an index
+     * @return {@code List} of Resources paths
+     */
+    List<String> getResourcesPathsFromQuery(ResourceResolver resourceResolver,
+                                            String queryString,
+                                            PackageInfo packageInfo,
+                                            long limit,
+                                            long offset,
+                                            boolean allowTraversal);
 }
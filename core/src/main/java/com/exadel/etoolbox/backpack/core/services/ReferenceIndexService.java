@@ -0,0 +1,51 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
+import org.apache.sling.api.resource.ResourceResolver;
+
+import java.util.Set;
+
+/**
+ * Represents a service running in an AEM instance responsible for maintaining a forward and a reverse index of tags,
+ * pages and assets referenced by content, so that references can be looked up rather than searched for
+ */
+public interface ReferenceIndexService {
+
+    /**
+     * Gets whether the index is enabled and has been fully built
+     *
+     * @return True or false
+     */
+    boolean isReady();
+
+    /**
+     * Gets the references of the resources under the specified JCR path from the index
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access the referenced resources
+     * @param searchPath       String value representing root path containing resources to gather references for
+     * @return {@code Set<ReferencedItem>} object, or null if the path is not covered by the index
+     */
+    Set<ReferencedItem> getReferences(ResourceResolver resourceResolver, String searchPath);
+
+    /**
+     * Gets the paths of the pages and other hierarchy nodes referencing the specified tag, page or asset
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access the referencing resources
+     * @param referencedPath   String value representing path of the referenced item
+     * @return {@code Set} of paths, or an empty set
+     */
+    Set<String> getReferrers(ResourceResolver resourceResolver, String referencedPath);
+}
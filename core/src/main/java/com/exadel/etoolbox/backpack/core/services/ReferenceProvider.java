@@ -0,0 +1,62 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
+import org.apache.sling.api.resource.ResourceResolver;
+
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Represents an extension point for finding references of kinds other than tags, pages and assets, such as
+ * context-aware configurations. Every OSGi service implementing this interface is discovered by the {@link ReferenceService}.
+ * Property values of the searched resources are offered to every provider during a single traversal of the subtree;
+ * the accepted values are then resolved by the providers concurrently
+ */
+public interface ReferenceProvider {
+
+    /**
+     * Gets whether the given property value may contain a reference this provider resolves. Called for every searched
+     * property value during the traversal, so it must be fast and must not access the repository
+     *
+     * @param propertyName Name of the property
+     * @param value        String value of the property
+     * @return True or false
+     */
+    boolean accepts(String propertyName, String value);
+
+    /**
+     * Gets the names of the properties whose values this provider accepts, if they are known in advance. The resources
+     * having these properties are then visited even by the search strategies which would not find them otherwise,
+     * such as the index query. Providers which may accept values of any property return an empty collection; with
+     * such providers, only the resources found by the search strategy are offered
+     *
+     * @return Collection of property names, or an empty collection
+     */
+    default Collection<String> getPropertyNames() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Gets the items referenced by a property value previously accepted by this provider. Can be called from a thread
+     * other than the one the search was started in, with a resolver of its own
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param propertyName     Name of the property
+     * @param value            String value of the property
+     * @return Collection of {@link ReferencedItem}s, or an empty collection
+     */
+    Collection<ReferencedItem> getReferences(ResourceResolver resourceResolver, String propertyName, String value);
+}
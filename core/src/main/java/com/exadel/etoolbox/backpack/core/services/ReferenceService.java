@@ -17,7 +17,10 @@ package com.exadel.etoolbox.backpack.core.services;
 import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
 import org.apache.sling.api.resource.ResourceResolver;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Represents a service running in an AEM instance responsible for gathering information on resources referenced by pages
@@ -35,4 +38,58 @@ public interface ReferenceService {
      */
     Set<ReferencedItem> getReferences(ResourceResolver resourceResolver, String searchPath);
 
+    /**
+     * Gets a collection of unique {@link ReferencedItem} instances representing assets referenced by resources
+     * under specified JCR path. Every item is also passed to the consumer as soon as it is found, so that the results
+     * can be reported before the search completes. The consumer is called in the calling thread
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param searchPath       String value representing root path containing resources to gather references for
+     * @param consumer         {@code Consumer} accepting every found item once
+     * @return {@code Set<ReferencedItem>} object, or an empty {@code Set}
+     */
+    Set<ReferencedItem> getReferences(ResourceResolver resourceResolver, String searchPath, Consumer<ReferencedItem> consumer);
+
+    /**
+     * Gets a collection of unique {@link ReferencedItem} instances representing assets referenced by resources
+     * under specified JCR path, passing every item to the consumer as soon as it is found. Tag IDs are resolved through
+     * the given memo, so that the searches of several paths within one request resolve every tag once
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param searchPath       String value representing root path containing resources to gather references for
+     * @param resolvedTags     {@code Map} shared by the searches of the current request, initially empty. Must be
+     *                         thread-safe if the searches run in parallel
+     * @param consumer         {@code Consumer} accepting every found item once
+     * @return {@code Set<ReferencedItem>} object, or an empty {@code Set}
+     */
+    Set<ReferencedItem> getReferences(ResourceResolver resourceResolver,
+                                      String searchPath,
+                                      Map<String, ReferencedItem> resolvedTags,
+                                      Consumer<ReferencedItem> consumer);
+
+    /**
+     * Gets the references of resources under the specified JCR paths together with the references of the referenced
+     * pages and assets, and so on, in breadth-first order. The search stops when any of the limits is reached
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param searchPaths      Collection of root paths containing resources to gather references for
+     * @param maxDepth         Maximal number of reference levels to follow; 1 stands for the direct references only
+     * @param maxItems         Maximal number of referenced items to gather
+     * @param timeBudget       Time in milliseconds after which no further items are searched; 0 stands for no limit
+     * @return {@code Map} of the found {@link ReferencedItem}s to the levels they were found at, starting with 1,
+     * in the order of discovery
+     */
+    Map<ReferencedItem, Integer> getReferences(ResourceResolver resourceResolver,
+                                               Collection<String> searchPaths,
+                                               int maxDepth,
+                                               int maxItems,
+                                               long timeBudget);
+
+    /**
+     * Gets the time spent by every {@link ReferenceProvider} resolving references since this service was started.
+     * Used to find out the slow providers which can be disabled in the configuration
+     *
+     * @return {@code Map} of provider class names to the time in milliseconds
+     */
+    Map<String, Long> getProviderTimings();
 }
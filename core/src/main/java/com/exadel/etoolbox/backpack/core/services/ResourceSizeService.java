@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services;
+
+import com.exadel.etoolbox.backpack.core.dto.response.SizeInfo;
+import org.apache.sling.api.resource.ResourceResolver;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents a service running in an AEM instance responsible for computing the summary size of binaries stored
+ * under a JCR path. Sizes of the unchanged subtrees are served from a cache kept per user
+ */
+public interface ResourceSizeService {
+
+    /**
+     * Gets the summary size of the binaries stored in the subtree under the specified JCR path
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param path             String value representing the root of the subtree
+     * @return Size in bytes, or 0 if the path does not exist
+     */
+    long getSize(ResourceResolver resourceResolver, String path);
+
+    /**
+     * Gets the summary size of the binaries stored in the subtrees under the specified JCR paths. The subtrees are
+     * traversed in parallel. If the configured time budget is exceeded, the partial result is returned flagged as
+     * an estimate
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources. Parallel traversal is done
+     *                         within copies of it, so that the sizes are computed within the user's permissions
+     * @param paths            {@code Collection} of paths representing the roots of the subtrees
+     * @return {@link SizeInfo} instance
+     */
+    SizeInfo getSize(ResourceResolver resourceResolver, Collection<String> paths);
+
+    /**
+     * Computes the summary size of the binaries stored in the subtrees under the specified JCR paths in the
+     * background, within a session of the given user opened when the computation starts. The computations are queued
+     * up to the configured capacity, and a computation for the same user and paths that is already queued or running
+     * is shared. The computed sizes are cached for the user
+     *
+     * @param resourceResolver {@code ResourceResolver} of the requesting user. Only the user ID is taken from it, so
+     *                         that it can be closed by the caller at any time
+     * @param paths            {@code Collection} of paths representing the roots of the subtrees
+     * @return {@code CompletableFuture} that completes with a {@link SizeInfo} instance, or completes exceptionally
+     * if the queue is full
+     */
+    CompletableFuture<SizeInfo> getSizeAsync(ResourceResolver resourceResolver, Collection<String> paths);
+
+    /**
+     * Estimates the summary size of the binaries stored in the subtrees under the specified JCR paths. In folders
+     * having more children than the configured sample size, only a sample of children is traversed, and the result is
+     * extrapolated by the number of children. The estimate is reported with the bounds of its confidence interval
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param paths            {@code Collection} of paths representing the roots of the subtrees
+     * @return {@link SizeInfo} instance. If no folder was sampled, the size is exact
+     */
+    SizeInfo estimateSize(ResourceResolver resourceResolver, Collection<String> paths);
+}
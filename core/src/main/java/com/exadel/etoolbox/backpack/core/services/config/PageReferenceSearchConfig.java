@@ -18,6 +18,7 @@ import com.exadel.etoolbox.backpack.core.services.impl.PageReferenceSearchServic
 import org.osgi.service.metatype.annotations.AttributeDefinition;
 import org.osgi.service.metatype.annotations.AttributeType;
 import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.osgi.service.metatype.annotations.Option;
 
 /**
  * Represents {@link PageReferenceSearchServiceImpl} OSGi service's configuration
@@ -25,6 +26,8 @@ import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 @ObjectClassDefinition(name = "Page Reference Service Search Configuration")
 public @interface PageReferenceSearchConfig {
     String DEFAULT_PAGE_ROOT_PATH = "/content/";
+    String STRATEGY_TRAVERSAL = "traversal";
+    String STRATEGY_QUERY = "query";
 
 
     @AttributeDefinition(
@@ -48,6 +51,54 @@ public @interface PageReferenceSearchConfig {
                     "In the case when both are configured 'Include Template Paths' will be ignored.",
             type = AttributeType.STRING)
     String[] includeTemplatePaths();
-}
 
+    @AttributeDefinition(
+            name = "Ignore Property Names",
+            description = "Properties whose values are not searched for references. " +
+                    "A name ending with '*' matches all properties starting with it. 'cq:tags' is always searched.",
+            type = AttributeType.STRING)
+    String[] ignorePropertyNames() default {
+            "jcr:data",
+            "jcr:uuid",
+            "jcr:primaryType",
+            "jcr:mixinTypes",
+            "jcr:created*",
+            "jcr:lastModified*",
+            "cq:lastModified*",
+            "cq:lastReplicat*",
+            "dam:*"
+    };
+
+    @AttributeDefinition(
+            name = "Include Property Names",
+            description = "If set, only the values of these properties are searched for references. " +
+                    "A name ending with '*' matches all properties starting with it. " +
+                    "'Ignore Property Names' still apply to the included properties.",
+            type = AttributeType.STRING)
+    String[] includePropertyNames();
+
+    @AttributeDefinition(
+            name = "Ignore Node Types",
+            description = "Primary or mixin types of the nodes that are skipped together with their descendants during reference search.",
+            type = AttributeType.STRING)
+    String[] ignoreNodeTypes() default {"rep:ACL", "rep:CugPolicy"};
 
+    @AttributeDefinition(
+            name = "Ignore Path Patterns",
+            description = "Regular expressions matching paths of the nodes that are skipped together with their descendants during reference search.",
+            type = AttributeType.STRING)
+    String[] ignorePathPatterns() default {".*/jcr:content/renditions"};
+
+    @AttributeDefinition(
+            name = "Search Strategy",
+            description = "How the resources containing references are found. 'Traversal' inspects every node under the search path. " +
+                    "'Index query' inspects only the nodes found by the /oak:index/etoolboxBackpackReferences index; it covers /content, " +
+                    "other paths are always traversed. The index is asynchronous, so the most recent changes may be missed. " +
+                    "The index is shipped disabled: set its 'type' to 'lucene' and reindex it before choosing this strategy.",
+            type = AttributeType.STRING,
+            options = {
+                    @Option(label = "Traversal", value = STRATEGY_TRAVERSAL),
+                    @Option(label = "Index query", value = STRATEGY_QUERY)
+            })
+    String searchStrategy() default STRATEGY_TRAVERSAL;
+}
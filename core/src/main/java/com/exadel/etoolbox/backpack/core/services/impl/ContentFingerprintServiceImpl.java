@@ -0,0 +1,258 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import com.day.cq.commons.jcr.JcrConstants;
+import com.day.cq.wcm.api.NameConstants;
+import com.exadel.etoolbox.backpack.core.dto.repository.ContentFingerprint;
+import com.exadel.etoolbox.backpack.core.services.ContentFingerprintService;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implements {@link ContentFingerprintService} to detect content changes by the modification timestamps
+ * and the number of nodes found under a JCR path. Besides, the service listens to the resource changes under
+ * the observed paths and keeps the sequence number of the latest change per changed path and its ancestors, so that
+ * a change watermark of a subtree is available without traversing it. If a tracked path is evicted, its sequence
+ * number becomes the floor of all the watermarks, so that no change is ever missed
+ */
+@Component(
+        service = {ContentFingerprintService.class, ResourceChangeListener.class},
+        property = {
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        }
+)
+@Designate(ocd = ContentFingerprintServiceImpl.Configuration.class)
+public class ContentFingerprintServiceImpl implements ContentFingerprintService, ResourceChangeListener, ExternalResourceChangeListener {
+
+    private static final String[] TIMESTAMP_PROPERTIES = {
+            JcrConstants.JCR_LASTMODIFIED,
+            NameConstants.PN_PAGE_LAST_MOD,
+            JcrConstants.JCR_CREATED
+    };
+
+    private final AtomicLong changeCounter = new AtomicLong();
+    private final AtomicLong evictedWatermark = new AtomicLong();
+
+    private List<String> observedPaths;
+    // sequence numbers of the latest changes within the subtrees, by subtree root
+    @SuppressWarnings("UnstableApiUsage") // sticking to Guava Cache version bundled in uber-jar; still safe to use
+    private Cache<String, Long> subtreeChanges;
+    // sequence numbers of the latest additions or removals of the nodes themselves
+    @SuppressWarnings("UnstableApiUsage") // sticking to Guava Cache version bundled in uber-jar; still safe to use
+    private Cache<String, Long> nodeChanges;
+
+    /**
+     * Represents this OSGi service's configuration
+     */
+    @ObjectClassDefinition(name = "EToolbox BackPack Content Fingerprint configuration")
+    @interface Configuration {
+        @AttributeDefinition(
+                name = "Observed paths",
+                description = "Roots of the subtrees whose changes are tracked to provide change watermarks",
+                type = AttributeType.STRING
+        )
+        String[] resource_paths() default {"/content"};
+
+        @AttributeDefinition(
+                name = "Max tracked paths",
+                description = "Maximal number of changed paths tracked. When exceeded, the watermarks of all the paths advance",
+                type = AttributeType.INTEGER
+        )
+        int maxEntries() default 100000;
+    }
+
+    /**
+     * Run upon this OSGi service activation or modification to initialize the tracked changes
+     *
+     * @param config {@link Configuration} instance representing this OSGi service's current configuration
+     */
+    @Activate
+    @Modified
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void activate(Configuration config) {
+        observedPaths = Arrays.asList(config.resource_paths());
+        // changes made before the activation are unknown, so all the watermarks issued before must be outdated
+        evictedWatermark.set(changeCounter.incrementAndGet());
+        subtreeChanges = buildChangeCache(config.maxEntries());
+        nodeChanges = buildChangeCache(config.maxEntries());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ContentFingerprint getFingerprint(final ResourceResolver resourceResolver, final String rootPath) {
+        Resource resource = resourceResolver.getResource(rootPath);
+        if (resource == null) {
+            return null;
+        }
+        long[] lastModifiedAndCount = new long[2];
+        collectFingerprint(resource, lastModifiedAndCount);
+        return new ContentFingerprint(lastModifiedAndCount[0], lastModifiedAndCount[1]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getModifiedPaths(final ResourceResolver resourceResolver, final String rootPath, final long since) {
+        List<String> paths = new ArrayList<>();
+        Resource resource = resourceResolver.getResource(rootPath);
+        if (resource != null) {
+            collectModifiedPaths(resource, since, paths);
+        }
+        return paths;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getChangeWatermark(final String rootPath) {
+        if (observedPaths.stream().noneMatch(root -> rootPath.equals(root) || rootPath.startsWith(root + "/"))) {
+            return null;
+        }
+        long watermark = Math.max(evictedWatermark.get(), getSequence(subtreeChanges, rootPath));
+        for (String path = ResourceUtil.getParent(rootPath); path != null; path = ResourceUtil.getParent(path)) {
+            watermark = Math.max(watermark, getSequence(nodeChanges, path));
+        }
+        return watermark;
+    }
+
+    /**
+     * Records the changed resources so that the watermarks of the subtrees containing them advance. For an added or
+     * removed resource, the watermarks of its descendants advance as well
+     *
+     * @param changes {@code List} of {@code ResourceChange} objects
+     */
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        for (ResourceChange change : changes) {
+            long sequence = changeCounter.incrementAndGet();
+            String changedPath = change.getPath();
+            if (!ResourceChange.ChangeType.CHANGED.equals(change.getType())) {
+                nodeChanges.put(changedPath, sequence);
+            }
+            for (String path = changedPath; path != null; path = ResourceUtil.getParent(path)) {
+                subtreeChanges.put(path, sequence);
+            }
+        }
+    }
+
+    /**
+     * Gets the sequence number of the latest change recorded for the given path
+     *
+     * @param changeCache {@code Cache} of the recorded changes
+     * @param path        JCR path
+     * @return Long value, or 0 if no change has been recorded
+     */
+    private static long getSequence(final Cache<String, Long> changeCache, final String path) {
+        Long sequence = changeCache.getIfPresent(path);
+        return sequence != null ? sequence : 0L;
+    }
+
+    /**
+     * Creates a bounded cache of recorded changes. An evicted entry raises the floor of all the watermarks
+     *
+     * @param maxEntries Maximal number of entries
+     * @return {@code Cache} instance
+     */
+    private Cache<String, Long> buildChangeCache(final int maxEntries) {
+        return CacheBuilder.newBuilder()
+                .maximumSize(Math.max(maxEntries, 0))
+                .removalListener((RemovalNotification<String, Long> notification) -> {
+                    if (RemovalCause.SIZE.equals(notification.getCause()) && notification.getValue() != null) {
+                        evictedWatermark.accumulateAndGet(notification.getValue(), Math::max);
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Called from {@link ContentFingerprintServiceImpl#getFingerprint(ResourceResolver, String)} to recursively
+     * accumulate the latest modification timestamp and the number of nodes of a subtree
+     *
+     * @param resource             {@code Resource} the subtree starts from
+     * @param lastModifiedAndCount Array of two elements accumulating the timestamp and the node count respectively
+     */
+    private void collectFingerprint(final Resource resource, final long[] lastModifiedAndCount) {
+        lastModifiedAndCount[0] = Math.max(lastModifiedAndCount[0], getTimestamp(resource));
+        lastModifiedAndCount[1]++;
+        for (Resource child : resource.getChildren()) {
+            collectFingerprint(child, lastModifiedAndCount);
+        }
+    }
+
+    /**
+     * Called from {@link ContentFingerprintServiceImpl#getModifiedPaths(ResourceResolver, String, long)} to recursively
+     * collect the topmost resources modified after the given moment. The subtree of a modified resource is not
+     * descended into since it is included in the result as a whole
+     *
+     * @param resource {@code Resource} the subtree starts from
+     * @param since    Timestamp (in milliseconds) the modifications are looked for after
+     * @param paths    {@code List} accumulating the paths of modified resources
+     */
+    private void collectModifiedPaths(final Resource resource, final long since, final List<String> paths) {
+        if (getTimestamp(resource) > since) {
+            paths.add(resource.getPath());
+            return;
+        }
+        for (Resource child : resource.getChildren()) {
+            collectModifiedPaths(child, since, paths);
+        }
+    }
+
+    /**
+     * Gets the latest of the modification and creation timestamps stored in the resource's own properties
+     *
+     * @param resource {@code Resource} instance
+     * @return Timestamp in milliseconds, or 0 if the resource has no such properties
+     */
+    private long getTimestamp(final Resource resource) {
+        ValueMap properties = resource.getValueMap();
+        long result = 0;
+        for (String property : TIMESTAMP_PROPERTIES) {
+            Calendar value = properties.get(property, Calendar.class);
+            if (value != null) {
+                result = Math.max(result, value.getTimeInMillis());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.ConfigReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
+import com.exadel.etoolbox.backpack.core.services.ReferenceProvider;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Component;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Implements {@link ReferenceProvider} to find the context-aware configurations content trees point at with
+ * their <i>cq:conf</i> or <i>sling:configRef</i> properties
+ */
+@Component(service = ReferenceProvider.class)
+public class ContextAwareConfigReferenceProvider implements ReferenceProvider {
+
+    private static final String PN_CQ_CONF = "cq:conf";
+    private static final String PN_SLING_CONFIG_REF = "sling:configRef";
+    private static final String CONF_ROOT = "/conf/";
+    private static final Collection<String> PROPERTY_NAMES = Arrays.asList(PN_CQ_CONF, PN_SLING_CONFIG_REF);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean accepts(final String propertyName, final String value) {
+        return (PN_CQ_CONF.equals(propertyName) || PN_SLING_CONFIG_REF.equals(propertyName)) && value.startsWith(CONF_ROOT);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<String> getPropertyNames() {
+        return PROPERTY_NAMES;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<ReferencedItem> getReferences(final ResourceResolver resourceResolver,
+                                                    final String propertyName,
+                                                    final String value) {
+        if (resourceResolver.getResource(value) == null) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(new ConfigReferencedItem(value));
+    }
+}
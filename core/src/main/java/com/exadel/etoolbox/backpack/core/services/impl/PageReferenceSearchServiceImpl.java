@@ -15,6 +15,7 @@
 package com.exadel.etoolbox.backpack.core.services.impl;
 
 import com.day.cq.commons.PathInfo;
+import com.day.cq.commons.jcr.JcrConstants;
 import com.day.cq.wcm.api.Page;
 import com.day.cq.wcm.api.PageManager;
 import com.day.cq.wcm.api.Template;
@@ -30,11 +31,12 @@ import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.metatype.annotations.Designate;
 
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static com.exadel.etoolbox.backpack.core.services.config.PageReferenceSearchConfig.DEFAULT_PAGE_ROOT_PATH;
+import static com.exadel.etoolbox.backpack.core.services.config.PageReferenceSearchConfig.STRATEGY_QUERY;
 
 /**
  * Implements {@link PageReferenceSearchService} to facilitate getting a collection of pages used by resources
@@ -44,18 +46,32 @@ import static com.exadel.etoolbox.backpack.core.services.config.PageReferenceSea
 @Designate(ocd = PageReferenceSearchConfig.class)
 public class PageReferenceSearchServiceImpl implements PageReferenceSearchService {
 
-    private Pattern resourcePathPattern = Pattern.compile("([\"']|^)("
-            + Pattern.quote(DEFAULT_PAGE_ROOT_PATH) + "[\\S]*?)([\"']|$)");
+    private static final String WILDCARD = "*";
+    private static final String DAM_ROOT_PATH = "/content/dam/";
+
+    private PathPrefixMatcher pagePathMatcher = new PathPrefixMatcher(DEFAULT_PAGE_ROOT_PATH);
 
     private List<String> ignoreTemplates;
     private List<String> includeTemplates;
+    private List<String> ignorePropertyNames = Collections.emptyList();
+    private List<String> includePropertyNames = Collections.emptyList();
+    private Set<String> ignoreNodeTypes = Collections.emptySet();
+    private List<Pattern> ignorePathPatterns = Collections.emptyList();
+    private ReferenceSearchStrategy searchStrategy = new TraversalSearchStrategy(this::isSkipped);
 
     @Activate
     @Modified
     protected void activate(PageReferenceSearchConfig config) {
-        resourcePathPattern = Pattern.compile("([\"']|^)(" + Pattern.quote(config.rootPathOfPagesSearch()) + "[\\S]*?)([\"']|$)");
+        pagePathMatcher = new PathPrefixMatcher(config.rootPathOfPagesSearch());
         ignoreTemplates = getListConfig(config.ignoreTemplatePaths());
         includeTemplates = getListConfig(config.includeTemplatePaths());
+        ignorePropertyNames = getListConfig(config.ignorePropertyNames());
+        includePropertyNames = getListConfig(config.includePropertyNames());
+        ignoreNodeTypes = new HashSet<>(getListConfig(config.ignoreNodeTypes()));
+        ignorePathPatterns = getListConfig(config.ignorePathPatterns()).stream().map(Pattern::compile).collect(Collectors.toList());
+        searchStrategy = STRATEGY_QUERY.equals(config.searchStrategy())
+                ? new QuerySearchStrategy(Arrays.asList(config.rootPathOfPagesSearch(), DAM_ROOT_PATH), this::isSkipped)
+                : new TraversalSearchStrategy(this::isSkipped);
     }
 
     private List<String> getListConfig(final String[] config) {
@@ -77,23 +93,20 @@ public class PageReferenceSearchServiceImpl implements PageReferenceSearchServic
         if (resource == null) {
             return references;
         }
-        search(resource, references, pageManager);
+        search(resource, references, pageManager, new HashMap<>());
         return filterPages(references, resource);
     }
 
     /**
-     * Search referenced pages under specific resource path recursively
+     * Search referenced pages under specific resource path with the configured search strategy
      *
      * @param resource    under which to search
      * @param pages       Set of found referenced pages
      * @param pageManager instance of the{@link PageManager}
+     * @param resolvedPages Map of the already resolved paths to their containing pages
      */
-    private void search(final Resource resource, Set<Page> pages, PageManager pageManager) {
-        findReferences(resource, pages, pageManager);
-        Iterator<Resource> iter = resource.listChildren();
-        while (iter.hasNext()) {
-            search(iter.next(), pages, pageManager);
-        }
+    private void search(final Resource resource, Set<Page> pages, PageManager pageManager, Map<String, Page> resolvedPages) {
+        forEachCandidate(resource, candidate -> findReferences(candidate, pages, pageManager, resolvedPages));
     }
 
     /**
@@ -102,53 +115,57 @@ public class PageReferenceSearchServiceImpl implements PageReferenceSearchServic
      * @param resource    under which to search
      * @param pages       Set of found referenced pages
      * @param pageManager instance of the{@link PageManager}
+     * @param resolvedPages Map of the already resolved paths to their containing pages
      */
     private void findReferences(Resource resource,
                                 Set<Page> pages,
-                                PageManager pageManager) {
+                                PageManager pageManager,
+                                Map<String, Page> resolvedPages) {
         ValueMap map = resource.getValueMap();
-        for (Object value : map.values()) {
+        for (Map.Entry<String, Object> property : map.entrySet()) {
+            if (!isSearched(property.getKey())) {
+                continue;
+            }
+            Object value = property.getValue();
             if (value instanceof String) {
                 String strValue = (String) value;
-                addPagesFromPropertyValue(strValue, pages, pageManager, resource.getResourceResolver());
+                addPageReferences(strValue, pages, pageManager, resource.getResourceResolver(), resolvedPages);
             } else if (value instanceof String[]) {
                 for (String strValue : (String[]) value) {
-                    addPagesFromPropertyValue(strValue, pages, pageManager, resource.getResourceResolver());
+                    addPageReferences(strValue, pages, pageManager, resource.getResourceResolver(), resolvedPages);
                 }
             }
         }
     }
 
     /**
-     * Retrieve page references from single property
-     *
-     * @param strValue         property value
-     * @param pages            Set of found referenced pages
-     * @param pageManager      instance of the{@link PageManager}
-     * @param resourceResolver instance of the{@link ResourceResolver}
+     * {@inheritDoc}
      */
-    private void addPagesFromPropertyValue(final String strValue,
-                                           final Set<Page> pages,
-                                           final PageManager pageManager,
-                                           final ResourceResolver resourceResolver) {
-        Matcher matcher = resourcePathPattern.matcher(strValue);
-        while (matcher.find()) {
-            Resource resource = resourceResolver.resolve(decode(matcher.group(2)));
-            Page page = pageManager.getContainingPage(resource);
+    @Override
+    public void addPageReferences(final String strValue,
+                                  final Set<Page> pages,
+                                  final PageManager pageManager,
+                                  final ResourceResolver resourceResolver,
+                                  final Map<String, Page> resolvedPages) {
+        pagePathMatcher.forEachMatch(strValue, path -> {
+            Page page;
+            if (resolvedPages.containsKey(path)) {
+                page = resolvedPages.get(path);
+            } else {
+                page = pageManager.getContainingPage(resourceResolver.resolve(decode(path)));
+                resolvedPages.put(path, page);
+            }
             if (page != null) {
                 pages.add(page);
             }
-        }
+        });
     }
 
     /**
-     * Filter pages by templates and exclude from found pages current resource if any found
-     *
-     * @param pages           Set of pages to filter
-     * @param initialResource An initial resource under which search occurred
-     * @return Set of filtered pages
+     * {@inheritDoc}
      */
-    private Set<Page> filterPages(final Set<Page> pages, final Resource initialResource) {
+    @Override
+    public Set<Page> filterPages(final Set<Page> pages, final Resource initialResource) {
         Set<Page> filteredPages = new LinkedHashSet<>();
         for (Page page : pages) {
             Resource contentResource = page.getContentResource();
@@ -165,6 +182,70 @@ public class PageReferenceSearchServiceImpl implements PageReferenceSearchServic
         return filteredPages;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSkipped(final Resource resource) {
+        if (!ignoreNodeTypes.isEmpty()) {
+            ValueMap properties = resource.getValueMap();
+            if (ignoreNodeTypes.contains(properties.get(JcrConstants.JCR_PRIMARYTYPE, String.class))) {
+                return true;
+            }
+            for (String mixinType : properties.get(JcrConstants.JCR_MIXINTYPES, new String[0])) {
+                if (ignoreNodeTypes.contains(mixinType)) {
+                    return true;
+                }
+            }
+        }
+        String path = resource.getPath();
+        return ignorePathPatterns.stream().anyMatch(pattern -> pattern.matcher(path).matches());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachCandidate(final Resource root, final Consumer<Resource> visitor) {
+        searchStrategy.forEachCandidate(root, Collections.emptyList(), visitor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachCandidate(final Resource root, final Collection<String> propertyNames, final Consumer<Resource> visitor) {
+        searchStrategy.forEachCandidate(root, propertyNames, visitor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSearched(final String propertyName) {
+        return (includePropertyNames.isEmpty() || matchesAny(propertyName, includePropertyNames))
+                && !matchesAny(propertyName, ignorePropertyNames);
+    }
+
+    /**
+     * Gets whether the property name matches any of the configured names. A configured name ending with '*' matches
+     * all property names starting with it
+     *
+     * @param propertyName Name of the property.
+     * @param names        List of configured names.
+     * @return True or false.
+     */
+    private static boolean matchesAny(final String propertyName, final List<String> names) {
+        for (String name : names) {
+            if (name.endsWith(WILDCARD)
+                    ? propertyName.startsWith(name.substring(0, name.length() - 1))
+                    : propertyName.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Filter Set of pages by templates.
      * With ignoreTemplates configuration: all pages with any template will be included
@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import java.util.function.Consumer;
+
+/**
+ * Extracts paths starting with the given root from string values such as links, rich text or JSON. A path is
+ * recognized when it stands at the beginning of the value or right after a quote, and runs up to the next quote or
+ * the end of the value without containing whitespace. This matches the same paths as the regular expression
+ * {@code (["']|^)(<root>\S*?)(["']|$)} but uses a plain substring search, so that values not containing the root
+ * are rejected without being scanned character by character
+ */
+class PathPrefixMatcher {
+
+    private final String root;
+
+    /**
+     * Instance constructor
+     *
+     * @param root String value the extracted paths start with
+     */
+    PathPrefixMatcher(final String root) {
+        this.root = root;
+    }
+
+    /**
+     * Passes every path found in the given value to the consumer
+     *
+     * @param value    String value to search in
+     * @param consumer {@code Consumer} accepting the found paths
+     */
+    void forEachMatch(final String value, final Consumer<String> consumer) {
+        int consumed = 0;
+        int from = 0;
+        int start;
+        while ((start = value.indexOf(root, from)) >= 0) {
+            int end = isOpening(value, start, consumed) ? findEnd(value, start + root.length()) : -1;
+            if (end < 0) {
+                from = start + 1;
+                continue;
+            }
+            consumer.accept(value.substring(start, end));
+            consumed = end < value.length() && isQuote(value.charAt(end)) ? end + 1 : end;
+            from = consumed;
+        }
+    }
+
+    /**
+     * Gets whether a path may start at the given position, i.e. the position is the beginning of the value or
+     * follows a quote not consumed by the previous match
+     *
+     * @param value    String value to search in
+     * @param start    Position of the root in the value
+     * @param consumed Position the previous match ended at
+     * @return True or false
+     */
+    private static boolean isOpening(final String value, final int start, final int consumed) {
+        return start == 0 || (start - 1 >= consumed && isQuote(value.charAt(start - 1)));
+    }
+
+    /**
+     * Finds the position the path starting before {@code from} ends at
+     *
+     * @param value String value to search in
+     * @param from  Position right after the root
+     * @return Position of the closing quote or the end of the value, or -1 if the path is interrupted by whitespace
+     */
+    private static int findEnd(final String value, final int from) {
+        for (int i = from; i < value.length(); i++) {
+            char current = value.charAt(i);
+            if (isQuote(current) || isFinalLineTerminator(value, i)) {
+                return i;
+            }
+            if (isWhitespace(current)) {
+                return -1;
+            }
+        }
+        return value.length();
+    }
+
+    /**
+     * Gets whether the character is a single or a double quote
+     *
+     * @param value Character to check
+     * @return True or false
+     */
+    private static boolean isQuote(final char value) {
+        return value == '"' || value == '\'';
+    }
+
+    /**
+     * Gets whether the character is whitespace in the sense of the {@code \s} character class of a regular expression
+     *
+     * @param value Character to check
+     * @return True or false
+     */
+    private static boolean isWhitespace(final char value) {
+        return value == ' ' || value == '\t' || value == '\n' || value == '\u000B' || value == '\f' || value == '\r';
+    }
+
+    /**
+     * Gets whether the given position starts the line terminator the value ends with. Such a position is treated as
+     * the end of the value, the same way the {@code $} anchor of a regular expression does
+     *
+     * @param value    String value to search in
+     * @param position Position to check
+     * @return True or false
+     */
+    private static boolean isFinalLineTerminator(final String value, final int position) {
+        int remaining = value.length() - position;
+        if (remaining == 2) {
+            return value.charAt(position) == '\r' && value.charAt(position + 1) == '\n';
+        }
+        if (remaining != 1) {
+            return false;
+        }
+        char current = value.charAt(position);
+        return current == '\n' || current == '\r' || current == '\u0085' || current == '\u2028' || current == '\u2029';
+    }
+}
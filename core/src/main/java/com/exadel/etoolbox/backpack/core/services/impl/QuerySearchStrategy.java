@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import com.day.cq.tagging.TagConstants;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.query.Query;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Implements {@link ReferenceSearchStrategy} by querying the fulltext index shipped as
+ * <i>/oak:index/etoolboxBackpackReferences</i> for the nodes which contain any of the link roots or tags, or have any of
+ * the requested properties set. Only these nodes are inspected instead of the whole subtree. The subtrees outside the
+ * indexed path are traversed. The index is shipped disabled and must be enabled before this strategy is chosen
+ */
+class QuerySearchStrategy implements ReferenceSearchStrategy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(QuerySearchStrategy.class);
+
+    static final String INDEXED_PATH = "/content";
+    private static final String QUERY_TEMPLATE = "SELECT * FROM [nt:base] AS node WHERE ISDESCENDANTNODE(node, '%s') AND (%s)";
+
+    private final ReferenceSearchStrategy fallback;
+    private final Predicate<Resource> skipped;
+    private final String linkCondition;
+
+    /**
+     * Instance constructor
+     *
+     * @param linkRoots Collection of path roots the references start with, such as the root of pages and of assets
+     * @param skipped   {@code Predicate} telling whether a resource and its descendants are skipped
+     */
+    QuerySearchStrategy(final Collection<String> linkRoots, final Predicate<Resource> skipped) {
+        this.fallback = new TraversalSearchStrategy(skipped);
+        this.skipped = skipped;
+        this.linkCondition = linkRoots.stream()
+                .map(QuerySearchStrategy::getPhrase)
+                .filter(phrase -> !phrase.isEmpty())
+                .distinct()
+                .map(phrase -> "CONTAINS(node.*, '\"" + phrase + "\"')")
+                .collect(Collectors.joining(" OR ", "", " OR " + getNotNullCondition(TagConstants.PN_TAGS)));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachCandidate(final Resource root,
+                                 final Collection<String> propertyNames,
+                                 final Consumer<Resource> visitor) {
+        String rootPath = root.getPath();
+        if (!rootPath.startsWith(INDEXED_PATH + "/")) {
+            fallback.forEachCandidate(root, propertyNames, visitor);
+            return;
+        }
+        visitor.accept(root);
+        ResourceResolver resourceResolver = root.getResourceResolver();
+        String condition = propertyNames.stream()
+                .filter(name -> !TagConstants.PN_TAGS.equals(name))
+                .distinct()
+                .map(QuerySearchStrategy::getNotNullCondition)
+                .reduce(linkCondition, (result, propertyCondition) -> result + " OR " + propertyCondition);
+        String query = String.format(QUERY_TEMPLATE, rootPath.replace("'", "''"), condition);
+        try {
+            Iterator<Resource> candidates = resourceResolver.findResources(query, Query.JCR_SQL2);
+            while (candidates.hasNext()) {
+                Resource candidate = candidates.next();
+                if (!isSkipped(candidate, rootPath)) {
+                    visitor.accept(candidate);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOGGER.warn("Could not query references under {}, falling back to traversal", rootPath, e);
+            fallback.forEachCandidate(root, propertyNames, visitor);
+        }
+    }
+
+    /**
+     * Gets whether the candidate or any of its ancestors below the search root is skipped
+     *
+     * @param candidate {@code Resource} found by the query
+     * @param rootPath  Path of the search root
+     * @return True or false
+     */
+    private boolean isSkipped(final Resource candidate, final String rootPath) {
+        Resource current = candidate;
+        while (current != null && !current.getPath().equals(rootPath)) {
+            if (skipped.test(current)) {
+                return true;
+            }
+            current = current.getParent();
+        }
+        return false;
+    }
+
+    /**
+     * Gets the query condition matching the nodes that have the given property set
+     *
+     * @param propertyName Name of the property
+     * @return String value
+     */
+    private static String getNotNullCondition(final String propertyName) {
+        return "node.[" + propertyName.replace("]", "]]") + "] IS NOT NULL";
+    }
+
+    /**
+     * Converts a path root to the phrase of words the fulltext index splits it into, e.g. {@code /content/dam/} to
+     * {@code content dam}
+     *
+     * @param linkRoot Path root
+     * @return String value, or an empty string if the root contains no words
+     */
+    private static String getPhrase(final String linkRoot) {
+        List<String> words = Arrays.stream(linkRoot.split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .map(String::toLowerCase)
+                .collect(Collectors.toList());
+        return String.join(" ", words);
+    }
+}
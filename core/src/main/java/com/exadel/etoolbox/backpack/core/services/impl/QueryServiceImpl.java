@@ -5,34 +5,210 @@ import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
 import com.exadel.etoolbox.backpack.core.services.QueryService;
 import com.exadel.etoolbox.backpack.core.services.pckg.impl.BasePackageServiceImpl;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.jcr.NodeIterator;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import javax.jcr.query.InvalidQueryException;
 import javax.jcr.query.Query;
 import javax.jcr.query.QueryManager;
+import javax.jcr.query.QueryResult;
+import javax.jcr.query.RowIterator;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Implements {@link QueryService} to provide operations for getting Resources paths from SQL2 query
  */
 @Component(service = QueryService.class)
+@Designate(ocd = QueryServiceImpl.Configuration.class)
 public class QueryServiceImpl implements QueryService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(QueryServiceImpl.class);
 
+    private static final String EXPLAIN_PREFIX = "explain ";
+    private static final String PLAN_COLUMN = "plan";
+    private static final String TRAVERSAL_INDEX = "traverse";
+    // every selector of the plan is followed by a comment starting with the name of the index, e.g. /* lucene:cqPageLucene(...)
+    private static final Pattern INDEX_PATTERN = Pattern.compile("/\\*\\s+(\\S+)");
+
+    private long maxResults;
+    private boolean rejectTraversal;
+
+    /**
+     * Represents this OSGi service's configuration
+     */
+    @ObjectClassDefinition(name = "EToolbox BackPack Query Service configuration")
+    @interface Configuration {
+        @AttributeDefinition(
+                name = "Maximal results",
+                description = "Maximal number of paths a query may return. A package query returning more paths is rejected",
+                type = AttributeType.LONG
+        )
+        long maxResults() default 10000L;
+
+        @AttributeDefinition(
+                name = "Reject traversal queries",
+                description = "Do not run a package query that would traverse the repository instead of using an index, unless the traversal is confirmed by the user",
+                type = AttributeType.BOOLEAN
+        )
+        boolean rejectTraversal() default true;
+    }
+
+    /**
+     * Run upon this OSGi service activation or modification to read the configuration
+     *
+     * @param config {@link Configuration} instance representing this OSGi service's current configuration
+     */
+    @Activate
+    @Modified
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void activate(Configuration config) {
+        maxResults = Math.max(config.maxResults(), 1L);
+        rejectTraversal = config.rejectTraversal();
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public List<String> getResourcesPathsFromQuery(ResourceResolver resourceResolver, String queryString, PackageInfo packageInfo) {
+        return getResourcesPathsFromQuery(resourceResolver, queryString, packageInfo, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getResourcesPathsFromQuery(ResourceResolver resourceResolver,
+                                                   String queryString,
+                                                   PackageInfo packageInfo,
+                                                   boolean allowTraversal) {
+        if (!checkPlan(resourceResolver, queryString, packageInfo, allowTraversal)) {
+            return Collections.emptyList();
+        }
+        // one path more than allowed is requested to tell whether the query exceeds the maximum
+        List<String> paths = getPaths(resourceResolver, queryString, packageInfo, maxResults + 1, 0);
+        if (paths.size() > maxResults) {
+            packageInfo.setPackageStatus(PackageStatus.ERROR);
+            packageInfo.addLogMessage("ERROR: Query returned more than " + maxResults + " results");
+            LOGGER.warn("Query {} returned more than {} results", queryString, maxResults);
+            return Collections.emptyList();
+        }
+        return paths;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getResourcesPathsFromQuery(ResourceResolver resourceResolver,
+                                                   String queryString,
+                                                   PackageInfo packageInfo,
+                                                   long limit,
+                                                   long offset,
+                                                   boolean allowTraversal) {
+        if (!checkPlan(resourceResolver, queryString, packageInfo, allowTraversal)) {
+            return Collections.emptyList();
+        }
+        return getPaths(resourceResolver, queryString, packageInfo, limit > 0 ? Math.min(limit, maxResults) : maxResults, offset);
+    }
+
+    /**
+     * Called by the {@code getResourcesPathsFromQuery} methods to inspect the plan of the query before it is executed.
+     * The chosen indexes and the plan are added to the package log. Should the query traverse the repository, it is
+     * rejected unless the traversal is allowed. If the plan cannot be obtained, e.g. the repository does not support
+     * {@code EXPLAIN}, the query is let through
+     *
+     * @param resourceResolver {@code ResourceResolver} instance used to build the package
+     * @param queryString {@code String} SQL2 query
+     * @param packageInfo {@code PackageInfo} the plan and the errors are reported to
+     * @param allowTraversal True to let a traversing query through
+     * @return True if the query may be executed; otherwise, false
+     */
+    private boolean checkPlan(ResourceResolver resourceResolver, String queryString, PackageInfo packageInfo, boolean allowTraversal) {
+        String plan = getPlan(resourceResolver, queryString);
+        if (plan == null) {
+            return true;
+        }
+        List<String> indexes = getIndexes(plan);
+        packageInfo.addLogMessage("Query index: " + String.join(", ", indexes));
+        packageInfo.addLogMessage("Query plan: " + plan);
+        if (rejectTraversal && !allowTraversal && indexes.contains(TRAVERSAL_INDEX)) {
+            packageInfo.setPackageStatus(PackageStatus.ERROR);
+            packageInfo.addLogMessage("ERROR: Query would traverse the repository. Use a query backed by an index, or confirm the traversal");
+            LOGGER.warn("Query {} is rejected as it would traverse the repository: {}", queryString, plan);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Called by {@link QueryServiceImpl#checkPlan(ResourceResolver, String, PackageInfo, boolean)} to get the plan
+     * of the query by running it with the {@code EXPLAIN} prefix
+     *
+     * @param resourceResolver {@code ResourceResolver} instance used to build the package
+     * @param queryString {@code String} SQL2 query
+     * @return String value, or null if the plan cannot be obtained
+     */
+    private String getPlan(ResourceResolver resourceResolver, String queryString) {
+        Query query = getQuery(resourceResolver, EXPLAIN_PREFIX + queryString);
+        if (query == null) {
+            return null;
+        }
+        try {
+            RowIterator rows = query.execute().getRows();
+            return rows.hasNext() ? rows.nextRow().getValue(PLAN_COLUMN).getString() : null;
+        } catch (RepositoryException | RuntimeException e) {
+            LOGGER.debug("Cannot get the plan of query {}", queryString, e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the names of the indexes used by the selectors of the query plan. The traversal is reported as the
+     * {@code traverse} index
+     *
+     * @param plan String value representing the query plan
+     * @return {@code List} of index names
+     */
+    static List<String> getIndexes(String plan) {
+        List<String> indexes = new ArrayList<>();
+        Matcher matcher = INDEX_PATTERN.matcher(plan);
+        while (matcher.find()) {
+            indexes.add(matcher.group(1));
+        }
+        return indexes;
+    }
+
+    /**
+     * Called by the {@code getResourcesPathsFromQuery} methods to execute the query and read the paths of the first
+     * selector from the result rows, so that no nodes are loaded
+     *
+     * @param resourceResolver {@code ResourceResolver} instance used to build the package
+     * @param queryString {@code String} SQL2 query
+     * @param packageInfo {@code PackageInfo} the errors are reported to
+     * @param limit Maximal number of paths to return
+     * @param offset Number of paths to skip
+     * @return {@code List} of Resources paths
+     */
+    private List<String> getPaths(ResourceResolver resourceResolver,
+                                  String queryString,
+                                  PackageInfo packageInfo,
+                                  long limit,
+                                  long offset) {
         Query query = getQuery(resourceResolver, queryString);
         if (query == null) {
             packageInfo.setPackageStatus(PackageStatus.ERROR);
@@ -42,9 +218,15 @@ public class QueryServiceImpl implements QueryService {
         }
         List<String> paths = new ArrayList<>();
         try {
-            NodeIterator nodes = query.execute().getNodes();
-            while (nodes.hasNext()) {
-                paths.add(nodes.nextNode().getPath());
+            query.setLimit(limit);
+            if (offset > 0) {
+                query.setOffset(offset);
+            }
+            QueryResult result = query.execute();
+            String selectorName = result.getSelectorNames()[0];
+            RowIterator rows = result.getRows();
+            while (rows.hasNext()) {
+                paths.add(rows.nextRow().getPath(selectorName));
             }
         } catch (RepositoryException e) {
             packageInfo.setPackageStatus(PackageStatus.ERROR);
@@ -55,7 +237,8 @@ public class QueryServiceImpl implements QueryService {
     }
 
     /**
-     * Called by {@link QueryService#getResourcesPathsFromQuery(ResourceResolver, String, PackageInfo)} to get the {@code Query} instance
+     * Called by {@link QueryServiceImpl#getPaths(ResourceResolver, String, PackageInfo, long, long)} and
+     * {@link QueryServiceImpl#getPlan(ResourceResolver, String)} to get the {@code Query} instance
      * from SQL2 query
      * @param resourceResolver {@code ResourceResolver} instance used to build the package
      * @param query {@code String} SQL2 query
@@ -0,0 +1,365 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import com.day.cq.commons.jcr.JcrConstants;
+import com.day.cq.dam.api.Asset;
+import com.day.cq.dam.commons.util.DamUtil;
+import com.day.cq.tagging.Tag;
+import com.day.cq.tagging.TagConstants;
+import com.day.cq.tagging.TagManager;
+import com.day.cq.wcm.api.Page;
+import com.day.cq.wcm.api.PageManager;
+import com.exadel.etoolbox.backpack.core.dto.repository.AssetReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.PageReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.TagReferencedItem;
+import com.exadel.etoolbox.backpack.core.services.PageReferenceSearchService;
+import com.exadel.etoolbox.backpack.core.services.ReferenceProvider;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Collects tags, pages and assets referenced by resources of a subtree in a single traversal. Each resource is visited
+ * once, and its property values are dispatched to the tag, page and asset extractors. The values accepted by the
+ * {@link ReferenceProvider}s are stored to be resolved by the providers after the traversal. The found tags, pages and
+ * assets can be reported to a consumer as soon as they are found
+ */
+class ReferenceCollector {
+
+    private static final String DAM_ROOT = "/content/dam";
+    private static final Pattern ASSET_PATH_PATTERN = Pattern.compile("([\"']|^)(" + Pattern.quote(DAM_ROOT) + "/[^\"']*?)([\"']|$)");
+    // stored for the tag IDs that do not resolve, since a concurrent map cannot hold nulls
+    private static final ReferencedItem UNRESOLVED_TAG = new TagReferencedItem(null);
+
+    private final ResourceResolver resourceResolver;
+    private final PageReferenceSearchService pageReferenceSearchService;
+    private final PageManager pageManager;
+    private final TagManager tagManager;
+    private final Collection<ReferenceProvider> providers;
+    private final Collection<String> providerPropertyNames;
+    private final Map<String, ReferencedItem> resolvedTags;
+
+    private final Set<ReferencedItem> tags = new LinkedHashSet<>();
+    private final Set<Page> pages = new LinkedHashSet<>();
+    private final Set<ReferencedItem> filteredPages = new LinkedHashSet<>();
+    private final Set<ReferencedItem> assets = new LinkedHashSet<>();
+    private final Map<String, Page> resolvedPages = new HashMap<>();
+    private final Map<ReferenceProvider, Set<Map.Entry<String, String>>> providerValues = new LinkedHashMap<>();
+
+    private Resource searchRoot;
+    private Consumer<ReferencedItem> consumer = item -> {};
+
+    /**
+     * Basic constructor
+     *
+     * @param resourceResolver           {@code ResourceResolver} used to access JCR resources
+     * @param pageReferenceSearchService {@link PageReferenceSearchService} instance used to extract page references
+     */
+    ReferenceCollector(final ResourceResolver resourceResolver, final PageReferenceSearchService pageReferenceSearchService) {
+        this(resourceResolver, pageReferenceSearchService, Collections.emptyList(), new HashMap<>());
+    }
+
+    /**
+     * Instance constructor
+     *
+     * @param resourceResolver           {@code ResourceResolver} used to access JCR resources
+     * @param pageReferenceSearchService {@link PageReferenceSearchService} instance used to extract page references
+     * @param providers                  Collection of {@link ReferenceProvider}s the property values are offered to
+     * @param resolvedTags               {@code Map} of the tag IDs already resolved to their items. Can be shared by
+     *                                   the collectors of a single request; must be thread-safe if they run in
+     *                                   parallel
+     */
+    ReferenceCollector(final ResourceResolver resourceResolver,
+                       final PageReferenceSearchService pageReferenceSearchService,
+                       final Collection<ReferenceProvider> providers,
+                       final Map<String, ReferencedItem> resolvedTags) {
+        this.resourceResolver = resourceResolver;
+        this.pageReferenceSearchService = pageReferenceSearchService;
+        this.pageManager = resourceResolver.adaptTo(PageManager.class);
+        this.tagManager = resourceResolver.adaptTo(TagManager.class);
+        this.providers = providers;
+        this.providerPropertyNames = providers.stream()
+                .flatMap(provider -> provider.getPropertyNames().stream())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        this.resolvedTags = resolvedTags;
+    }
+
+    /**
+     * Gets the references collected from the subtree under the given resource
+     *
+     * @param resource {@code Resource} the search starts from
+     * @return {@code Set} of {@link ReferencedItem}s: tags first, then pages, then assets
+     */
+    Set<ReferencedItem> getReferences(final Resource resource) {
+        return getReferences(resource, item -> {});
+    }
+
+    /**
+     * Gets the references collected from the subtree under the given resource. Every newly found reference is passed
+     * to the consumer as soon as it is found, during the traversal
+     *
+     * @param resource {@code Resource} the search starts from
+     * @param consumer {@code Consumer} accepting every found item once
+     * @return {@code Set} of {@link ReferencedItem}s: tags first, then pages, then assets
+     */
+    Set<ReferencedItem> getReferences(final Resource resource, final Consumer<ReferencedItem> consumer) {
+        this.searchRoot = resource;
+        this.consumer = consumer;
+        collect(resource);
+        Set<ReferencedItem> references = new LinkedHashSet<>(tags);
+        references.addAll(filteredPages);
+        references.addAll(assets);
+        return references;
+    }
+
+    /**
+     * Collects only the property values accepted by the {@link ReferenceProvider}s from the subtree under the given
+     * resource, without looking for tags, pages and assets. Used when the latter are known from the reference index.
+     * The collected values are retrieved with {@link ReferenceCollector#getProviderValues()}
+     *
+     * @param resource {@code Resource} the search starts from
+     */
+    void collectProviderValues(final Resource resource) {
+        if (providers.isEmpty()) {
+            return;
+        }
+        pageReferenceSearchService.forEachCandidate(resource, providerPropertyNames, candidate -> {
+            for (Map.Entry<String, Object> property : candidate.getValueMap().entrySet()) {
+                if (pageReferenceSearchService.isSearched(property.getKey())) {
+                    forEachString(property.getValue(), value -> offerToProviders(property.getKey(), value));
+                }
+            }
+        });
+    }
+
+    /**
+     * Collects the references of the given resource itself, that is, its own properties and its content node
+     * subtree, without descending into child pages, assets or folders. The collected references are retrieved
+     * with {@link ReferenceCollector#getTags()}, {@link ReferenceCollector#getPages()}, and
+     * {@link ReferenceCollector#getAssets()}
+     *
+     * @param resource {@code Resource} representing a hierarchy node
+     */
+    void collectOwn(final Resource resource) {
+        collectProperties(resource);
+        Resource contentResource = resource.getChild(JcrConstants.JCR_CONTENT);
+        if (contentResource != null && !pageReferenceSearchService.isSkipped(contentResource)) {
+            collect(contentResource);
+        }
+    }
+
+    /**
+     * Gets the collected tag references
+     *
+     * @return {@code Set} of {@link ReferencedItem}s
+     */
+    Set<ReferencedItem> getTags() {
+        return tags;
+    }
+
+    /**
+     * Gets the collected page references, not filtered by templates
+     *
+     * @return {@code Set} of {@code Page}s
+     */
+    Set<Page> getPages() {
+        return pages;
+    }
+
+    /**
+     * Gets the collected asset references
+     *
+     * @return {@code Set} of {@link ReferencedItem}s
+     */
+    Set<ReferencedItem> getAssets() {
+        return assets;
+    }
+
+    /**
+     * Gets the property values accepted by the {@link ReferenceProvider}s, without duplicates
+     *
+     * @return {@code Map} of providers to the pairs of property names and values they accepted
+     */
+    Map<ReferenceProvider, Set<Map.Entry<String, String>>> getProviderValues() {
+        return providerValues;
+    }
+
+    /**
+     * Called from {@link ReferenceCollector#getReferences(Resource)} to visit the given resource and those of its
+     * descendants the configured search strategy yields
+     *
+     * @param resource Current {@code Resource}
+     */
+    private void collect(final Resource resource) {
+        pageReferenceSearchService.forEachCandidate(resource, providerPropertyNames, this::collectProperties);
+    }
+
+    /**
+     * Dispatches the string property values of the given resource to the extractors. Properties excluded by the
+     * configuration of {@link PageReferenceSearchService} are not read, except for the tags
+     *
+     * @param resource Current {@code Resource}
+     */
+    private void collectProperties(final Resource resource) {
+        for (Map.Entry<String, Object> property : resource.getValueMap().entrySet()) {
+            if (!TagConstants.PN_TAGS.equals(property.getKey()) && !pageReferenceSearchService.isSearched(property.getKey())) {
+                continue;
+            }
+            forEachString(property.getValue(), value -> dispatch(property.getKey(), value));
+        }
+    }
+
+    /**
+     * Passes the given property value to the consumer if it is a string, or every item of it if it is a string array
+     *
+     * @param value    Property value
+     * @param consumer {@code Consumer} accepting string values
+     */
+    private static void forEachString(final Object value, final Consumer<String> consumer) {
+        if (value instanceof String) {
+            consumer.accept((String) value);
+        } else if (value instanceof String[]) {
+            for (String stringValue : (String[]) value) {
+                consumer.accept(stringValue);
+            }
+        }
+    }
+
+    /**
+     * Passes a single property value to the tag, page and asset extractors and to the {@link ReferenceProvider}s
+     *
+     * @param name  Name of the property
+     * @param value String value of the property
+     */
+    private void dispatch(final String name, final String value) {
+        if (TagConstants.PN_TAGS.equals(name)) {
+            addTag(value);
+        }
+        if (pageManager != null) {
+            addPages(value);
+        }
+        if (value.contains(DAM_ROOT)) {
+            addAssets(value);
+        }
+        offerToProviders(name, value);
+    }
+
+    /**
+     * Stores a single property value for every {@link ReferenceProvider} that accepts it
+     *
+     * @param name  Name of the property
+     * @param value String value of the property
+     */
+    private void offerToProviders(final String name, final String value) {
+        for (ReferenceProvider provider : providers) {
+            if (provider.accepts(name, value)) {
+                providerValues.computeIfAbsent(provider, key -> new LinkedHashSet<>())
+                        .add(new AbstractMap.SimpleImmutableEntry<>(name, value));
+            }
+        }
+    }
+
+    /**
+     * Adds the tag with the given ID to the collected references
+     *
+     * @param tagId String value representing a tag ID
+     */
+    private void addTag(final String tagId) {
+        ReferencedItem item = resolvedTags.get(tagId);
+        if (item == null) {
+            Tag tag = tagManager != null ? tagManager.resolve(tagId) : null;
+            item = tag != null ? new TagReferencedItem(tag.getPath()) : UNRESOLVED_TAG;
+            resolvedTags.put(tagId, item);
+        }
+        if (item != UNRESOLVED_TAG && tags.add(item)) {
+            consumer.accept(item);
+        }
+    }
+
+    /**
+     * Adds the pages mentioned in the given property value to the collected references. When the search root is known,
+     * the newly found pages are filtered and reported right away
+     *
+     * @param value String value of a property
+     */
+    private void addPages(final String value) {
+        Set<Page> foundPages = new LinkedHashSet<>();
+        pageReferenceSearchService.addPageReferences(value, foundPages, pageManager, resourceResolver, resolvedPages);
+        for (Page page : foundPages) {
+            if (!pages.add(page) || searchRoot == null) {
+                continue;
+            }
+            for (Page filteredPage : pageReferenceSearchService.filterPages(Collections.singleton(page), searchRoot)) {
+                ReferencedItem item = new PageReferencedItem(filteredPage.getContentResource().getPath());
+                if (filteredPages.add(item)) {
+                    consumer.accept(item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the assets mentioned in the given property value to the collected references
+     *
+     * @param value String value of a property
+     */
+    private void addAssets(final String value) {
+        Matcher matcher = ASSET_PATH_PATTERN.matcher(value);
+        while (matcher.find()) {
+            Resource resource = getResource(matcher.group(2));
+            Asset asset = resource != null ? DamUtil.resolveToAsset(resource) : null;
+            if (asset != null) {
+                ReferencedItem item = new AssetReferencedItem(asset.getPath(), asset.getMimeType());
+                if (assets.add(item)) {
+                    consumer.accept(item);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the resource under the given path, decoding the path if it is URL-encoded
+     *
+     * @param path JCR path, possibly URL-encoded
+     * @return {@code Resource} object, or null if not found
+     */
+    private Resource getResource(final String path) {
+        Resource resource = resourceResolver.getResource(path);
+        if (resource != null || path.indexOf('%') < 0) {
+            return resource;
+        }
+        try {
+            return resourceResolver.getResource(URLDecoder.decode(path, StandardCharsets.UTF_8.name()));
+        } catch (UnsupportedEncodingException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
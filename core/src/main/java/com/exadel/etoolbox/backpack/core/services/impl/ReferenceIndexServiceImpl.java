@@ -0,0 +1,613 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import com.day.cq.commons.jcr.JcrConstants;
+import com.day.cq.dam.api.Asset;
+import com.day.cq.dam.commons.util.DamUtil;
+import com.day.cq.wcm.api.Page;
+import com.day.cq.wcm.api.PageManager;
+import com.exadel.etoolbox.backpack.core.dto.repository.AssetReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.PageReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.TagReferencedItem;
+import com.exadel.etoolbox.backpack.core.services.PageReferenceSearchService;
+import com.exadel.etoolbox.backpack.core.services.ReferenceIndexService;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+/**
+ * Implements {@link ReferenceIndexService} to keep the references of content under the configured roots in the JCR
+ * storage under <i>/var/etoolbox-backpack/references</i>. The forward index mirrors the content hierarchy and stores
+ * the tags, pages and assets referenced by each hierarchy node and its content node. The reverse index mirrors the
+ * referenced items and stores the paths of the nodes referencing them. The index is built anew upon every activation,
+ * since the content may have changed while the index was not maintained, and then updated incrementally upon resource
+ * changes. The index is not used unless all the indexed paths can be read by the service user
+ */
+@Component(
+        service = {ReferenceIndexService.class, ResourceChangeListener.class},
+        property = {
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        }
+)
+@Designate(ocd = ReferenceIndexServiceImpl.Configuration.class)
+public class ReferenceIndexServiceImpl implements ReferenceIndexService, ResourceChangeListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceIndexServiceImpl.class);
+
+    static final String INDEX_ROOT = "/var/etoolbox-backpack/references";
+    private static final String FORWARD_ROOT = INDEX_ROOT + "/forward";
+    private static final String REVERSE_ROOT = INDEX_ROOT + "/reverse";
+    private static final String SUBSERVICE_NAME = "backpack-service";
+    private static final String PN_TAGS = "referencedTags";
+    private static final String PN_PAGES = "referencedPages";
+    private static final String PN_ASSETS = "referencedAssets";
+    private static final String PN_REFERRERS = "referrers";
+    private static final String PN_ROOTS = "indexedRoots";
+    private static final String PN_COMPLETE = "complete";
+    private static final String CONTENT_NODE_SEGMENT = "/" + JcrConstants.JCR_CONTENT;
+    private static final int COMMIT_BATCH_SIZE = 500;
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    private ResourceResolverFactory resourceResolverFactory;
+
+    @Reference
+    private PageReferenceSearchService pageReferenceSearchService;
+
+    private boolean enabled;
+    private List<String> roots;
+    private ExecutorService executor;
+    private volatile boolean ready;
+
+    /**
+     * Represents this OSGi service's configuration
+     */
+    @ObjectClassDefinition(name = "EToolbox BackPack Reference Index configuration")
+    @interface Configuration {
+        @AttributeDefinition(
+                name = "Enabled",
+                description = "Maintain the index of references and use it instead of searching for tags, pages and assets in content. The values read by reference providers are still gathered from content. The backpack-service user must be able to read the indexed paths; otherwise the index is not used",
+                type = AttributeType.BOOLEAN
+        )
+        boolean enabled() default false;
+
+        @AttributeDefinition(
+                name = "Indexed paths",
+                description = "Roots of the content whose references are indexed",
+                type = AttributeType.STRING
+        )
+        String[] resource_paths() default {"/content"};
+    }
+
+    /**
+     * Run upon this OSGi service activation or modification to start building the index in the background
+     *
+     * @param config {@link Configuration} instance representing this OSGi service's current configuration
+     */
+    @Activate
+    @Modified
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void activate(Configuration config) {
+        deactivate();
+        enabled = config.enabled();
+        roots = Arrays.asList(config.resource_paths());
+        ready = false;
+        if (enabled) {
+            executor = Executors.newSingleThreadExecutor();
+            executor.submit(this::buildIndex);
+        }
+    }
+
+    /**
+     * Run upon this OSGi service deactivation to stop the index maintenance. The stored index is marked incomplete
+     * since it is not updated upon the changes made from now on
+     */
+    @Deactivate
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void deactivate() {
+        if (executor == null) {
+            return;
+        }
+        executor.shutdownNow();
+        executor = null;
+        ready = false;
+        try (ResourceResolver resourceResolver = getServiceResourceResolver()) {
+            Resource indexRoot = resourceResolver.getResource(INDEX_ROOT);
+            ModifiableValueMap indexProperties = indexRoot != null ? indexRoot.adaptTo(ModifiableValueMap.class) : null;
+            if (indexProperties != null) {
+                indexProperties.put(PN_COMPLETE, false);
+                resourceResolver.commit();
+            }
+        } catch (LoginException | PersistenceException e) {
+            LOGGER.warn("Could not mark the reference index incomplete", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<ReferencedItem> getReferences(final ResourceResolver resourceResolver, final String searchPath) {
+        if (!isReady() || !isIndexed(searchPath)) {
+            return null;
+        }
+        String ownerPath = ResourceSizeServiceImpl.getHierarchyPath(searchPath);
+        boolean ownEntryOnly = !ownerPath.equals(searchPath);
+        if (ownEntryOnly && !searchPath.equals(ownerPath + CONTENT_NODE_SEGMENT)) {
+            return null;
+        }
+        Resource searchResource = resourceResolver.getResource(searchPath);
+        if (searchResource == null) {
+            return new LinkedHashSet<>();
+        }
+
+        Set<String> tagPaths = new LinkedHashSet<>();
+        Set<String> pagePaths = new LinkedHashSet<>();
+        Set<String> assetPaths = new LinkedHashSet<>();
+        try (ResourceResolver serviceResolver = getServiceResourceResolver()) {
+            Resource entry = serviceResolver.getResource(FORWARD_ROOT + ownerPath);
+            if (entry != null) {
+                readEntries(resourceResolver, entry, !ownEntryOnly, tagPaths, pagePaths, assetPaths);
+            }
+        } catch (LoginException e) {
+            LOGGER.error("Could not read the reference index", e);
+            return null;
+        }
+
+        Set<ReferencedItem> references = new LinkedHashSet<>();
+        tagPaths.stream()
+                .filter(path -> resourceResolver.getResource(path) != null)
+                .forEach(path -> references.add(new TagReferencedItem(path)));
+        PageManager pageManager = resourceResolver.adaptTo(PageManager.class);
+        if (pageManager != null) {
+            Set<Page> pages = pagePaths.stream()
+                    .map(pageManager::getPage)
+                    .filter(page -> page != null)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+            pageReferenceSearchService.filterPages(pages, searchResource)
+                    .forEach(page -> references.add(new PageReferencedItem(page.getContentResource().getPath())));
+        }
+        for (String assetPath : assetPaths) {
+            Resource assetResource = resourceResolver.getResource(assetPath);
+            Asset asset = assetResource != null ? DamUtil.resolveToAsset(assetResource) : null;
+            if (asset != null) {
+                references.add(new AssetReferencedItem(asset.getPath(), asset.getMimeType()));
+            }
+        }
+        return references;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<String> getReferrers(final ResourceResolver resourceResolver, final String referencedPath) {
+        if (!isReady()) {
+            return Collections.emptySet();
+        }
+        try (ResourceResolver serviceResolver = getServiceResourceResolver()) {
+            Resource entry = serviceResolver.getResource(REVERSE_ROOT + referencedPath);
+            if (entry == null) {
+                return Collections.emptySet();
+            }
+            return Arrays.stream(entry.getValueMap().get(PN_REFERRERS, new String[0]))
+                    .filter(path -> resourceResolver.getResource(path) != null)
+                    .collect(Collectors.toCollection(LinkedHashSet::new));
+        } catch (LoginException e) {
+            LOGGER.error("Could not read the reference index", e);
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * Passes the changes under the indexed paths to the background thread that updates the index
+     *
+     * @param changes {@code List} of {@code ResourceChange} objects
+     */
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        ExecutorService currentExecutor = executor;
+        if (!enabled || currentExecutor == null) {
+            return;
+        }
+        Set<String> removedPaths = new LinkedHashSet<>();
+        Set<String> changedOwners = new LinkedHashSet<>();
+        for (ResourceChange change : changes) {
+            String path = change.getPath();
+            if (!isIndexed(path)) {
+                continue;
+            }
+            String ownerPath = ResourceSizeServiceImpl.getHierarchyPath(path);
+            if (ResourceChange.ChangeType.REMOVED.equals(change.getType()) && ownerPath.equals(path)) {
+                removedPaths.add(path);
+            } else {
+                changedOwners.add(ownerPath);
+            }
+        }
+        if (!removedPaths.isEmpty() || !changedOwners.isEmpty()) {
+            currentExecutor.submit(() -> updateIndex(removedPaths, changedOwners));
+        }
+    }
+
+    /**
+     * Called from {@link ReferenceIndexServiceImpl#activate(Configuration)} to build the index of all the indexed
+     * paths. If any of the paths cannot be read by the service user, the index is not built, so that an empty index
+     * is never taken for a complete one
+     */
+    private void buildIndex() {
+        try (ResourceResolver resourceResolver = getServiceResourceResolver()) {
+            List<Resource> rootResources = new ArrayList<>();
+            for (String root : roots) {
+                Resource rootResource = resourceResolver.getResource(root);
+                if (rootResource == null) {
+                    LOGGER.warn("Indexed path {} does not exist or cannot be read by the service user. The reference index is not used", root);
+                    return;
+                }
+                rootResources.add(rootResource);
+            }
+            long start = System.currentTimeMillis();
+            deleteIfExists(resourceResolver, FORWARD_ROOT);
+            deleteIfExists(resourceResolver, REVERSE_ROOT);
+            ModifiableValueMap indexProperties = getOrCreateResource(resourceResolver, INDEX_ROOT).adaptTo(ModifiableValueMap.class);
+            if (indexProperties == null) {
+                return;
+            }
+            indexProperties.put(PN_COMPLETE, false);
+            indexProperties.put(PN_ROOTS, roots.toArray(new String[0]));
+            resourceResolver.commit();
+
+            int[] counter = new int[1];
+            for (Resource rootResource : rootResources) {
+                indexSubtree(resourceResolver, rootResource, counter);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                // the building was aborted halfway, so the index must not be marked complete
+                return;
+            }
+            indexProperties.put(PN_COMPLETE, true);
+            resourceResolver.commit();
+            ready = true;
+            LOGGER.info("Reference index of {} nodes built in {} ms", counter[0], System.currentTimeMillis() - start);
+        } catch (LoginException | PersistenceException e) {
+            LOGGER.error("Could not build the reference index", e);
+        }
+    }
+
+    /**
+     * Called from {@link ReferenceIndexServiceImpl#buildIndex()} to recursively index the hierarchy nodes of a subtree
+     *
+     * @param resourceResolver {@code ResourceResolver} used to read content and write the index
+     * @param resource         {@code Resource} the subtree starts from
+     * @param counter          Array of one element counting the indexed nodes
+     * @throws PersistenceException in case the index could not be saved
+     */
+    private void indexSubtree(final ResourceResolver resourceResolver, final Resource resource, final int[] counter)
+            throws PersistenceException {
+        if (Thread.currentThread().isInterrupted()
+                || JcrConstants.JCR_CONTENT.equals(resource.getName())
+                || pageReferenceSearchService.isSkipped(resource)) {
+            return;
+        }
+        indexOwner(resourceResolver, resource.getPath());
+        if (++counter[0] % COMMIT_BATCH_SIZE == 0) {
+            resourceResolver.commit();
+        }
+        for (Resource child : resource.getChildren()) {
+            indexSubtree(resourceResolver, child, counter);
+        }
+    }
+
+    /**
+     * Called from {@link ReferenceIndexServiceImpl#onChange(List)} in the background thread to update the index
+     * entries of the removed and changed content
+     *
+     * @param removedPaths  {@code Collection} of paths of the removed hierarchy nodes
+     * @param changedOwners {@code Collection} of paths of the hierarchy nodes whose content has changed
+     */
+    private void updateIndex(final Collection<String> removedPaths, final Collection<String> changedOwners) {
+        try (ResourceResolver resourceResolver = getServiceResourceResolver()) {
+            for (String path : removedPaths) {
+                removeEntries(resourceResolver, path);
+            }
+            for (String ownerPath : changedOwners) {
+                indexOwner(resourceResolver, ownerPath);
+            }
+            resourceResolver.commit();
+        } catch (LoginException | PersistenceException e) {
+            LOGGER.error("Could not update the reference index", e);
+        }
+    }
+
+    /**
+     * Extracts the references of a single hierarchy node and stores them in the forward index. The reverse index is
+     * updated with the difference between the previously stored and the current references
+     *
+     * @param resourceResolver {@code ResourceResolver} used to read content and write the index
+     * @param ownerPath        Path of the hierarchy node
+     * @throws PersistenceException in case the index could not be updated
+     */
+    private void indexOwner(final ResourceResolver resourceResolver, final String ownerPath) throws PersistenceException {
+        Resource owner = resourceResolver.getResource(ownerPath);
+        if (owner == null) {
+            removeEntries(resourceResolver, ownerPath);
+            return;
+        }
+        ReferenceCollector collector = new ReferenceCollector(resourceResolver, pageReferenceSearchService);
+        collector.collectOwn(owner);
+        String[] tags = collector.getTags().stream().map(ReferencedItem::getPath).toArray(String[]::new);
+        String[] pages = collector.getPages().stream().map(Page::getPath).filter(path -> !path.equals(ownerPath)).toArray(String[]::new);
+        String[] assets = collector.getAssets().stream().map(ReferencedItem::getPath).toArray(String[]::new);
+
+        Resource entry = resourceResolver.getResource(FORWARD_ROOT + ownerPath);
+        Set<String> oldReferences = entry != null ? getReferencedPaths(entry.getValueMap()) : Collections.emptySet();
+        if (entry == null && tags.length + pages.length + assets.length == 0) {
+            return;
+        }
+        ModifiableValueMap properties = (entry != null ? entry : getOrCreateResource(resourceResolver, FORWARD_ROOT + ownerPath))
+                .adaptTo(ModifiableValueMap.class);
+        if (properties == null) {
+            return;
+        }
+        putOrRemove(properties, PN_TAGS, tags);
+        putOrRemove(properties, PN_PAGES, pages);
+        putOrRemove(properties, PN_ASSETS, assets);
+
+        Set<String> newReferences = getReferencedPaths(properties);
+        for (String referencedPath : oldReferences) {
+            if (!newReferences.contains(referencedPath)) {
+                removeReferrer(resourceResolver, referencedPath, ownerPath);
+            }
+        }
+        for (String referencedPath : newReferences) {
+            if (!oldReferences.contains(referencedPath)) {
+                addReferrer(resourceResolver, referencedPath, ownerPath);
+            }
+        }
+    }
+
+    /**
+     * Removes the forward index entries of the given hierarchy node and its descendants together with the
+     * corresponding reverse index records
+     *
+     * @param resourceResolver {@code ResourceResolver} used to write the index
+     * @param path             Path of the removed hierarchy node
+     * @throws PersistenceException in case the index could not be updated
+     */
+    private void removeEntries(final ResourceResolver resourceResolver, final String path) throws PersistenceException {
+        Resource entry = resourceResolver.getResource(FORWARD_ROOT + path);
+        if (entry == null) {
+            return;
+        }
+        removeReferrers(resourceResolver, entry);
+        resourceResolver.delete(entry);
+    }
+
+    /**
+     * Called from {@link ReferenceIndexServiceImpl#removeEntries(ResourceResolver, String)} to recursively remove
+     * the reverse index records produced by a subtree of the forward index
+     *
+     * @param resourceResolver {@code ResourceResolver} used to write the index
+     * @param entry            {@code Resource} representing a forward index entry
+     * @throws PersistenceException in case the index could not be updated
+     */
+    private void removeReferrers(final ResourceResolver resourceResolver, final Resource entry) throws PersistenceException {
+        String ownerPath = entry.getPath().substring(FORWARD_ROOT.length());
+        for (String referencedPath : getReferencedPaths(entry.getValueMap())) {
+            removeReferrer(resourceResolver, referencedPath, ownerPath);
+        }
+        for (Resource child : entry.getChildren()) {
+            removeReferrers(resourceResolver, child);
+        }
+    }
+
+    /**
+     * Adds a referrer to the reverse index record of the referenced item
+     *
+     * @param resourceResolver {@code ResourceResolver} used to write the index
+     * @param referencedPath   Path of the referenced item
+     * @param ownerPath        Path of the referencing hierarchy node
+     * @throws PersistenceException in case the index could not be updated
+     */
+    private void addReferrer(final ResourceResolver resourceResolver, final String referencedPath, final String ownerPath)
+            throws PersistenceException {
+        ModifiableValueMap properties = getOrCreateResource(resourceResolver, REVERSE_ROOT + referencedPath)
+                .adaptTo(ModifiableValueMap.class);
+        if (properties == null) {
+            return;
+        }
+        Set<String> referrers = new LinkedHashSet<>(Arrays.asList(properties.get(PN_REFERRERS, new String[0])));
+        if (referrers.add(ownerPath)) {
+            properties.put(PN_REFERRERS, referrers.toArray(new String[0]));
+        }
+    }
+
+    /**
+     * Removes a referrer from the reverse index record of the referenced item. The record is deleted when it has no
+     * more referrers
+     *
+     * @param resourceResolver {@code ResourceResolver} used to write the index
+     * @param referencedPath   Path of the referenced item
+     * @param ownerPath        Path of the referencing hierarchy node
+     * @throws PersistenceException in case the index could not be updated
+     */
+    private void removeReferrer(final ResourceResolver resourceResolver, final String referencedPath, final String ownerPath)
+            throws PersistenceException {
+        Resource entry = resourceResolver.getResource(REVERSE_ROOT + referencedPath);
+        ModifiableValueMap properties = entry != null ? entry.adaptTo(ModifiableValueMap.class) : null;
+        if (properties == null) {
+            return;
+        }
+        Set<String> referrers = new LinkedHashSet<>(Arrays.asList(properties.get(PN_REFERRERS, new String[0])));
+        referrers.remove(ownerPath);
+        if (!referrers.isEmpty()) {
+            properties.put(PN_REFERRERS, referrers.toArray(new String[0]));
+        } else if (!entry.hasChildren()) {
+            resourceResolver.delete(entry);
+        } else {
+            properties.remove(PN_REFERRERS);
+        }
+    }
+
+    /**
+     * Called from {@link ReferenceIndexServiceImpl#getReferences(ResourceResolver, String)} to read the referenced
+     * paths stored in a forward index entry and, optionally, in its descendants. The entries are read with the service
+     * user, so an entry is only taken into account if the requesting user can read its owner. The descendants of
+     * an owner the user cannot read are skipped as well, since a traversal within the user's session would not
+     * reach them
+     *
+     * @param resourceResolver {@code ResourceResolver} of the requesting user
+     * @param entry            {@code Resource} representing a forward index entry
+     * @param recursive        True to read the descendant entries as well
+     * @param tagPaths         {@code Set} accumulating the paths of tags
+     * @param pagePaths        {@code Set} accumulating the paths of pages
+     * @param assetPaths       {@code Set} accumulating the paths of assets
+     */
+    private static void readEntries(final ResourceResolver resourceResolver,
+                                    final Resource entry,
+                                    final boolean recursive,
+                                    final Set<String> tagPaths,
+                                    final Set<String> pagePaths,
+                                    final Set<String> assetPaths) {
+        if (resourceResolver.getResource(entry.getPath().substring(FORWARD_ROOT.length())) == null) {
+            return;
+        }
+        ValueMap properties = entry.getValueMap();
+        tagPaths.addAll(Arrays.asList(properties.get(PN_TAGS, new String[0])));
+        pagePaths.addAll(Arrays.asList(properties.get(PN_PAGES, new String[0])));
+        assetPaths.addAll(Arrays.asList(properties.get(PN_ASSETS, new String[0])));
+        if (recursive) {
+            for (Resource child : entry.getChildren()) {
+                readEntries(resourceResolver, child, true, tagPaths, pagePaths, assetPaths);
+            }
+        }
+    }
+
+    /**
+     * Gets all the referenced paths stored in a forward index entry
+     *
+     * @param properties {@code ValueMap} of a forward index entry
+     * @return {@code Set} of paths
+     */
+    private static Set<String> getReferencedPaths(final ValueMap properties) {
+        Set<String> result = new LinkedHashSet<>();
+        result.addAll(Arrays.asList(properties.get(PN_TAGS, new String[0])));
+        result.addAll(Arrays.asList(properties.get(PN_PAGES, new String[0])));
+        result.addAll(Arrays.asList(properties.get(PN_ASSETS, new String[0])));
+        return result;
+    }
+
+    /**
+     * Stores a multi-value property, or removes it if there are no values
+     *
+     * @param properties {@code ModifiableValueMap} to modify
+     * @param name       Name of the property
+     * @param values     Array of values
+     */
+    private static void putOrRemove(final ModifiableValueMap properties, final String name, final String[] values) {
+        if (values.length > 0) {
+            properties.put(name, values);
+        } else {
+            properties.remove(name);
+        }
+    }
+
+    /**
+     * Gets whether the given path lies under one of the indexed roots
+     *
+     * @param path JCR path
+     * @return True or false
+     */
+    private boolean isIndexed(final String path) {
+        return roots.stream().anyMatch(root -> path.equals(root) || path.startsWith(root + "/"));
+    }
+
+    /**
+     * Gets the resource under the given path, creating it together with the missing ancestors
+     *
+     * @param resourceResolver {@code ResourceResolver} used to write the index
+     * @param path             JCR path
+     * @return {@code Resource} object
+     * @throws PersistenceException in case the resource could not be created
+     */
+    private static Resource getOrCreateResource(final ResourceResolver resourceResolver, final String path)
+            throws PersistenceException {
+        return ResourceUtil.getOrCreateResource(resourceResolver, path, Collections.emptyMap(), null, false);
+    }
+
+    /**
+     * Deletes the resource under the given path if it exists
+     *
+     * @param resourceResolver {@code ResourceResolver} used to write the index
+     * @param path             JCR path
+     * @throws PersistenceException in case the resource could not be deleted
+     */
+    private static void deleteIfExists(final ResourceResolver resourceResolver, final String path) throws PersistenceException {
+        Resource resource = resourceResolver.getResource(path);
+        if (resource != null) {
+            resourceResolver.delete(resource);
+        }
+    }
+
+    /**
+     * Gets a {@code ResourceResolver} authorized as the BackPack service user
+     *
+     * @return {@code ResourceResolver} instance
+     * @throws LoginException in case the service user cannot be logged in
+     */
+    private ResourceResolver getServiceResourceResolver() throws LoginException {
+        return resourceResolverFactory.getServiceResourceResolver(
+                Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, SUBSERVICE_NAME));
+    }
+}
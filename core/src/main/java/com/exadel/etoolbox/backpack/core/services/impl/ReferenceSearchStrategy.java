@@ -0,0 +1,36 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import org.apache.sling.api.resource.Resource;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Represents a way of finding the resources whose properties are inspected for references. Implementations are
+ * selected by the configuration of {@link PageReferenceSearchServiceImpl}
+ */
+interface ReferenceSearchStrategy {
+
+    /**
+     * Passes the given resource and those of its descendants that may contain references to the visitor
+     *
+     * @param root          {@code Resource} the search starts from
+     * @param propertyNames Names of the properties which make a resource a candidate whenever they are set, whatever
+     *                      their values, such as the properties read by reference providers
+     * @param visitor       {@code Consumer} inspecting the properties of a resource
+     */
+    void forEachCandidate(Resource root, Collection<String> propertyNames, Consumer<Resource> visitor);
+}
@@ -14,102 +14,341 @@
 
 package com.exadel.etoolbox.backpack.core.services.impl;
 
-import com.day.cq.dam.api.Asset;
-import com.day.cq.dam.commons.util.AssetReferenceSearch;
-import com.day.cq.tagging.Tag;
-import com.day.cq.tagging.TagManager;
-import com.exadel.etoolbox.backpack.core.dto.repository.AssetReferencedItem;
-import com.exadel.etoolbox.backpack.core.dto.repository.PageReferencedItem;
+import com.day.cq.commons.jcr.JcrConstants;
 import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
 import com.exadel.etoolbox.backpack.core.dto.repository.TagReferencedItem;
 import com.exadel.etoolbox.backpack.core.services.PageReferenceSearchService;
+import com.exadel.etoolbox.backpack.core.services.ReferenceIndexService;
+import com.exadel.etoolbox.backpack.core.services.ReferenceProvider;
 import com.exadel.etoolbox.backpack.core.services.ReferenceService;
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.component.annotations.ReferencePolicy;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import javax.jcr.Node;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Implements {@link ReferenceService} to facilitate getting a collection of resources used by resources
- * under specified JCR path
+ * under specified JCR path. Tags, pages and assets are collected in a single traversal of the subtree unless
+ * the references are already known to the {@link ReferenceIndexService}. The same traversal offers property values
+ * to the registered {@link ReferenceProvider}s which then resolve the accepted values concurrently. When the indexed
+ * references are used, the values for the providers are gathered by a search of their own, and the references the
+ * providers resolve are added to the indexed ones
  */
 @Component(service = ReferenceService.class)
+@Designate(ocd = ReferenceServiceImpl.Configuration.class)
 public class ReferenceServiceImpl implements ReferenceService {
-    private static final String DAM_ROOT = "/content/dam";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReferenceServiceImpl.class);
 
     @Reference
     private PageReferenceSearchService pageReferenceSearchService;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL, policy = ReferencePolicy.DYNAMIC)
+    private volatile ReferenceIndexService referenceIndexService;
+
+    @Reference(service = ReferenceProvider.class, cardinality = ReferenceCardinality.MULTIPLE, policy = ReferencePolicy.DYNAMIC)
+    private volatile List<ReferenceProvider> referenceProviders = Collections.emptyList();
+
+    private final Map<String, LongAdder> providerTimings = new ConcurrentHashMap<>();
+    private Set<String> disabledProviders = Collections.emptySet();
+    private long slowProviderThreshold;
+    private ThreadPoolExecutor providerExecutor;
+
+    /**
+     * Represents this OSGi service's configuration
+     */
+    @ObjectClassDefinition(name = "EToolbox BackPack Reference Service configuration")
+    @interface Configuration {
+        @AttributeDefinition(
+                name = "Provider parallelism",
+                description = "Number of reference providers that resolve the references of a path at the same time. 1 stands for running the providers one by one",
+                type = AttributeType.INTEGER
+        )
+        int providerParallelism() default 2;
+
+        @AttributeDefinition(
+                name = "Disabled providers",
+                description = "Class names of the reference providers that are not used",
+                type = AttributeType.STRING
+        )
+        String[] disabledProviders();
+
+        @AttributeDefinition(
+                name = "Slow provider threshold",
+                description = "Time in milliseconds a provider may spend resolving the references of a path before a warning is logged. 0 stands for no warnings",
+                type = AttributeType.LONG
+        )
+        long slowProviderThreshold() default 1000L;
+    }
+
+    /**
+     * Run upon this OSGi service activation or modification to set up the execution of reference providers
+     *
+     * @param config {@link Configuration} instance representing this OSGi service's current configuration
+     */
+    @Activate
+    @Modified
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void activate(Configuration config) {
+        deactivate();
+        disabledProviders = config.disabledProviders() != null
+                ? new HashSet<>(Arrays.asList(config.disabledProviders()))
+                : Collections.emptySet();
+        slowProviderThreshold = Math.max(config.slowProviderThreshold(), 0L);
+        int parallelism = Math.max(config.providerParallelism(), 1);
+        if (parallelism > 1) {
+            providerExecutor = new ThreadPoolExecutor(parallelism,
+                    parallelism,
+                    60L,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+            providerExecutor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    /**
+     * Run upon this OSGi service deactivation to stop the provider threads
+     */
+    @Deactivate
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void deactivate() {
+        if (providerExecutor != null) {
+            providerExecutor.shutdownNow();
+            providerExecutor = null;
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Set<ReferencedItem> getReferences(final ResourceResolver resourceResolver,
                                              final String searchPath) {
-        Set<ReferencedItem> tagReferences = getTagReferences(resourceResolver, searchPath);
-        Set<ReferencedItem> refPaths = getPageReferences(resourceResolver, searchPath);
-        Set<AssetReferencedItem> assetReferencedItems = getAssetReferencedItems(resourceResolver, searchPath);
-        tagReferences.addAll(refPaths);
-        tagReferences.addAll(assetReferencedItems);
-
-
-        return tagReferences;
+        return getReferences(resourceResolver, searchPath, new HashMap<>(), item -> {});
     }
 
-    private Set<ReferencedItem> getPageReferences(final ResourceResolver resourceResolver,
-                                                  final String searchPath) {
-        return pageReferenceSearchService.findPageReferences(resourceResolver, searchPath)
-                .stream()
-                .map(page -> new PageReferencedItem(page.getContentResource().getPath()))
-                .collect(Collectors.toSet());
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Set<ReferencedItem> getReferences(final ResourceResolver resourceResolver,
+                                             final String searchPath,
+                                             final Consumer<ReferencedItem> consumer) {
+        return getReferences(resourceResolver, searchPath, new HashMap<>(), consumer);
     }
 
-    private Set<AssetReferencedItem> getAssetReferencedItems(final ResourceResolver resourceResolver, final String searchPath) {
+    /**
+     * {@inheritDoc}
+     * The items found during the traversal are reported to the consumer at once; those resolved by the providers
+     * follow after the traversal
+     */
+    @Override
+    public Set<ReferencedItem> getReferences(final ResourceResolver resourceResolver,
+                                             final String searchPath,
+                                             final Map<String, ReferencedItem> resolvedTags,
+                                             final Consumer<ReferencedItem> consumer) {
         Resource resource = resourceResolver.getResource(searchPath);
-
         if (resource == null) {
-            return Collections.emptySet();
+            return new LinkedHashSet<>();
         }
-
-        Node node = resource.adaptTo(Node.class);
-
-        AssetReferenceSearch assetReferenceSearch = new AssetReferenceSearch(node, DAM_ROOT,
-                resourceResolver);
-
-        Map<String, Asset> result = assetReferenceSearch.search();
-        Set<AssetReferencedItem> assetReferencedItemSet = new LinkedHashSet<>();
-
-        for (Map.Entry<String, Asset> entry : result.entrySet()) {
-            Asset asset = entry.getValue();
-            AssetReferencedItem assetDetails = new AssetReferencedItem(asset.getPath(), asset.getMimeType());
-            assetReferencedItemSet.add(assetDetails);
+        List<ReferenceProvider> providers = getEnabledProviders();
+        ReferenceIndexService indexService = referenceIndexService;
+        Set<ReferencedItem> indexedReferences = indexService != null
+                ? indexService.getReferences(resourceResolver, searchPath)
+                : null;
+        ReferenceCollector collector = new ReferenceCollector(resourceResolver, pageReferenceSearchService, providers, resolvedTags);
+        Set<ReferencedItem> references;
+        if (indexedReferences != null) {
+            // the index holds tags, pages and assets only, so the values for providers are still gathered from content
+            references = new LinkedHashSet<>(indexedReferences);
+            references.forEach(consumer);
+            collector.collectProviderValues(resource);
+        } else {
+            references = collector.getReferences(resource, consumer);
         }
+        resolveProviderValues(resourceResolver, searchPath, collector.getProviderValues()).stream()
+                .filter(references::add)
+                .forEach(consumer);
+        return references;
+    }
 
-        return assetReferencedItemSet;
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<ReferencedItem, Integer> getReferences(final ResourceResolver resourceResolver,
+                                                      final Collection<String> searchPaths,
+                                                      final int maxDepth,
+                                                      final int maxItems,
+                                                      final long timeBudget) {
+        Map<ReferencedItem, Integer> references = new LinkedHashMap<>();
+        Set<String> visitedPaths = new HashSet<>();
+        Map<String, ReferencedItem> resolvedTags = new HashMap<>();
+        for (String searchPath : searchPaths) {
+            // a selected page is reported as its content resource when referenced back
+            visitedPaths.add(searchPath);
+            visitedPaths.add(searchPath + "/" + JcrConstants.JCR_CONTENT);
+        }
+        long deadline = timeBudget > 0 ? System.currentTimeMillis() + timeBudget : Long.MAX_VALUE;
+        List<String> currentLevel = new ArrayList<>(searchPaths);
+        for (int depth = 1; depth <= maxDepth && !currentLevel.isEmpty(); depth++) {
+            List<String> nextLevel = new ArrayList<>();
+            for (String path : currentLevel) {
+                if (System.currentTimeMillis() > deadline) {
+                    LOGGER.debug("Reference search stopped at level {} upon exceeding the time budget", depth);
+                    return references;
+                }
+                for (ReferencedItem item : getReferences(resourceResolver, path, resolvedTags, found -> {})) {
+                    if (references.size() >= maxItems) {
+                        LOGGER.debug("Reference search stopped at level {} upon reaching {} items", depth, maxItems);
+                        return references;
+                    }
+                    if (!visitedPaths.add(item.getPath())) {
+                        continue;
+                    }
+                    references.put(item, depth);
+                    if (!(item instanceof TagReferencedItem)) {
+                        nextLevel.add(item.getPath());
+                    }
+                }
+            }
+            currentLevel = nextLevel;
+        }
+        return references;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, Long> getProviderTimings() {
+        return providerTimings.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> TimeUnit.NANOSECONDS.toMillis(entry.getValue().sum())));
+    }
 
-    private Set<ReferencedItem> getTagReferences(final ResourceResolver resourceResolve, final String searchPath) {
-        Resource pageResource = resourceResolve.resolve(searchPath);
-        TagManager tagManager = resourceResolve.adaptTo(TagManager.class);
-        Set<ReferencedItem> tagsReferencedItemSet = new LinkedHashSet<>();
+    /**
+     * Gets the registered {@link ReferenceProvider}s not disabled in the configuration
+     *
+     * @return List of providers, or an empty list
+     */
+    private List<ReferenceProvider> getEnabledProviders() {
+        List<ReferenceProvider> providers = referenceProviders;
+        if (providers.isEmpty() || disabledProviders.isEmpty()) {
+            return providers;
+        }
+        return providers.stream()
+                .filter(provider -> !disabledProviders.contains(provider.getClass().getName()))
+                .collect(Collectors.toList());
+    }
 
-        if (pageResource != null) {
-            Tag[] tags = tagManager.getTagsForSubtree(pageResource, false);
-            if (tags != null) {
-                for (int i = 0; i < tags.length; i++) {
-                    Tag tag = tags[i];
-                    tagsReferencedItemSet.add(new TagReferencedItem(tag.getPath()));
+    /**
+     * Called from {@link ReferenceServiceImpl#getReferences(ResourceResolver, String)} to let every provider resolve
+     * the property values it accepted during the traversal. Providers run concurrently, each with its own copy of the
+     * user's {@code ResourceResolver}, since a resolver must not be shared between threads. A single provider, or
+     * a provider whose resolver could not be obtained, runs in the calling thread
+     *
+     * @param resourceResolver {@code ResourceResolver} of the current user
+     * @param searchPath       JCR path the references are searched under
+     * @param providerValues   {@code Map} of providers to the property names and values they accepted
+     * @return {@code Set} of {@link ReferencedItem}s found by the providers
+     */
+    private Set<ReferencedItem> resolveProviderValues(final ResourceResolver resourceResolver,
+                                                      final String searchPath,
+                                                      final Map<ReferenceProvider, Set<Map.Entry<String, String>>> providerValues) {
+        Set<ReferencedItem> references = new LinkedHashSet<>();
+        ThreadPoolExecutor executor = providerExecutor;
+        if (executor == null || providerValues.size() < 2) {
+            providerValues.forEach((provider, values) ->
+                    references.addAll(resolve(provider, resourceResolver, searchPath, values)));
+            return references;
+        }
+        Map<ReferenceProvider, Future<Collection<ReferencedItem>>> futures = new LinkedHashMap<>();
+        providerValues.forEach((provider, values) -> futures.put(provider, executor.submit(() -> {
+            try (ResourceResolver providerResolver = resourceResolver.clone(null)) {
+                return resolve(provider, providerResolver, searchPath, values);
+            }
+        })));
+        for (Map.Entry<ReferenceProvider, Future<Collection<ReferencedItem>>> future : futures.entrySet()) {
+            try {
+                references.addAll(future.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.values().forEach(pending -> pending.cancel(true));
+                return references;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof LoginException) {
+                    ReferenceProvider provider = future.getKey();
+                    references.addAll(resolve(provider, resourceResolver, searchPath, providerValues.get(provider)));
+                } else {
+                    LOGGER.error("Reference provider {} failed for {}", future.getKey().getClass().getName(), searchPath, e);
                 }
             }
         }
-        return tagsReferencedItemSet;
+        return references;
+    }
+
+    /**
+     * Called from {@link ReferenceServiceImpl#resolveProviderValues(ResourceResolver, String, Map)} to resolve
+     * the values accepted by a single provider and account for the time it took
+     *
+     * @param provider         {@link ReferenceProvider} instance
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param searchPath       JCR path the references are searched under
+     * @param values           Property names and values accepted by the provider
+     * @return Collection of {@link ReferencedItem}s
+     */
+    private Collection<ReferencedItem> resolve(final ReferenceProvider provider,
+                                               final ResourceResolver resourceResolver,
+                                               final String searchPath,
+                                               final Set<Map.Entry<String, String>> values) {
+        String providerName = provider.getClass().getName();
+        Set<ReferencedItem> references = new LinkedHashSet<>();
+        long start = System.nanoTime();
+        for (Map.Entry<String, String> value : values) {
+            references.addAll(provider.getReferences(resourceResolver, value.getKey(), value.getValue()));
+        }
+        long elapsed = System.nanoTime() - start;
+        providerTimings.computeIfAbsent(providerName, key -> new LongAdder()).add(elapsed);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(elapsed);
+        if (slowProviderThreshold > 0 && elapsedMillis > slowProviderThreshold) {
+            LOGGER.warn("Reference provider {} took {} ms to resolve {} values under {}. It can be disabled in the configuration",
+                    providerName, elapsedMillis, values.size(), searchPath);
+        } else {
+            LOGGER.debug("Reference provider {} took {} ms to resolve {} values under {}", providerName, elapsedMillis, values.size(), searchPath);
+        }
+        return references;
     }
 }
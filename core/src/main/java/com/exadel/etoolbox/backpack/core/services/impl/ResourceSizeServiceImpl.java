@@ -0,0 +1,718 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import com.day.cq.commons.jcr.JcrConstants;
+import com.exadel.etoolbox.backpack.core.dto.response.SizeInfo;
+import com.exadel.etoolbox.backpack.core.services.ResourceSizeService;
+import com.exadel.etoolbox.backpack.core.services.SessionService;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Implements {@link ResourceSizeService} to compute subtree sizes and memoize them per hierarchy node and user, since
+ * different users may see different parts of a subtree. Cached sizes of a changed node and of all its ancestors are
+ * invalidated upon the resource change events, so that recomputing a large subtree only visits the changed branches. Sizes of several subtrees, as well as of the nodes having many
+ * children, are computed in parallel within a fork-join pool whose workers use their own copies of the requesting
+ * user's session, so that sizes are always computed within the user's permissions. For quick
+ * feedback, sizes can be estimated by sampling children of large folders
+ */
+@Component(
+        service = {ResourceSizeService.class, ResourceChangeListener.class},
+        property = {
+                ResourceChangeListener.CHANGES + "=ADDED",
+                ResourceChangeListener.CHANGES + "=CHANGED",
+                ResourceChangeListener.CHANGES + "=REMOVED"
+        }
+)
+@Designate(ocd = ResourceSizeServiceImpl.Configuration.class)
+public class ResourceSizeServiceImpl implements ResourceSizeService, ResourceChangeListener, ExternalResourceChangeListener {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceSizeServiceImpl.class);
+
+    private static final String BINARY_DATA_PATH = JcrConstants.JCR_CONTENT + "/" + JcrConstants.JCR_DATA;
+    private static final String CONTENT_LENGTH = "sling.contentLength";
+    private static final String CONTENT_NODE_SEGMENT = "/" + JcrConstants.JCR_CONTENT;
+    // '|' is not allowed in JCR names, so it safely separates the path from the user ID within a cache key.
+    // The characters following '|' and '/' bound the ranges of keys of a path and of its descendants respectively
+    private static final char KEY_SEPARATOR = '|';
+    private static final char KEY_SEPARATOR_UPPER_BOUND = '}';
+    private static final char PATH_SEPARATOR_UPPER_BOUND = '0';
+    private static final int LEAF_TASK_SIZE = 8;
+    private static final double CONFIDENCE_Z = 1.96; // 95% confidence interval
+    private static final String USER_SESSION_PARAMETER = "user.jcr.session";
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    private ResourceResolverFactory resourceResolverFactory;
+
+    @Reference
+    private SessionService sessionService;
+
+    @SuppressWarnings("UnstableApiUsage") // sticking to Guava Cache version bundled in uber-jar; still safe to use
+    private Cache<String, Long> sizes;
+    // keys of the cached sizes kept sorted, so that the entries of a path and its descendants are found by a range lookup
+    private final NavigableSet<String> cachedKeys = new ConcurrentSkipListSet<>();
+    private List<String> observedPaths;
+    private ForkJoinPool forkJoinPool;
+    private ExecutorService asyncExecutor;
+    private int forkThreshold;
+    private long timeBudget;
+    private int sampleSize;
+
+    // incremented upon every change so that a size computed concurrently with a change is not cached
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong computationCounter = new AtomicLong();
+    // background computations queued or running, per user and set of paths, so that repeated requests share one
+    private final Map<String, CompletableFuture<SizeInfo>> pendingComputations = new ConcurrentHashMap<>();
+
+    /**
+     * Represents this OSGi service's configuration
+     */
+    @ObjectClassDefinition(name = "EToolbox BackPack Resource Size Index configuration")
+    @interface Configuration {
+        @AttributeDefinition(
+                name = "Observed paths",
+                description = "Roots of the subtrees whose sizes are cached and invalidated upon content changes",
+                type = AttributeType.STRING
+        )
+        String[] resource_paths() default {"/content"};
+
+        @AttributeDefinition(
+                name = "Max cache entries",
+                description = "Maximal number of subtree sizes kept in the cache",
+                type = AttributeType.INTEGER
+        )
+        int maxEntries() default 100000;
+
+        @AttributeDefinition(
+                name = "Parallelism",
+                description = "Number of threads computing sizes in parallel, each within its own copy of the requesting user's session. Set to 1 to compute sizes sequentially",
+                type = AttributeType.INTEGER
+        )
+        int parallelism() default 4;
+
+        @AttributeDefinition(
+                name = "Fork threshold",
+                description = "Number of child resources above which the children's sizes are computed in parallel",
+                type = AttributeType.INTEGER
+        )
+        int forkThreshold() default 100;
+
+        @AttributeDefinition(
+                name = "Time budget (ms)",
+                description = "Time after which the size computation stops and returns a partial result flagged as an estimate. Set to 0 for no limit",
+                type = AttributeType.LONG
+        )
+        long timeBudget() default 60000;
+
+        @AttributeDefinition(
+                name = "Estimate sample size",
+                description = "Number of children sampled per folder when the size is estimated rather than computed exactly",
+                type = AttributeType.INTEGER
+        )
+        int sampleSize() default 20;
+
+        @AttributeDefinition(
+                name = "Background queue capacity",
+                description = "Maximal number of exact size computations waiting to be run in the background. Further requests are rejected until the queue frees up",
+                type = AttributeType.INTEGER
+        )
+        int asyncQueueCapacity() default 10;
+    }
+
+    /**
+     * Run upon this OSGi service activation or modification to initialize the cache of subtree sizes and the pool
+     * of size computing threads
+     *
+     * @param config {@link Configuration} instance representing this OSGi service's current configuration
+     */
+    @Activate
+    @Modified
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void activate(Configuration config) {
+        observedPaths = Arrays.asList(config.resource_paths());
+        cachedKeys.clear();
+        sizes = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(config.maxEntries(), 0))
+                .removalListener((RemovalNotification<String, Long> notification) -> {
+                    if (!RemovalCause.REPLACED.equals(notification.getCause())) {
+                        cachedKeys.remove(notification.getKey());
+                    }
+                })
+                .build();
+        forkThreshold = Math.max(config.forkThreshold(), 1);
+        timeBudget = Math.max(config.timeBudget(), 0);
+        sampleSize = Math.max(config.sampleSize(), 2);
+        shutdownPools();
+        if (config.parallelism() > 1) {
+            forkJoinPool = new ForkJoinPool(config.parallelism(), SizeWorkerThread::new, null, false);
+        }
+        asyncExecutor = new ThreadPoolExecutor(1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(Math.max(config.asyncQueueCapacity(), 1)));
+    }
+
+    /**
+     * Run upon this OSGi service deactivation to release the pools of size computing threads
+     */
+    @Deactivate
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void deactivate() {
+        shutdownPools();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSize(final ResourceResolver resourceResolver, final String path) {
+        return getSize(resourceResolver.getResource(path), new Computation(resourceResolver, Long.MAX_VALUE));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SizeInfo getSize(final ResourceResolver resourceResolver, final Collection<String> paths) {
+        Computation computation = new Computation(resourceResolver, timeBudget > 0 ? System.currentTimeMillis() + timeBudget : Long.MAX_VALUE);
+        long totalSize = 0L;
+        if (forkJoinPool == null) {
+            for (String path : paths) {
+                totalSize += getSize(resourceResolver.getResource(path), computation);
+            }
+        } else if (!paths.isEmpty()) {
+            try {
+                totalSize = forkJoinPool.invoke(new SizeTask(new ArrayList<>(paths), computation));
+            } catch (IllegalStateException e) {
+                LOGGER.error("Could not compute the size of {}", paths, e);
+                computation.partial.set(true);
+            } finally {
+                computation.closeWorkerResourceResolvers();
+            }
+        }
+        if (computation.isPartial()) {
+            LOGGER.warn("Size computation exceeded the time budget of {} ms; returning a partial result", timeBudget);
+        }
+        return new SizeInfo(totalSize, computation.isPartial());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<SizeInfo> getSizeAsync(final ResourceResolver resourceResolver, final Collection<String> paths) {
+        String userId = resourceResolver.getUserID();
+        List<String> pathList = new ArrayList<>(new TreeSet<>(paths));
+        String key = userId + KEY_SEPARATOR + String.join(",", pathList);
+        CompletableFuture<SizeInfo> result = pendingComputations.computeIfAbsent(key, k -> submitComputation(userId, pathList));
+        // the entry is dropped once the computation is over, so that a later request computes the size anew
+        result.whenComplete((sizeInfo, e) -> pendingComputations.remove(key, result));
+        return result;
+    }
+
+    /**
+     * Called from {@link ResourceSizeServiceImpl#getSizeAsync(ResourceResolver, Collection)} to queue a background
+     * size computation. If the queue is full, the returned future completes exceptionally
+     *
+     * @param userId ID of the user the size is computed for
+     * @param paths  {@code List} of paths representing the roots of the subtrees
+     * @return {@code CompletableFuture} that completes with a {@link SizeInfo} instance
+     */
+    private CompletableFuture<SizeInfo> submitComputation(final String userId, final List<String> paths) {
+        CompletableFuture<SizeInfo> result = new CompletableFuture<>();
+        try {
+            asyncExecutor.execute(() -> {
+                try {
+                    result.complete(getSize(userId, paths));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Background size computation of {} rejected: the queue is full", paths);
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Called from {@link ResourceSizeServiceImpl#submitComputation(String, List)} to compute the size within a session
+     * of the given user. The session is opened when the computation starts rather than when it is queued, so that
+     * no session is held by a computation waiting in the queue
+     *
+     * @param userId ID of the user the size is computed for
+     * @param paths  {@code List} of paths representing the roots of the subtrees
+     * @return {@link SizeInfo} instance
+     */
+    private SizeInfo getSize(final String userId, final List<String> paths) {
+        Session userSession = null;
+        try {
+            userSession = sessionService.getUserImpersonatedSession(userId);
+            try (ResourceResolver resourceResolver = resourceResolverFactory.getResourceResolver(
+                    Collections.<String, Object>singletonMap(USER_SESSION_PARAMETER, userSession))) {
+                return getSize(resourceResolver, paths);
+            }
+        } catch (RepositoryException | LoginException e) {
+            throw new IllegalStateException("Could not open a session of user " + userId, e);
+        } finally {
+            sessionService.closeSession(userSession);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SizeInfo estimateSize(final ResourceResolver resourceResolver, final Collection<String> paths) {
+        Estimate total = new Estimate();
+        Computation computation = new Computation(resourceResolver, Long.MAX_VALUE);
+        for (String path : paths) {
+            total.add(estimateSize(resourceResolver.getResource(path), computation));
+        }
+        if (!total.sampled) {
+            return new SizeInfo(Math.round(total.size), false);
+        }
+        double margin = CONFIDENCE_Z * Math.sqrt(total.variance);
+        return new SizeInfo(Math.round(total.size),
+                Math.max(Math.round(total.size - margin), total.knownSize),
+                Math.round(total.size + margin));
+    }
+
+    /**
+     * Invalidates the cached sizes of the changed resources and their ancestors for all users. For a removed resource,
+     * the sizes of its descendants are invalidated as well
+     *
+     * @param changes {@code List} of {@code ResourceChange} objects
+     */
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        for (ResourceChange change : changes) {
+            generation.incrementAndGet();
+            String changedPath = change.getPath();
+            if (ResourceChange.ChangeType.REMOVED.equals(change.getType())) {
+                invalidate(changedPath + "/", changedPath + PATH_SEPARATOR_UPPER_BOUND);
+            }
+            for (String path = getHierarchyPath(changedPath); StringUtils.isNotEmpty(path); path = ResourceUtil.getParent(path)) {
+                invalidate(path + KEY_SEPARATOR, path + KEY_SEPARATOR_UPPER_BOUND);
+            }
+        }
+    }
+
+    /**
+     * Called from {@link ResourceSizeServiceImpl#onChange(List)} to drop the cached sizes which keys fall within
+     * the given range
+     *
+     * @param fromKey Lower bound of the range, inclusive
+     * @param toKey   Upper bound of the range, exclusive
+     */
+    private void invalidate(final String fromKey, final String toKey) {
+        NavigableSet<String> keys = cachedKeys.subSet(fromKey, true, toKey, false);
+        if (keys.isEmpty()) {
+            return;
+        }
+        sizes.invalidateAll(new ArrayList<>(keys));
+        keys.clear();
+    }
+
+    /**
+     * Called from {@link ResourceSizeServiceImpl#getSize(ResourceResolver, String)} and
+     * {@link ResourceSizeServiceImpl#getSize(ResourceResolver, Collection)} to recursively compute the size of the
+     * current resource and its child resources, summed up. Sizes of hierarchy nodes under the observed paths are
+     * taken from and stored to the cache
+     *
+     * @param resource    The {@code Resource} to compute size for
+     * @param computation {@link Computation} object tracking the time budget
+     * @return Resource size in bytes, or 0 if the resource is a null value
+     */
+    private long getSize(final Resource resource, final Computation computation) {
+        if (resource == null || computation.isExpired()) {
+            return 0L;
+        }
+        String path = resource.getPath();
+        Long cachedSize = getCachedSize(path, computation);
+        if (cachedSize != null) {
+            return cachedSize;
+        }
+        long generationAtStart = generation.get();
+        long totalSize = getBinarySize(resource);
+        for (Resource child : resource.getChildren()) {
+            totalSize += getSize(child, computation);
+        }
+        storeSize(path, totalSize, generationAtStart, computation);
+        return totalSize;
+    }
+
+    /**
+     * Called from {@link ResourceSizeServiceImpl#estimateSize(ResourceResolver, Collection)} to recursively estimate
+     * the size of the current resource and its child resources. If there are more children than the sample size,
+     * an evenly spaced sample of children is traversed, and the sampled sizes are extrapolated by the number of
+     * children. The variance of the estimate follows the two-stage sampling formula
+     *
+     * @param resource    The {@code Resource} to estimate size for
+     * @param computation {@link Computation} object identifying the requesting user
+     * @return {@link Estimate} object
+     */
+    private Estimate estimateSize(final Resource resource, final Computation computation) {
+        Estimate estimate = new Estimate();
+        if (resource == null) {
+            return estimate;
+        }
+        Long cachedSize = getCachedSize(resource.getPath(), computation);
+        if (cachedSize != null) {
+            estimate.addExact(cachedSize);
+            return estimate;
+        }
+        long generationAtStart = generation.get();
+        estimate.addExact(getBinarySize(resource));
+        List<Resource> children = new ArrayList<>();
+        resource.listChildren().forEachRemaining(children::add);
+        if (children.size() <= sampleSize) {
+            children.forEach(child -> estimate.add(estimateSize(child, computation)));
+            if (!estimate.sampled) {
+                storeSize(resource.getPath(), estimate.knownSize, generationAtStart, computation);
+            }
+            return estimate;
+        }
+        estimate.sampled = true;
+        int count = children.size();
+        double stride = (double) count / sampleSize;
+        double sum = 0;
+        double sumOfSquares = 0;
+        double sumOfVariances = 0;
+        for (int i = 0; i < sampleSize; i++) {
+            Estimate childEstimate = estimateSize(children.get((int) (i * stride)), computation);
+            sum += childEstimate.size;
+            sumOfSquares += childEstimate.size * childEstimate.size;
+            sumOfVariances += childEstimate.variance;
+            estimate.knownSize += childEstimate.knownSize;
+        }
+        double mean = sum / sampleSize;
+        double sampleVariance = Math.max((sumOfSquares - sampleSize * mean * mean) / (sampleSize - 1), 0);
+        estimate.size += count * mean;
+        estimate.variance += (double) count * count * (1 - (double) sampleSize / count) * sampleVariance / sampleSize
+                + (double) count / sampleSize * sumOfVariances;
+        return estimate;
+    }
+
+    /**
+     * Called from {@link SizeTask#compute()} to compute the size of the resource under the given path within a worker
+     * thread. If the resource has more children than the configured threshold, their sizes are computed by parallel
+     * tasks
+     *
+     * @param path        JCR path of the resource
+     * @param computation {@link Computation} object tracking the time budget
+     * @return Resource size in bytes, or 0 if the resource is not found
+     */
+    private long getSizeInWorker(final String path, final Computation computation) {
+        Long cachedSize = getCachedSize(path, computation);
+        if (cachedSize != null) {
+            return cachedSize;
+        }
+        Resource resource = getWorkerResourceResolver(computation).getResource(path);
+        if (resource == null || computation.isExpired()) {
+            return 0L;
+        }
+        long generationAtStart = generation.get();
+        long totalSize = getBinarySize(resource);
+        List<Resource> children = new ArrayList<>();
+        Iterator<Resource> iterator = resource.listChildren();
+        while (iterator.hasNext() && children.size() < forkThreshold) {
+            children.add(iterator.next());
+        }
+        if (!iterator.hasNext()) {
+            for (Resource child : children) {
+                totalSize += getSize(child, computation);
+            }
+        } else {
+            List<String> childPaths = new ArrayList<>();
+            children.forEach(child -> childPaths.add(child.getPath()));
+            iterator.forEachRemaining(child -> childPaths.add(child.getPath()));
+            totalSize += new SizeTask(childPaths, computation).compute();
+        }
+        storeSize(path, totalSize, generationAtStart, computation);
+        return totalSize;
+    }
+
+    /**
+     * Gets the {@code ResourceResolver} the current worker thread uses for the given computation. Upon the first request
+     * within a computation, the worker gets its own copy of the requesting user's resolver, which is closed when
+     * the computation is over
+     *
+     * @param computation {@link Computation} object the resolver is requested for
+     * @return {@code ResourceResolver} instance
+     */
+    private static ResourceResolver getWorkerResourceResolver(final Computation computation) {
+        SizeWorkerThread worker = (SizeWorkerThread) Thread.currentThread();
+        if (worker.resourceResolver == null || worker.computationId != computation.id) {
+            worker.resourceResolver = computation.cloneResourceResolver();
+            worker.computationId = computation.id;
+        }
+        return worker.resourceResolver;
+    }
+
+    /**
+     * Gets the size of the binary stored in the content node of the given resource
+     *
+     * @param resource {@code Resource} object
+     * @return Size in bytes, or 0 if the resource has no binary
+     */
+    private static long getBinarySize(final Resource resource) {
+        Resource childResource = resource.getChild(BINARY_DATA_PATH);
+        if (childResource != null && childResource.getResourceMetadata().containsKey(CONTENT_LENGTH)) {
+            return (Long) childResource.getResourceMetadata().get(CONTENT_LENGTH);
+        }
+        return 0L;
+    }
+
+    /**
+     * Gets the size of the resource under the given path cached for the user the computation is run for
+     *
+     * @param path        JCR path of the resource
+     * @param computation {@link Computation} object identifying the requesting user
+     * @return Size in bytes, or null if not cached
+     */
+    private Long getCachedSize(final String path, final Computation computation) {
+        return isCacheable(path) ? sizes.getIfPresent(getCacheKey(path, computation)) : null;
+    }
+
+    /**
+     * Stores the computed size of the resource under the given path unless the computation is partial, or a content
+     * change has been reported since the computation started
+     *
+     * @param path              JCR path of the resource
+     * @param size              Size in bytes
+     * @param generationAtStart Value of the change counter at the moment the computation started
+     * @param computation       {@link Computation} object tracking the time budget
+     */
+    private void storeSize(final String path, final long size, final long generationAtStart, final Computation computation) {
+        if (isCacheable(path) && !computation.isPartial() && generation.get() == generationAtStart) {
+            String key = getCacheKey(path, computation);
+            sizes.put(key, size);
+            cachedKeys.add(key);
+        }
+    }
+
+    /**
+     * Gets the key under which the size of the resource is cached for the user the computation is run for
+     *
+     * @param path        JCR path of the resource
+     * @param computation {@link Computation} object identifying the requesting user
+     * @return String value
+     */
+    private static String getCacheKey(final String path, final Computation computation) {
+        return path + KEY_SEPARATOR + computation.userId;
+    }
+
+    /**
+     * Gets whether the size of the resource under the given path can be cached. These are the hierarchy nodes (not
+     * the content nodes of pages and assets) under the observed paths
+     *
+     * @param path JCR path of the resource
+     * @return True or false
+     */
+    private boolean isCacheable(final String path) {
+        return !path.contains(CONTENT_NODE_SEGMENT)
+                && observedPaths.stream().anyMatch(root -> path.equals(root) || path.startsWith(root + "/"));
+    }
+
+    /**
+     * Gets the path of the hierarchy node the given path belongs to, i.e. strips the content node part if any
+     *
+     * @param path JCR path of a resource
+     * @return String value
+     */
+    static String getHierarchyPath(final String path) {
+        int contentNodePosition = path.indexOf(CONTENT_NODE_SEGMENT + "/");
+        if (contentNodePosition < 0 && path.endsWith(CONTENT_NODE_SEGMENT)) {
+            contentNodePosition = path.length() - CONTENT_NODE_SEGMENT.length();
+        }
+        return contentNodePosition < 0 ? path : path.substring(0, contentNodePosition);
+    }
+
+    /**
+     * Shuts down the pools of size computing threads if they exist
+     */
+    private void shutdownPools() {
+        if (forkJoinPool != null) {
+            forkJoinPool.shutdownNow();
+            forkJoinPool = null;
+        }
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdownNow();
+            asyncExecutor = null;
+        }
+        // the computations dropped from the queue would never complete otherwise
+        pendingComputations.values().forEach(computation -> computation.cancel(false));
+    }
+
+    /**
+     * Tracks the requesting user and the time budget of a single size computation
+     */
+    private class Computation {
+        private final long id = computationCounter.incrementAndGet();
+        private final ResourceResolver resourceResolver;
+        private final String userId;
+        private final long deadline;
+        private final AtomicBoolean partial = new AtomicBoolean();
+        private final List<ResourceResolver> workerResourceResolvers = new ArrayList<>();
+
+        Computation(final ResourceResolver resourceResolver, final long deadline) {
+            this.resourceResolver = resourceResolver;
+            this.userId = StringUtils.defaultString(resourceResolver.getUserID());
+            this.deadline = deadline;
+        }
+
+        // the requesting user's resolver is not thread-safe, so it is cloned by one worker at a time
+        synchronized ResourceResolver cloneResourceResolver() {
+            try {
+                ResourceResolver clone = resourceResolver.clone(null);
+                workerResourceResolvers.add(clone);
+                return clone;
+            } catch (LoginException e) {
+                throw new IllegalStateException("Could not clone the resource resolver", e);
+            }
+        }
+
+        synchronized void closeWorkerResourceResolvers() {
+            workerResourceResolvers.forEach(ResourceResolver::close);
+            workerResourceResolvers.clear();
+        }
+
+        boolean isExpired() {
+            if (System.currentTimeMillis() > deadline) {
+                partial.set(true);
+            }
+            return partial.get();
+        }
+
+        boolean isPartial() {
+            return partial.get();
+        }
+    }
+
+    /**
+     * Accumulates an estimated size together with its variance and the part of the size that was computed exactly
+     */
+    private static class Estimate {
+        private double size;
+        private double variance;
+        private long knownSize;
+        private boolean sampled;
+
+        void addExact(final long exactSize) {
+            size += exactSize;
+            knownSize += exactSize;
+        }
+
+        void add(final Estimate other) {
+            size += other.size;
+            variance += other.variance;
+            knownSize += other.knownSize;
+            sampled |= other.sampled;
+        }
+    }
+
+    /**
+     * Computes the summary size of the subtrees under the given paths by splitting the list of paths in halves
+     * until it is small enough to be processed within a single worker thread
+     */
+    private class SizeTask extends RecursiveTask<Long> {
+        private final List<String> paths;
+        private final Computation computation;
+
+        SizeTask(final List<String> paths, final Computation computation) {
+            this.paths = paths;
+            this.computation = computation;
+        }
+
+        @Override
+        protected Long compute() {
+            if (paths.size() > LEAF_TASK_SIZE) {
+                int middle = paths.size() / 2;
+                SizeTask left = new SizeTask(paths.subList(0, middle), computation);
+                left.fork();
+                long rightSize = new SizeTask(paths.subList(middle, paths.size()), computation).compute();
+                return rightSize + left.join();
+            }
+            long totalSize = 0L;
+            for (String path : paths) {
+                totalSize += getSizeInWorker(path, computation);
+            }
+            return totalSize;
+        }
+    }
+
+    /**
+     * Worker thread of the size computing pool that holds the {@code ResourceResolver} of the computation it currently
+     * takes part in. The resolver is owned and closed by the {@link Computation}
+     */
+    private static class SizeWorkerThread extends ForkJoinWorkerThread {
+        private ResourceResolver resourceResolver;
+        private long computationId;
+
+        SizeWorkerThread(final ForkJoinPool pool) {
+            super(pool);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import org.apache.sling.api.resource.Resource;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Implements {@link ReferenceSearchStrategy} by walking the whole subtree, except for the skipped nodes and their
+ * descendants
+ */
+class TraversalSearchStrategy implements ReferenceSearchStrategy {
+
+    private final Predicate<Resource> skipped;
+
+    /**
+     * Instance constructor
+     *
+     * @param skipped {@code Predicate} telling whether a resource and its descendants are skipped
+     */
+    TraversalSearchStrategy(final Predicate<Resource> skipped) {
+        this.skipped = skipped;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachCandidate(final Resource root,
+                                 final Collection<String> propertyNames,
+                                 final Consumer<Resource> visitor) {
+        traverse(root, visitor);
+    }
+
+    /**
+     * Passes the given resource and all of its descendants, except for the skipped ones, to the visitor
+     *
+     * @param resource Current {@code Resource}
+     * @param visitor  {@code Consumer} inspecting the properties of a resource
+     */
+    private void traverse(final Resource resource, final Consumer<Resource> visitor) {
+        visitor.accept(resource);
+        Iterator<Resource> children = resource.listChildren();
+        while (children.hasNext()) {
+            Resource child = children.next();
+            if (!skipped.test(child)) {
+                traverse(child, visitor);
+            }
+        }
+    }
+}
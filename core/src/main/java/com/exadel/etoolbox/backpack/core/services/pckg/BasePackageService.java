@@ -15,12 +15,15 @@ package com.exadel.etoolbox.backpack.core.services.pckg;
 
 import com.exadel.etoolbox.backpack.core.dto.repository.AssetReferencedItem;
 import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.response.BatchInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.dto.response.SizeInfo;
 import com.exadel.etoolbox.backpack.core.services.ReferenceService;
 import com.exadel.etoolbox.backpack.core.servlets.model.BuildPackageModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.PackageModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.PathModel;
 import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
 import org.apache.jackrabbit.vault.fs.config.DefaultWorkspaceFilter;
 import org.apache.jackrabbit.vault.packaging.JcrPackageDefinition;
 import org.apache.jackrabbit.vault.packaging.JcrPackageManager;
@@ -31,7 +34,10 @@ import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Represents a service running in an AEM instance responsible for base operation with package
@@ -45,9 +51,47 @@ public interface BasePackageService {
      */
     boolean isEnableStackTrace();
 
+    /**
+     * Gets the number of the latest package log entries kept in memory while a package is being built or installed
+     *
+     * @return Integer value; zero means no limit
+     */
+    int getLogTailSize();
+
+    /**
+     * Return true in the case when the full package log should be written to a temporary file otherwise return false
+     *
+     * @return True or false
+     */
+    boolean isLogSpillEnabled();
+
+    /**
+     * Return true in the case when a package build should be skipped if neither the package filter nor the filtered
+     * content has changed since the last build, otherwise return false
+     *
+     * @return True or false
+     */
+    boolean isSkipUnchangedBuilds();
+
+    /**
+     * Gets the compression level package archives are built with unless specified in the build request
+     *
+     * @return Integer value from {@code 0} (store only) to {@code 9} (best compression), or {@code -1} for the default compression
+     */
+    int getCompressionLevel();
+
+    /**
+     * Gets the maximal size of a package part created when a package is built in the split mode
+     *
+     * @return Long value representing size in bytes
+     */
+    long getMaxPartSize();
+
     /**
      * Called from {@link CreatePackageService#createPackage(ResourceResolver, PackageModel)} and {@link EditPackageService#editPackage(ResourceResolver, PackageModel)}
-     * in order to convert {@link PackageModel} into {@link PackageInfo}
+     * in order to convert {@link PackageModel} into {@link PackageInfo}. If {@link PackageModel#isEstimateSize()} is set,
+     * the data size is reported as a sampled estimate, while the exact size is computed in the background so that it is
+     * served from the cache upon the subsequent requests
      *
      * @param resourceResolver {@code ResourceResolver} used to convert the model
      * @param packageModel     {@code PackageModel} that will be converted
@@ -108,7 +152,8 @@ public interface BasePackageService {
 
     /**
      * Gets the collection of unique {@link ReferencedItem}s matching the collection of provided resource paths
-     * applying for the {@link ReferenceService} instance
+     * applying for the {@link ReferenceService} instance. References of the paths whose content has not changed are
+     * served from a cache
      *
      * @param resourceResolver {@code ResourceResolver} used to collect assets details
      * @param paths            Collection of JCR paths of resources to gather references for
@@ -116,6 +161,56 @@ public interface BasePackageService {
      */
     Set<ReferencedItem> getReferencedResources(ResourceResolver resourceResolver, Collection<String> paths);
 
+    /**
+     * Passes the unique {@link ReferencedItem}s matching the collection of provided resource paths to the consumer as
+     * soon as every item is found, so that the results can be reported before the whole search completes. The consumer
+     * is always called in the calling thread
+     *
+     * @param resourceResolver {@code ResourceResolver} used to collect assets details
+     * @param paths            Collection of JCR paths of resources to gather references for
+     * @param consumer         {@code Consumer} accepting the found items
+     */
+    void getReferencedResources(ResourceResolver resourceResolver, Collection<String> paths, Consumer<ReferencedItem> consumer);
+
+    /**
+     * Gets the unique {@link ReferencedItem}s matching the collection of provided resource paths together with the
+     * references of the referenced pages and assets, and so on, up to the given depth. The depth is capped, and the
+     * search is limited by the number of items and the time budget set in the configuration
+     *
+     * @param resourceResolver {@code ResourceResolver} used to collect assets details
+     * @param paths            Collection of JCR paths of resources to gather references for
+     * @param depth            Number of reference levels to follow; 0 or 1 stand for the direct references only
+     * @return {@code Map} of the found items to the levels they were found at, starting with 1, in the order of discovery
+     */
+    Map<ReferencedItem, Integer> getReferencedResources(ResourceResolver resourceResolver, Collection<String> paths, int depth);
+
+    /**
+     * Passes the unique {@link ReferencedItem}s matching the collection of provided resource paths, up to the given
+     * reference depth, to the consumer together with the levels they were found at. The consumer is always called in
+     * the calling thread
+     *
+     * @param resourceResolver {@code ResourceResolver} used to collect assets details
+     * @param paths            Collection of JCR paths of resources to gather references for
+     * @param depth            Number of reference levels to follow; 0 or 1 stand for the direct references only
+     * @param consumer         {@code ObjIntConsumer} accepting the found items and their levels
+     * @see BasePackageService#getReferencedResources(ResourceResolver, Collection, int)
+     */
+    void getReferencedResources(ResourceResolver resourceResolver,
+                                Collection<String> paths,
+                                int depth,
+                                ObjIntConsumer<ReferencedItem> consumer);
+
+    /**
+     * Gets the JCR paths of resources to be included in a package as specified by the user-defined filter paths.
+     * Whether a resource does not require its children to be included, its path is brought down to the underlying
+     * {@code jcr:content} node. Non-existing paths are skipped
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param paths            List of {@link PathModel}s
+     * @return {@code List} of JCR paths
+     */
+    List<String> getActualPaths(ResourceResolver resourceResolver, List<PathModel> paths);
+
     /**
      * Gets a {@link DefaultWorkspaceFilter} instance populated with the specified JCR paths
      *
@@ -165,6 +260,24 @@ public interface BasePackageService {
     // sticking to Guava Cache version bundled in uber-jar; still safe to use
     Cache<String, PackageInfo> getPackageInfos();
 
+    /**
+     * Gets current {@link BatchInfo} objects cache
+     *
+     * @return {@code Cache<String, BatchInfo>} object
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    // sticking to Guava Cache version bundled in uber-jar; still safe to use
+    Cache<String, BatchInfo> getBatchInfos();
+
+    /**
+     * Gets the hit and miss statistics of the cache storing references found under search paths
+     *
+     * @return {@code CacheStats} object
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    // sticking to Guava Cache version bundled in uber-jar; still safe to use
+    CacheStats getReferenceCacheStats();
+
     /**
      *
      * @param resourceResolver {@code ResourceResolver} used to collect assets details
@@ -172,4 +285,14 @@ public interface BasePackageService {
      * @return Data size
      */
     long getAssetSize(ResourceResolver resourceResolver, String path);
+
+    /**
+     * Computes the summary size of the resources under the specified paths. The result is flagged as an estimate
+     * if the computation did not complete within the configured time budget
+     *
+     * @param resourceResolver {@code ResourceResolver} used to collect assets details
+     * @param paths            Collection of JCR paths of resources
+     * @return {@link SizeInfo} object
+     */
+    SizeInfo getAssetSize(ResourceResolver resourceResolver, Collection<String> paths);
 }
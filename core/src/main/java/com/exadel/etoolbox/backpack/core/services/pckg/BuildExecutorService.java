@@ -0,0 +1,78 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg;
+
+import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
+
+/**
+ * Represents a service running in an AEM instance responsible for running package builds and installations
+ * in a bounded pool of worker threads
+ */
+public interface BuildExecutorService {
+
+    /**
+     * Schedules the given build routine for execution. Until a worker thread picks the routine up, the package is
+     * reported as {@link PackageStatus#QUEUED} together with its position in the queue
+     *
+     * @param packageInfo {@link PackageInfo} object to store package building status information in
+     * @param task        Routine performing the actual package building
+     * @return True if the routine has been accepted for execution; false if it has been rejected
+     */
+    boolean submit(PackageInfo packageInfo, Runnable task);
+
+    /**
+     * Schedules the given routine for execution. Until a worker thread picks the routine up, the package is reported as
+     * {@link PackageStatus#QUEUED} together with its position in the queue; then it is reported with the given status
+     *
+     * @param packageInfo   {@link PackageInfo} object to store package status information in
+     * @param runningStatus {@link PackageStatus} reported while the routine is running, such as
+     *                      {@link PackageStatus#BUILD_IN_PROGRESS} or {@link PackageStatus#INSTALL_IN_PROGRESS}
+     * @param task          Routine performing the actual package building or installing
+     * @return True if the routine has been accepted for execution; false if it has been rejected
+     */
+    boolean submit(PackageInfo packageInfo, PackageStatus runningStatus, Runnable task);
+
+    /**
+     * Schedules the given routine for execution in the same way as
+     * {@link BuildExecutorService#submit(PackageInfo, PackageStatus, Runnable)} does. If the routine is removed from
+     * the queue without having run, i.e. it is cancelled or discarded to give way to a newer one, the given callback
+     * is invoked instead so that the caller can account for the routine being over
+     *
+     * @param packageInfo   {@link PackageInfo} object to store package status information in
+     * @param runningStatus {@link PackageStatus} reported while the routine is running
+     * @param task          Routine performing the actual package building or installing
+     * @param onDropped     Routine run if the task is cancelled or discarded while queued. Can be null
+     * @return True if the routine has been accepted for execution; false if it has been rejected
+     */
+    boolean submit(PackageInfo packageInfo, PackageStatus runningStatus, Runnable task, Runnable onDropped);
+
+    /**
+     * Cancels the build of the package specified by its path. A queued build is removed from the queue and reported as
+     * {@link PackageStatus#CANCELLED} at once. A running build is only flagged; the build routine is expected to check
+     * the flag with {@link BuildExecutorService#isCancelRequested(String)} and abort at its earliest convenience
+     *
+     * @param packagePath String value representing path to the package in the JCR storage
+     * @return True if a queued or running build has been found for the package; otherwise, false
+     */
+    boolean cancel(String packagePath);
+
+    /**
+     * Gets whether cancellation has been requested for the running build of the package specified by its path
+     *
+     * @param packagePath String value representing path to the package in the JCR storage
+     * @return True or false
+     */
+    boolean isCancelRequested(String packagePath);
+}
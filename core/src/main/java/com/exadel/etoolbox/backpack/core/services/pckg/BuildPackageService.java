@@ -13,7 +13,10 @@
  */
 package com.exadel.etoolbox.backpack.core.services.pckg;
 
+import com.exadel.etoolbox.backpack.core.dto.response.BatchInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.servlets.model.BatchBuildModel;
+import com.exadel.etoolbox.backpack.core.servlets.model.BatchInfoModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.BuildPackageModel;
 import org.apache.sling.api.resource.ResourceResolver;
 
@@ -40,4 +43,25 @@ public interface BuildPackageService {
      * @return {@link PackageInfo} instance reporting the current package status
      */
     PackageInfo testBuildPackage(ResourceResolver resourceResolver, BuildPackageModel buildPackageModel);
+
+    /**
+     * Cancels the build of the package specified in the request. A queued build is dropped at once; a running build
+     * is aborted at the next node being assembled
+     *
+     * @param resourceResolver  {@code ResourceResolver} instance used to build the package
+     * @param buildPackageModel {@link BuildPackageModel} instance containing requisites of the package
+     * @return {@link PackageInfo} instance reporting the current package status
+     */
+    PackageInfo cancelBuild(ResourceResolver resourceResolver, BuildPackageModel buildPackageModel);
+
+    /**
+     * Triggers building of several packages specified in the request. The packages are built in parallel, not exceeding
+     * the per-batch concurrency limit, and the aggregate progress is reported via
+     * {@link PackageInfoService#getBatchInfo(BatchInfoModel)}
+     *
+     * @param resourceResolver {@code ResourceResolver} instance used to build the packages
+     * @param batchBuildModel  {@link BatchBuildModel} instance containing user-set options for the batch building
+     * @return {@link BatchInfo} instance reporting the initial batch status
+     */
+    BatchInfo buildPackages(ResourceResolver resourceResolver, BatchBuildModel batchBuildModel);
 }
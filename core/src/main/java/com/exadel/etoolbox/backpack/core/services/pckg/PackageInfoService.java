@@ -13,7 +13,9 @@
  */
 package com.exadel.etoolbox.backpack.core.services.pckg;
 
+import com.exadel.etoolbox.backpack.core.dto.response.BatchInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.servlets.model.BatchInfoModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.LatestPackageInfoModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.PackageInfoModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.PackageModel;
@@ -55,6 +57,14 @@ public interface PackageInfoService {
      */
     PackageInfo getLatestPackageBuildInfo(LatestPackageInfoModel latestPackageInfoModel);
 
+    /**
+     * Gets the aggregate progress of a batch of package builds according to options specified in the HTTP request
+     *
+     * @param batchInfoModel {@link BatchInfoModel} containing the ID of the batch
+     * @return {@link BatchInfo} instance, or null if the batch is not found
+     */
+    BatchInfo getBatchInfo(BatchInfoModel batchInfoModel);
+
     /**
      * Gets information about current state of package node.
      *
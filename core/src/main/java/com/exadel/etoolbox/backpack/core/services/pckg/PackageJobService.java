@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.PackageJob;
+import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+
+import java.util.List;
+
+/**
+ * Represents a service running in an AEM instance responsible for persisting package operations in the JCR storage
+ * so that they can be resumed or reported as failed after an instance restart
+ */
+public interface PackageJobService {
+
+    /**
+     * Persists a new job in the {@link PackageJob.State#PENDING} state
+     *
+     * @param type        {@link PackageJob.Type} of the package operation
+     * @param packagePath String value representing path to the package in the JCR storage
+     * @param userId      ID of the user who requested the operation
+     * @param parameters  JSON string representing the operation's options
+     * @return {@link PackageJob} instance
+     */
+    PackageJob enqueue(PackageJob.Type type, String packagePath, String userId, String parameters);
+
+    /**
+     * Marks the given job as {@link PackageJob.State#RUNNING}
+     *
+     * @param job {@link PackageJob} instance
+     */
+    void start(PackageJob job);
+
+    /**
+     * Removes the given job from the storage after it has been completed, successfully or not
+     *
+     * @param job {@link PackageJob} instance
+     */
+    void complete(PackageJob job);
+
+    /**
+     * Gets the persisted jobs of the given type in the order they were enqueued
+     *
+     * @param type {@link PackageJob.Type} of the package operation
+     * @return {@code List} of {@link PackageJob} instances
+     */
+    List<PackageJob> getJobs(PackageJob.Type type);
+
+    /**
+     * Restores the {@link PackageInfo} of the package a persisted job is performed over, and stores it in the cache
+     * so that the status of the job is reported to the user
+     *
+     * @param job {@link PackageJob} instance
+     * @return {@link PackageInfo} instance
+     */
+    PackageInfo restorePackageInfo(PackageJob job);
+
+    /**
+     * Reports the given job as failed in the associated {@link PackageInfo} and removes it from the storage
+     *
+     * @param job         {@link PackageJob} instance
+     * @param packageInfo {@link PackageInfo} object to store the status information in
+     * @param message     String value describing the reason of the failure
+     */
+    void fail(PackageJob job, PackageInfo packageInfo, String message);
+}
@@ -16,16 +16,23 @@ package com.exadel.etoolbox.backpack.core.services.pckg.impl;
 import com.day.cq.commons.jcr.JcrConstants;
 import com.day.cq.commons.jcr.JcrUtil;
 import com.day.cq.dam.api.Asset;
+import com.exadel.etoolbox.backpack.core.dto.repository.ContentFingerprint;
+import com.exadel.etoolbox.backpack.core.dto.repository.PageReferencedItem;
 import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.response.BatchInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.dto.response.SizeInfo;
+import com.exadel.etoolbox.backpack.core.services.ContentFingerprintService;
 import com.exadel.etoolbox.backpack.core.services.QueryService;
 import com.exadel.etoolbox.backpack.core.services.ReferenceService;
+import com.exadel.etoolbox.backpack.core.services.ResourceSizeService;
 import com.exadel.etoolbox.backpack.core.services.pckg.BasePackageService;
 import com.exadel.etoolbox.backpack.core.services.pckg.CreatePackageService;
 import com.exadel.etoolbox.backpack.core.servlets.model.PackageModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.PathModel;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 import com.google.gson.Gson;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
@@ -39,9 +46,11 @@ import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ResourceUtil;
 import org.apache.sling.jcr.api.SlingRepository;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.metatype.annotations.AttributeDefinition;
 import org.osgi.service.metatype.annotations.AttributeType;
@@ -53,9 +62,22 @@ import org.slf4j.LoggerFactory;
 import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
 
 /**
  * Implements {@link BasePackageService} to provide base operation with package
@@ -78,8 +100,12 @@ public class BasePackageServiceImpl implements BasePackageService {
     protected static final String INITIAL_FILTERS = "initialFilters";
     private static final String THUMBNAIL_PATH_TEMPLATE = DEFAULT_THUMBNAILS_LOCATION + "backpack_%s.png";
     public static final String PACKAGES_ROOT_PATH = "/etc/packages";
+    private static final long BYTES_IN_MEGABYTE = 1024L * 1024L;
+    // put by a reference search worker when it is over; compared by identity
+    private static final ReferencedItem END_OF_SEARCH = new PageReferencedItem(StringUtils.EMPTY);
     protected static final String QUERY_PARAMETER = "queryPackage";
     protected static final String SWITCH_PARAMETER = "toggle";
+    protected static final String REFERENCE_DEPTH_PARAMETER = "referenceDepth";
     protected static final String THUMBNAIL_PATH_PARAMETER = "thumbnailPath";
 
     protected static final Gson GSON = new Gson();
@@ -99,9 +125,31 @@ public class BasePackageServiceImpl implements BasePackageService {
     @Reference
     protected QueryService queryService;
 
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    protected ResourceSizeService resourceSizeService;
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    protected ContentFingerprintService contentFingerprintService;
+
     @SuppressWarnings("UnstableApiUsage") // sticking to Guava Cache version bundled in uber-jar; still safe to use
     protected Cache<String, PackageInfo> packageInfos;
+    @SuppressWarnings("UnstableApiUsage") // sticking to Guava Cache version bundled in uber-jar; still safe to use
+    protected Cache<String, BatchInfo> batchInfos;
+    @SuppressWarnings("UnstableApiUsage") // sticking to Guava Cache version bundled in uber-jar; still safe to use
+    private Cache<String, Set<ReferencedItem>> referenceCache;
     protected boolean enableStackTrace;
+    private int logTailSize;
+    private boolean logSpillEnabled;
+    private boolean skipUnchangedBuilds;
+    private int compressionLevel;
+    private long maxPartSize;
+    private int referenceSearchParallelism;
+    private ThreadPoolExecutor referenceSearchExecutor;
+    private int referenceMaxDepth;
+    private int referenceMaxItems;
+    private long referenceTimeBudget;
 
     /**
      * Run upon this OSGi service activation to initialize cache storage of collected {@link PackageInfo} objects
@@ -112,10 +160,54 @@ public class BasePackageServiceImpl implements BasePackageService {
     @SuppressWarnings("unused") // run internally by the OSGi mechanism
     private void activate(Configuration config) {
         enableStackTrace = config.enableStackTraceShowing();
+        logTailSize = Math.max(config.logTailSize(), 0);
+        logSpillEnabled = config.spillLogToFile();
+        skipUnchangedBuilds = config.skipUnchangedBuilds();
+        maxPartSize = Math.max(config.maxPartSize(), 1) * BYTES_IN_MEGABYTE;
+        compressionLevel = Math.max(Deflater.DEFAULT_COMPRESSION, Math.min(config.compressionLevel(), Deflater.BEST_COMPRESSION));
         packageInfos = CacheBuilder.newBuilder()
                 .maximumSize(100)
                 .expireAfterWrite(config.buildInfoTTL(), TimeUnit.DAYS)
+                .<String, PackageInfo>removalListener(notification -> {
+                    // the same object is often put back into the cache; its log file is still in use then
+                    if (notification.getValue() != packageInfos.asMap().get(notification.getKey())) {
+                        deleteLogFile(notification.getValue());
+                    }
+                })
+                .build();
+        batchInfos = CacheBuilder.newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(config.buildInfoTTL(), TimeUnit.DAYS)
+                .build();
+        referenceCache = CacheBuilder.newBuilder()
+                .maximumSize(Math.max(config.referenceCacheSize(), 0))
+                .expireAfterWrite(Math.max(config.referenceCacheTTL(), 0), TimeUnit.MINUTES)
+                .recordStats()
                 .build();
+        referenceMaxDepth = Math.max(config.referenceMaxDepth(), 1);
+        referenceMaxItems = config.referenceMaxItems() > 0 ? config.referenceMaxItems() : Integer.MAX_VALUE;
+        referenceTimeBudget = Math.max(config.referenceTimeBudget(), 0) * 1000L;
+        referenceSearchParallelism = Math.max(config.referenceSearchParallelism(), 1);
+        if (referenceSearchParallelism > 1) {
+            referenceSearchExecutor = new ThreadPoolExecutor(referenceSearchParallelism,
+                    referenceSearchParallelism,
+                    60L,
+                    TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>());
+            referenceSearchExecutor.allowCoreThreadTimeOut(true);
+        }
+    }
+
+    /**
+     * Run upon this OSGi service deactivation to stop the reference search threads
+     */
+    @Deactivate
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void deactivate() {
+        if (referenceSearchExecutor != null) {
+            referenceSearchExecutor.shutdownNow();
+            referenceSearchExecutor = null;
+        }
     }
 
     @Override
@@ -123,6 +215,63 @@ public class BasePackageServiceImpl implements BasePackageService {
         return enableStackTrace;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getLogTailSize() {
+        return logTailSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isLogSpillEnabled() {
+        return logSpillEnabled;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSkipUnchangedBuilds() {
+        return skipUnchangedBuilds;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMaxPartSize() {
+        return maxPartSize;
+    }
+
+    /**
+     * Called upon a {@link PackageInfo} eviction from the cache to remove the temporary file the full package log
+     * was written to
+     *
+     * @param packageInfo {@link PackageInfo} instance
+     */
+    static void deleteLogFile(final PackageInfo packageInfo) {
+        if (packageInfo == null || packageInfo.getLogFile() == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(Paths.get(packageInfo.getLogFile()));
+        } catch (IOException e) {
+            LOGGER.warn("Could not delete the log file {}", packageInfo.getLogFile(), e);
+        }
+    }
+
     /**
      * Represents this OSGi service's configuration
      */
@@ -141,6 +290,83 @@ public class BasePackageServiceImpl implements BasePackageService {
                 type = AttributeType.BOOLEAN
         )
         boolean enableStackTraceShowing() default true;
+
+        @AttributeDefinition(
+                name = "Log tail size",
+                description = "Number of the latest package build/install log entries kept in memory (0 for no limit)",
+                type = AttributeType.INTEGER
+        )
+        int logTailSize() default 1000;
+
+        @AttributeDefinition(
+                name = "Write full log to file",
+                description = "Write the full package build/install log to a temporary file",
+                type = AttributeType.BOOLEAN
+        )
+        boolean spillLogToFile() default false;
+
+        @AttributeDefinition(
+                name = "Skip unchanged builds",
+                description = "Do not reassemble a package in the full build mode if neither its filter nor the filtered content has changed since the last build. Note that checking the content requires walking it before every build",
+                type = AttributeType.BOOLEAN
+        )
+        boolean skipUnchangedBuilds() default false;
+
+        @AttributeDefinition(
+                name = "Compression level",
+                description = "Compression level of the built packages: from 0 (store only) to 9 (best compression), or -1 for the default compression. Can be overridden in a build request",
+                type = AttributeType.INTEGER
+        )
+        int compressionLevel() default -1;
+
+        @AttributeDefinition(
+                name = "Max package part size",
+                description = "Maximal size (in megabytes) of a package part created when a package is built in the split mode",
+                type = AttributeType.LONG
+        )
+        long maxPartSize() default 2048;
+
+        @AttributeDefinition(
+                name = "Reference cache size",
+                description = "Maximal number of search paths whose references are cached (0 to disable caching)",
+                type = AttributeType.INTEGER
+        )
+        int referenceCacheSize() default 1000;
+
+        @AttributeDefinition(
+                name = "Reference cache TTL",
+                description = "Specify TTL for the cached references of a search path (in minutes)",
+                type = AttributeType.INTEGER
+        )
+        int referenceCacheTTL() default 60;
+
+        @AttributeDefinition(
+                name = "Reference search parallelism",
+                description = "Number of package paths searched for references concurrently, each with a separate copy of the user's resource resolver (1 to search sequentially)",
+                type = AttributeType.INTEGER
+        )
+        int referenceSearchParallelism() default 4;
+
+        @AttributeDefinition(
+                name = "Max reference depth",
+                description = "Maximal number of reference levels a user may request to follow: the references of the package content, then the references of the referenced pages and assets, and so on (1 to allow the direct references only)",
+                type = AttributeType.INTEGER
+        )
+        int referenceMaxDepth() default 3;
+
+        @AttributeDefinition(
+                name = "Max referenced items",
+                description = "Maximal number of referenced items gathered when more than one reference level is followed (0 for no limit)",
+                type = AttributeType.INTEGER
+        )
+        int referenceMaxItems() default 1000;
+
+        @AttributeDefinition(
+                name = "Reference search time budget",
+                description = "Time (in seconds) after which no further referenced items are searched when more than one reference level is followed (0 for no limit)",
+                type = AttributeType.INTEGER
+        )
+        int referenceTimeBudget() default 60;
     }
 
     /**
@@ -151,12 +377,9 @@ public class BasePackageServiceImpl implements BasePackageService {
         PackageInfo packageInfo = new PackageInfo();
         List<String> actualPaths;
         if (packageModel.isToggle()) {
-            actualPaths = queryService.getResourcesPathsFromQuery(resourceResolver, packageModel.getQuery(), packageInfo);
+            actualPaths = queryService.getResourcesPathsFromQuery(resourceResolver, packageModel.getQuery(), packageInfo, packageModel.isAllowTraversal());
         } else {
-            actualPaths = packageModel.getPaths().stream()
-                    .filter(s -> resourceResolver.getResource(s.getPath()) != null)
-                    .map(path -> getActualPath(path.getPath(), path.isExcludeChildren(), resourceResolver))
-                    .collect(Collectors.toList());
+            actualPaths = getActualPaths(resourceResolver, packageModel.getPaths());
         }
         packageInfo.setPackageName(packageModel.getPackageName());
         packageInfo.setPaths(actualPaths);
@@ -164,7 +387,24 @@ public class BasePackageServiceImpl implements BasePackageService {
         packageInfo.setThumbnailPath(packageModel.getThumbnailPath());
         packageInfo.setQuery(packageModel.getQuery());
         packageInfo.setToggle(packageModel.isToggle());
-        packageInfo.setDataSize(actualPaths.stream().mapToLong(value -> getAssetSize(resourceResolver, value)).sum());
+        packageInfo.setReferenceDepth(packageModel.getReferenceDepth());
+        if (packageModel.isEstimateSize()) {
+            SizeInfo estimate = resourceSizeService.estimateSize(resourceResolver, actualPaths);
+            packageInfo.setDataSize(estimate);
+            if (estimate.isEstimated()) {
+                // the exact size replaces the estimate once computed. The package info is cached upon the package
+                // creation or modification, so the exact size is served to the UI polling the package info
+                resourceSizeService.getSizeAsync(resourceResolver, actualPaths).whenComplete((sizeInfo, e) -> {
+                    if (e != null) {
+                        LOGGER.warn("Could not compute the exact size of {}", actualPaths, e);
+                    } else if (!sizeInfo.isEstimated()) {
+                        packageInfo.setDataSize(sizeInfo);
+                    }
+                });
+            }
+        } else {
+            packageInfo.setDataSize(getAssetSize(resourceResolver, actualPaths));
+        }
 
         String packageGroupName = DEFAULT_PACKAGE_GROUP;
 
@@ -175,6 +415,17 @@ public class BasePackageServiceImpl implements BasePackageService {
         return packageInfo;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<String> getActualPaths(final ResourceResolver resourceResolver, final List<PathModel> paths) {
+        return paths.stream()
+                .filter(s -> resourceResolver.getResource(s.getPath()) != null)
+                .map(path -> getActualPath(path.getPath(), path.isExcludeChildren(), resourceResolver))
+                .collect(Collectors.toList());
+    }
+
     /**
      * Called by {@link CreatePackageService#createPackage(ResourceResolver, PackageModel)} to adjust paths to resources
      * intended for the package, Whether a resource does not require its children to be included, its path is brought down
@@ -279,6 +530,7 @@ public class BasePackageServiceImpl implements BasePackageService {
         jcrPackageDefinition.set(INITIAL_FILTERS, GSON.toJson(paths), true);
         jcrPackageDefinition.set(QUERY_PARAMETER, GSON.toJson(packageInfo.getQuery()), true);
         jcrPackageDefinition.set(SWITCH_PARAMETER, GSON.toJson(packageInfo.isToggle()), true);
+        jcrPackageDefinition.set(REFERENCE_DEPTH_PARAMETER, GSON.toJson(packageInfo.getReferenceDepth()), true);
         jcrPackageDefinition.setFilter(filter, true);
         jcrPackageDefinition.set(THUMBNAIL_PATH_PARAMETER, GSON.toJson(packageInfo.getThumbnailPath()), true);
 
@@ -303,13 +555,217 @@ public class BasePackageServiceImpl implements BasePackageService {
     @Override
     public Set<ReferencedItem> getReferencedResources(final ResourceResolver resourceResolver, final Collection<String> paths) {
         Set<ReferencedItem> assetLinks = new HashSet<>();
-        paths.forEach(path -> {
-            Set<ReferencedItem> assetReferences = referenceService.getReferences(resourceResolver, path);
-            assetLinks.addAll(assetReferences);
-        });
+        getReferencedResources(resourceResolver, paths, assetLinks::add);
         return assetLinks;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void getReferencedResources(final ResourceResolver resourceResolver,
+                                       final Collection<String> paths,
+                                       final Consumer<ReferencedItem> consumer) {
+        Collection<String> searchPaths = collapseNestedPaths(paths);
+        Set<ReferencedItem> foundItems = new HashSet<>();
+        Consumer<ReferencedItem> itemConsumer = item -> {
+            if (foundItems.add(item)) {
+                consumer.accept(item);
+            }
+        };
+        if (referenceSearchExecutor == null || searchPaths.size() < 2) {
+            Map<String, ReferencedItem> resolvedTags = new HashMap<>();
+            searchPaths.forEach(path -> getReferences(resourceResolver, path, resolvedTags, itemConsumer));
+        } else {
+            getReferencesInParallel(resourceResolver, searchPaths, itemConsumer);
+        }
+        LOGGER.debug("Reference cache: {}", referenceCache.stats());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<ReferencedItem, Integer> getReferencedResources(final ResourceResolver resourceResolver,
+                                                               final Collection<String> paths,
+                                                               final int depth) {
+        Map<ReferencedItem, Integer> references = new LinkedHashMap<>();
+        getReferencedResources(resourceResolver, paths, depth, references::put);
+        return references;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void getReferencedResources(final ResourceResolver resourceResolver,
+                                       final Collection<String> paths,
+                                       final int depth,
+                                       final ObjIntConsumer<ReferencedItem> consumer) {
+        int actualDepth = Math.min(depth, referenceMaxDepth);
+        if (actualDepth <= 1) {
+            // the direct references are served from the cache and searched in parallel
+            getReferencedResources(resourceResolver, paths, item -> consumer.accept(item, 1));
+            return;
+        }
+        referenceService.getReferences(resourceResolver, collapseNestedPaths(paths), actualDepth, referenceMaxItems, referenceTimeBudget)
+                .forEach(consumer::accept);
+    }
+
+    /**
+     * Called by {@link BasePackageService#getReferencedResources(ResourceResolver, Collection, Consumer)} to leave out
+     * the paths lying under other paths of the collection, since the subtree of a path is searched as a whole. This way
+     * no subtree is walked more than once
+     *
+     * @param paths Collection of JCR paths
+     * @return List of JCR paths none of which is a descendant of another, in the original order
+     */
+    static List<String> collapseNestedPaths(final Collection<String> paths) {
+        Set<String> allPaths = new HashSet<>(paths);
+        Set<String> roots = new LinkedHashSet<>();
+        for (String path : paths) {
+            boolean nested = false;
+            for (String parent = ResourceUtil.getParent(path); parent != null && !nested; parent = ResourceUtil.getParent(parent)) {
+                nested = allPaths.contains(parent);
+            }
+            if (!nested) {
+                roots.add(path);
+            }
+        }
+        return new ArrayList<>(roots);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    // sticking to Guava Cache version bundled in uber-jar; still safe to use
+    @Override
+    public CacheStats getReferenceCacheStats() {
+        return referenceCache.stats();
+    }
+
+    /**
+     * Called by {@link BasePackageService#getReferencedResources(ResourceResolver, Collection)} to search the given
+     * paths for references concurrently. Every worker takes paths from a shared queue and processes them with its own
+     * copy of the user's {@code ResourceResolver}, since a resolver and its session must not be shared between threads.
+     * Should a worker fail to obtain its resolver or to search a path, the path it was processing and the paths left in
+     * the queue are searched with the original resolver once the workers are over.
+     * Every found item is handed over to the consumer in the calling thread as soon as it is found. Tag IDs are resolved
+     * through a memo shared by the workers
+     *
+     * @param resourceResolver {@code ResourceResolver} of the current user
+     * @param paths            Collection of JCR paths the references are searched under
+     * @param consumer         {@code Consumer} accepting the found items
+     */
+    private void getReferencesInParallel(final ResourceResolver resourceResolver,
+                                         final Collection<String> paths,
+                                         final Consumer<ReferencedItem> consumer) {
+        Queue<String> pendingPaths = new ConcurrentLinkedQueue<>(paths);
+        Queue<String> failedPaths = new ConcurrentLinkedQueue<>();
+        BlockingQueue<ReferencedItem> results = new LinkedBlockingQueue<>();
+        Map<String, ReferencedItem> resolvedTags = new ConcurrentHashMap<>();
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < Math.min(referenceSearchParallelism, paths.size()); i++) {
+                futures.add(referenceSearchExecutor.submit(() -> searchPendingPaths(resourceResolver, pendingPaths, failedPaths, resolvedTags, results)));
+            }
+        } catch (RejectedExecutionException e) {
+            LOGGER.warn("Could not start a reference search worker", e);
+        }
+        try {
+            // every worker puts the end marker to the queue when it is over, so the items found before are all taken
+            int runningWorkers = futures.size();
+            while (runningWorkers > 0) {
+                ReferencedItem result = results.take();
+                if (result == END_OF_SEARCH) {
+                    runningWorkers--;
+                } else {
+                    consumer.accept(result);
+                }
+            }
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // the paths the workers failed at, or did not get to, are searched with the original resolver
+        String path;
+        while ((path = failedPaths.poll()) != null || (path = pendingPaths.poll()) != null) {
+            getReferences(resourceResolver, path, resolvedTags, consumer);
+        }
+    }
+
+    /**
+     * Called by {@link BasePackageServiceImpl#getReferencesInParallel(ResourceResolver, Collection, Consumer)} to run
+     * a worker taking paths from the shared queue. Should the search of a path fail, the path is handed over to
+     * the failed paths, and the worker stops. The end marker is put to the results when the worker is over
+     *
+     * @param resourceResolver {@code ResourceResolver} of the current user; the worker uses its own copy
+     * @param pendingPaths     {@code Queue} of the paths to search
+     * @param failedPaths      {@code Queue} accumulating the paths the search failed at
+     * @param resolvedTags     {@code Map} memoizing the resolved tags, shared by the workers
+     * @param results          {@code BlockingQueue} the found items are put to
+     */
+    private void searchPendingPaths(final ResourceResolver resourceResolver,
+                                    final Queue<String> pendingPaths,
+                                    final Queue<String> failedPaths,
+                                    final Map<String, ReferencedItem> resolvedTags,
+                                    final BlockingQueue<ReferencedItem> results) {
+        String path = null;
+        try (ResourceResolver workerResolver = resourceResolver.clone(null)) {
+            while ((path = pendingPaths.poll()) != null) {
+                getReferences(workerResolver, path, resolvedTags, results::add);
+            }
+        } catch (LoginException | RuntimeException e) {
+            if (path != null) {
+                failedPaths.add(path);
+            }
+            LOGGER.error("Could not search for references in parallel", e);
+        } finally {
+            results.add(END_OF_SEARCH);
+        }
+    }
+
+    /**
+     * Called by {@link BasePackageService#getReferencedResources(ResourceResolver, Collection)} to get the references
+     * of a single search path. The references are cached per user and path. The cache key includes the change watermark
+     * of the subtree, so that an entry becomes unreachable as soon as the content under the path changes. The watermark
+     * is derived from the observed resource changes; only for the paths outside the observed ones the subtree is
+     * traversed to compute its fingerprint. Cached references are passed to the consumer at once; otherwise every item is
+     * passed as soon as the search finds it
+     *
+     * @param resourceResolver {@code ResourceResolver} used to collect references
+     * @param path             JCR path the references are searched under
+     * @param resolvedTags     {@code Map} of the tag IDs resolved within the current request
+     * @param consumer         {@code Consumer} accepting the found items
+     */
+    private void getReferences(final ResourceResolver resourceResolver,
+                               final String path,
+                               final Map<String, ReferencedItem> resolvedTags,
+                               final Consumer<ReferencedItem> consumer) {
+        String version;
+        Long watermark = contentFingerprintService.getChangeWatermark(path);
+        if (watermark != null) {
+            version = String.valueOf(watermark);
+        } else {
+            ContentFingerprint fingerprint = contentFingerprintService.getFingerprint(resourceResolver, path);
+            if (fingerprint == null) {
+                referenceService.getReferences(resourceResolver, path, resolvedTags, consumer);
+                return;
+            }
+            version = fingerprint.getLastModified() + ":" + fingerprint.getNodeCount();
+        }
+        String key = resourceResolver.getUserID() + ":" + path + ":" + version;
+        Set<ReferencedItem> cachedReferences = referenceCache.getIfPresent(key);
+        if (cachedReferences != null) {
+            cachedReferences.forEach(consumer);
+            return;
+        }
+        Set<ReferencedItem> references = referenceService.getReferences(resourceResolver, path, resolvedTags, consumer);
+        referenceCache.put(key, Collections.unmodifiableSet(new LinkedHashSet<>(references)));
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -367,8 +823,15 @@ public class BasePackageServiceImpl implements BasePackageService {
      */
     @Override
     public long getAssetSize(ResourceResolver resourceResolver, String path) {
-        Resource rootResource = resourceResolver.getResource(path);
-        return getAssetSize(rootResource);
+        return resourceSizeService.getSize(resourceResolver, path);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SizeInfo getAssetSize(ResourceResolver resourceResolver, Collection<String> paths) {
+        return resourceSizeService.getSize(resourceResolver, paths);
     }
 
     /**
@@ -382,25 +845,13 @@ public class BasePackageServiceImpl implements BasePackageService {
     }
 
     /**
-     * Called by {@link BasePackageService#getAssetSize(ResourceResolver, String)} to recursively compute the size of
-     * the current resource and its child resources, summed up
-     *
-     * @param resource The {@code Resource} to compute size for
-     * @return Resource size in bytes, or 0 if the resource is a null value
+     * {@inheritDoc}
      */
-    private long getAssetSize(Resource resource) {
-        long totalSize = 0L;
-        if (resource == null) {
-            return totalSize;
-        }
-        for (Resource child : resource.getChildren()) {
-            totalSize += getAssetSize(child);
-        }
-        Resource childResource = resource.getChild("jcr:content/jcr:data");
-        if (childResource != null && childResource.getResourceMetadata().containsKey("sling.contentLength")) {
-            totalSize += (Long) childResource.getResourceMetadata().get("sling.contentLength");
-        }
-        return totalSize;
+    @SuppressWarnings("UnstableApiUsage")
+    // sticking to Guava Cache version bundled in uber-jar; still safe to use
+    @Override
+    public Cache<String, BatchInfo> getBatchInfos() {
+        return batchInfos;
     }
 
     /**
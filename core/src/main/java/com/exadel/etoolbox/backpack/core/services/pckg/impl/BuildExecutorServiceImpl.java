@@ -0,0 +1,337 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg.impl;
+
+import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
+import com.exadel.etoolbox.backpack.core.services.pckg.BuildExecutorService;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.AttributeType;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.osgi.service.metatype.annotations.Option;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implements {@link BuildExecutorService} to run package builds and installations in a bounded, configurable pool
+ * of worker threads
+ */
+@Component(service = BuildExecutorService.class)
+@Designate(ocd = BuildExecutorServiceImpl.Configuration.class)
+public class BuildExecutorServiceImpl implements BuildExecutorService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(BuildExecutorServiceImpl.class);
+
+    static final String QUEUE_IS_FULL_MESSAGE = "Build queue is full. Please try again later.";
+    static final String DISCARDED_MESSAGE = "Build has been discarded from the queue to give way to a newer one.";
+    static final String CANCELLED_MESSAGE = "Build has been cancelled.";
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private ThreadPoolExecutor executor;
+
+    private final Map<String, BuildTask> runningTasks = new ConcurrentHashMap<>();
+
+    /**
+     * Represents the policies applied to a build request when all the worker threads are busy and the queue is full
+     */
+    enum RejectionPolicy {
+        ABORT,
+        CALLER_RUNS,
+        DISCARD_OLDEST
+    }
+
+    /**
+     * Represents this OSGi service's configuration
+     */
+    @ObjectClassDefinition(name = "EToolbox BackPack Build Executor configuration")
+    @interface Configuration {
+        @AttributeDefinition(
+                name = "Pool size",
+                description = "Maximal number of packages built or installed simultaneously",
+                type = AttributeType.INTEGER
+        )
+        int poolSize() default 2;
+
+        @AttributeDefinition(
+                name = "Queue capacity",
+                description = "Maximal number of build or install requests waiting for a free worker",
+                type = AttributeType.INTEGER
+        )
+        int queueCapacity() default 50;
+
+        @AttributeDefinition(
+                name = "Rejection policy",
+                description = "Action taken when a build is requested while the queue is full",
+                options = {
+                        @Option(label = "Reject the new build", value = "ABORT"),
+                        @Option(label = "Run the new build in the requesting thread", value = "CALLER_RUNS"),
+                        @Option(label = "Discard the oldest queued build", value = "DISCARD_OLDEST")
+                }
+        )
+        String rejectionPolicy() default "ABORT";
+
+        @AttributeDefinition(
+                name = "Thread name prefix",
+                description = "Prefix of the worker threads' names as displayed in thread dumps",
+                type = AttributeType.STRING
+        )
+        String threadNamePrefix() default "backpack-build-";
+    }
+
+    /**
+     * Run upon this OSGi service activation to initialize the pool of worker threads
+     *
+     * @param config {@link Configuration} instance representing this OSGi service's starting configuration
+     */
+    @Activate
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void activate(Configuration config) {
+        int poolSize = Math.max(1, config.poolSize());
+        executor = new ThreadPoolExecutor(poolSize,
+                poolSize,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(Math.max(1, config.queueCapacity())),
+                new BuildThreadFactory(config.threadNamePrefix()),
+                getRejectionHandler(config.rejectionPolicy()));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Run upon this OSGi service deactivation to stop the worker threads
+     */
+    @Deactivate
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void deactivate() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean submit(final PackageInfo packageInfo, final Runnable task) {
+        return submit(packageInfo, PackageStatus.BUILD_IN_PROGRESS, task);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean submit(final PackageInfo packageInfo, final PackageStatus runningStatus, final Runnable task) {
+        return submit(packageInfo, runningStatus, task, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean submit(final PackageInfo packageInfo,
+                          final PackageStatus runningStatus,
+                          final Runnable task,
+                          final Runnable onDropped) {
+        packageInfo.setPackageStatus(PackageStatus.QUEUED);
+        try {
+            executor.execute(new BuildTask(packageInfo, runningStatus, task, onDropped));
+        } catch (RejectedExecutionException e) {
+            packageInfo.setQueuePosition(null);
+            packageInfo.setPackageStatus(PackageStatus.ERROR);
+            packageInfo.addLogMessage(BasePackageServiceImpl.ERROR + QUEUE_IS_FULL_MESSAGE);
+            LOGGER.warn("Task for {} rejected: the queue is full", packageInfo.getPackagePath());
+            return false;
+        }
+        updateQueuePositions();
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean cancel(final String packagePath) {
+        for (Runnable runnable : executor.getQueue()) {
+            if (runnable instanceof BuildTask
+                    && packagePath.equals(((BuildTask) runnable).packageInfo.getPackagePath())
+                    && executor.remove(runnable)) {
+                PackageInfo packageInfo = ((BuildTask) runnable).packageInfo;
+                packageInfo.setQueuePosition(null);
+                packageInfo.setPackageStatus(PackageStatus.CANCELLED);
+                packageInfo.addLogMessage(CANCELLED_MESSAGE);
+                updateQueuePositions();
+                ((BuildTask) runnable).drop();
+                return true;
+            }
+        }
+        // the flag is set on the running task itself, so that it is discarded together with the task
+        return runningTasks.computeIfPresent(packagePath, (path, runningTask) -> {
+            runningTask.cancelled = true;
+            return runningTask;
+        }) != null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCancelRequested(final String packagePath) {
+        BuildTask runningTask = runningTasks.get(packagePath);
+        return runningTask != null && runningTask.cancelled;
+    }
+
+    /**
+     * Assigns the actual queue positions to the {@link PackageInfo} objects of the builds waiting for a worker
+     */
+    private synchronized void updateQueuePositions() {
+        int position = 1;
+        for (Runnable runnable : executor.getQueue()) {
+            if (runnable instanceof BuildTask) {
+                ((BuildTask) runnable).packageInfo.setQueuePosition(position++);
+            }
+        }
+    }
+
+    /**
+     * Gets the {@code RejectedExecutionHandler} matching the configured rejection policy
+     *
+     * @param policyName String value representing one of the {@link RejectionPolicy} constants
+     * @return {@code RejectedExecutionHandler} instance
+     */
+    private RejectedExecutionHandler getRejectionHandler(final String policyName) {
+        RejectionPolicy policy;
+        try {
+            policy = RejectionPolicy.valueOf(policyName);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            LOGGER.warn("Unknown rejection policy {}, falling back to {}", policyName, RejectionPolicy.ABORT);
+            policy = RejectionPolicy.ABORT;
+        }
+        switch (policy) {
+            case CALLER_RUNS:
+                return (runnable, pool) -> {
+                    if (!pool.isShutdown()) {
+                        runnable.run();
+                    }
+                };
+            case DISCARD_OLDEST:
+                return (runnable, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException();
+                    }
+                    Runnable discarded = pool.getQueue().poll();
+                    pool.execute(runnable);
+                    if (discarded instanceof BuildTask) {
+                        PackageInfo discardedInfo = ((BuildTask) discarded).packageInfo;
+                        discardedInfo.setQueuePosition(null);
+                        discardedInfo.setPackageStatus(PackageStatus.ERROR);
+                        discardedInfo.addLogMessage(BasePackageServiceImpl.ERROR + DISCARDED_MESSAGE);
+                        // run after the new task is queued since the callback may submit further tasks
+                        ((BuildTask) discarded).drop();
+                    }
+                };
+            default:
+                return new ThreadPoolExecutor.AbortPolicy();
+        }
+    }
+
+    /**
+     * Wraps a build or install routine to keep track of the {@link PackageInfo} it reports to
+     */
+    private class BuildTask implements Runnable {
+        private final PackageInfo packageInfo;
+        private final PackageStatus runningStatus;
+        private final Runnable task;
+        private final Runnable onDropped;
+        private volatile boolean cancelled;
+
+        private BuildTask(final PackageInfo packageInfo,
+                          final PackageStatus runningStatus,
+                          final Runnable task,
+                          final Runnable onDropped) {
+            this.packageInfo = packageInfo;
+            this.runningStatus = runningStatus;
+            this.task = task;
+            this.onDropped = onDropped;
+        }
+
+        /**
+         * Called when the current task is removed from the queue without having run
+         */
+        private void drop() {
+            if (onDropped == null) {
+                return;
+            }
+            try {
+                onDropped.run();
+            } catch (RuntimeException e) {
+                LOGGER.error("Unexpected error while dropping the task for package {}", packageInfo.getPackagePath(), e);
+            }
+        }
+
+        @Override
+        public void run() {
+            String packagePath = packageInfo.getPackagePath();
+            packageInfo.setQueuePosition(null);
+            packageInfo.setPackageStatus(runningStatus);
+            updateQueuePositions();
+            if (packagePath != null) {
+                runningTasks.put(packagePath, this);
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                packageInfo.setPackageStatus(PackageStatus.ERROR);
+                packageInfo.addLogMessage(BasePackageServiceImpl.ERROR + e.getMessage());
+                LOGGER.error("Unexpected error during processing of package {}", packagePath, e);
+            } finally {
+                if (packagePath != null) {
+                    runningTasks.remove(packagePath, this);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates named daemon worker threads
+     */
+    private static class BuildThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+        private final String prefix;
+
+        private BuildThreadFactory(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -13,26 +13,40 @@
  */
 package com.exadel.etoolbox.backpack.core.services.pckg.impl;
 
+import com.exadel.etoolbox.backpack.core.dto.repository.ContentFingerprint;
+import com.exadel.etoolbox.backpack.core.dto.repository.PackageJob;
+import com.exadel.etoolbox.backpack.core.dto.response.BatchInfo;
+import com.exadel.etoolbox.backpack.core.dto.response.BuildMode;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
+import com.exadel.etoolbox.backpack.core.services.ContentFingerprintService;
 import com.exadel.etoolbox.backpack.core.services.LoggerService;
 import com.exadel.etoolbox.backpack.core.services.SessionService;
 import com.exadel.etoolbox.backpack.core.services.pckg.BasePackageService;
+import com.exadel.etoolbox.backpack.core.services.pckg.BuildExecutorService;
 import com.exadel.etoolbox.backpack.core.services.pckg.BuildPackageService;
 import com.exadel.etoolbox.backpack.core.services.pckg.PackageInfoService;
+import com.exadel.etoolbox.backpack.core.services.pckg.PackageJobService;
+import com.exadel.etoolbox.backpack.core.servlets.model.BatchBuildModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.BuildPackageModel;
 import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.StopWatch;
+import org.apache.jackrabbit.JcrConstants;
 import org.apache.jackrabbit.vault.fs.api.PathFilterSet;
-import org.apache.jackrabbit.vault.fs.api.ProgressTrackerListener;
 import org.apache.jackrabbit.vault.fs.config.DefaultWorkspaceFilter;
+import org.apache.jackrabbit.vault.fs.io.ExportOptions;
+import org.apache.jackrabbit.vault.packaging.Dependency;
 import org.apache.jackrabbit.vault.packaging.JcrPackage;
 import org.apache.jackrabbit.vault.packaging.JcrPackageDefinition;
 import org.apache.jackrabbit.vault.packaging.JcrPackageManager;
 import org.apache.jackrabbit.vault.packaging.PackageException;
+import org.apache.jackrabbit.vault.packaging.PackageId;
+import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
@@ -42,21 +56,62 @@ import javax.jcr.Node;
 import javax.jcr.RepositoryException;
 import javax.jcr.Session;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.zip.Deflater;
 
 /**
  * Implements {@link BuildPackageService} to provide build package operations
  */
-@Component(service = BuildPackageService.class)
+@Component(service = BuildPackageService.class, immediate = true)
 public class BuildPackageImpl implements BuildPackageService {
     private static final String SERVICE_NAME = "backpack-service";
+    private static final String RESUMED_BUILD_MESSAGE = "Package build resumed after an instance restart";
+    private static final String PACKAGE_UP_TO_DATE_MESSAGE = "Neither the package filter nor the filtered content has changed since the last build. The package is up to date";
+    private static final String DELTA_NOT_APPLICABLE_MESSAGE = "Content under the package filter was added or removed since the last build. Performing the full build";
+    private static final String DELTA_NOT_NEEDED_MESSAGE = "No content under the package filter has been modified since the last build. No delta package is needed";
+    private static final String DELTA_PACKAGE_BUILT_MESSAGE = "Delta package %s built with %d modified subtree(s)";
+    private static final String DELTA_PACKAGE_SUFFIX = "-delta";
+    private static final String SPLIT_NOT_NEEDED_MESSAGE = "The package does not exceed the maximal part size. Performing the full build";
+    private static final String OVERSIZED_PART_MESSAGE = "Filter root %s exceeds the maximal part size by itself and is placed in a separate part";
+    private static final String PART_PACKAGE_BUILT_MESSAGE = "Package part %s built with %d filter root(s)";
+    private static final String INDEX_PACKAGE_BUILT_MESSAGE = "Index package %s built with dependencies on %d part(s)";
+    private static final String PART_PACKAGE_SUFFIX = "-part-";
+    private static final String INDEX_PACKAGE_SUFFIX = "-index";
+    private static final String BUILD_CANCELLED_MESSAGE = "Package build cancelled";
+    private static final String CANCEL_REQUESTED_MESSAGE = "Cancelling package build...";
+    private static final String NOTHING_TO_CANCEL_MESSAGE = "The package is not being built";
+    private static final String PACKAGE_IS_BUSY_MESSAGE = "The package is already being built or installed";
+    private static final String CONTENT_FINGERPRINTS = "contentFingerprints";
+    private static final String BUILD_HASH = "buildHash";
+    private static final String BUILD_HASH_ALGORITHM = "SHA-256";
+    private static final String ARCHIVE_FILE_PREFIX = "backpack-";
+    private static final String ARCHIVE_FILE_SUFFIX = ".zip";
+    private static final String USER_SESSION_PARAMETER = "user.jcr.session";
+    private static final Type FINGERPRINTS_TYPE = new TypeToken<Map<String, ContentFingerprint>>() {
+    }.getType();
 
     private static final Logger LOGGER = LoggerFactory.getLogger(BuildPackageImpl.class);
 
@@ -74,6 +129,42 @@ public class BuildPackageImpl implements BuildPackageService {
     @Reference
     private LoggerService loggerService;
 
+    @Reference
+    private BuildExecutorService buildExecutorService;
+
+    @Reference
+    private PackageJobService packageJobService;
+
+    @Reference
+    private ContentFingerprintService contentFingerprintService;
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    private ResourceResolverFactory resourceResolverFactory;
+
+    // builds of each running batch that are waiting for a free slot within the batch
+    private final Map<BatchInfo, Queue<Map.Entry<PackageJob, PackageInfo>>> pendingBatchBuilds = new ConcurrentHashMap<>();
+
+    /**
+     * Run upon this OSGi service activation to resume the package builds that were persisted but not completed
+     * before the instance had been stopped. Assembling a package is repeatable, so both pending and interrupted builds
+     * are started anew
+     */
+    @Activate
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void activate() {
+        for (PackageJob job : packageJobService.getJobs(PackageJob.Type.BUILD)) {
+            PackageInfo packageInfo = packageJobService.restorePackageInfo(job);
+            if (PackageStatus.ERROR.equals(packageInfo.getPackageStatus())) {
+                packageJobService.complete(job);
+                continue;
+            }
+            packageInfo.clearLog();
+            packageInfo.addLogMessage(RESUMED_BUILD_MESSAGE);
+            buildPackageAsync(job, packageInfo);
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -90,7 +181,7 @@ public class BuildPackageImpl implements BuildPackageService {
         JcrPackageManager packMgr = basePackageService.getPackageManager(session);
         Node packageNode;
         JcrPackage jcrPackage = null;
-        AtomicLong totalSize = new AtomicLong();
+        List<String> includedPaths = new ArrayList<>();
 
         try {
             packageNode = session.getNode(requestInfo.getPackagePath());
@@ -106,13 +197,13 @@ public class BuildPackageImpl implements BuildPackageService {
                     }
                     includeGeneralResources(definition, s -> {
                         packageInfo.addLogMessage("A " + s);
-                        totalSize.addAndGet(basePackageService.getAssetSize(resourceResolver, s));
+                        includedPaths.add(s);
                     });
                     includeReferencedResources(requestInfo.getReferencedResources(), definition, s -> {
                         packageInfo.addLogMessage("A " + s);
-                        totalSize.addAndGet(basePackageService.getAssetSize(resourceResolver, s));
+                        includedPaths.add(s);
                     });
-                    packageInfo.setDataSize(totalSize.get());
+                    packageInfo.setDataSize(basePackageService.getAssetSize(resourceResolver, includedPaths));
                     packageInfo.setPackageBuilt(definition.getLastWrapped());
                     long finish = System.currentTimeMillis();
                     packageInfo.addLogMessage("Package test built in " + (finish - start) + " milliseconds");
@@ -130,7 +221,7 @@ public class BuildPackageImpl implements BuildPackageService {
     }
 
     /**
-     * Performs the internal package building procedure and stores status information
+     * Performs the internal package building procedure in the {@link BuildMode#FULL} mode and stores status information
      *
      * @param userId              User ID per the effective {@code ResourceResolver}
      * @param packageBuildInfo    {@link PackageInfo} object to store package building status information in
@@ -140,9 +231,33 @@ public class BuildPackageImpl implements BuildPackageService {
     void buildPackage(final String userId,
                       final PackageInfo packageBuildInfo,
                       final String referencedResources) {
+        BuildPackageModel requestInfo = new BuildPackageModel();
+        requestInfo.setPackagePath(packageBuildInfo.getPackagePath());
+        requestInfo.setReferencedResources(referencedResources);
+        buildPackage(userId, packageBuildInfo, requestInfo);
+    }
+
+    /**
+     * Performs the internal package building procedure and stores status information
+     *
+     * @param userId           User ID per the effective {@code ResourceResolver}
+     * @param packageBuildInfo {@link PackageInfo} object to store package building status information in
+     * @param requestInfo      {@link BuildPackageModel} instance containing user-set options for the package building,
+     *                         such as the referenced resources, the {@link BuildMode} and the compression level
+     */
+
+    void buildPackage(final String userId,
+                      final PackageInfo packageBuildInfo,
+                      final BuildPackageModel requestInfo) {
+        BuildMode buildMode = requestInfo.getBuildMode();
+        int compressionLevel = requestInfo.getCompressionLevel() != null
+                ? requestInfo.getCompressionLevel()
+                : basePackageService.getCompressionLevel();
         Session userSession = null;
+        ResourceResolver resourceResolver = null;
         try {
             userSession = sessionService.getUserImpersonatedSession(userId);
+            resourceResolver = resourceResolverFactory.getResourceResolver(Collections.<String, Object>singletonMap(USER_SESSION_PARAMETER, userSession));
             JcrPackageManager packMgr = basePackageService.getPackageManager(userSession);
             JcrPackage jcrPackage = packMgr.open(userSession.getNode(packageBuildInfo.getPackagePath()));
             if (jcrPackage != null) {
@@ -150,22 +265,46 @@ public class BuildPackageImpl implements BuildPackageService {
                 JcrPackageDefinition definition = Objects.requireNonNull(jcrPackage.getDefinition());
                 DefaultWorkspaceFilter filter = new DefaultWorkspaceFilter();
                 includeGeneralResources(definition, s -> filter.add(new PathFilterSet(s)));
-                includeReferencedResources(referencedResources, definition, s -> filter.add(new PathFilterSet(s)));
-                definition.setFilter(filter, true);
+                includeReferencedResources(requestInfo.getReferencedResources(), definition, s -> filter.add(new PathFilterSet(s)));
                 String thumbnailPath = StringUtils.defaultIfBlank(packageBuildInfo.getThumbnailPath(), basePackageService.getDefaultThumbnailPath(false));
+                // fingerprinting walks the whole filtered content, so it is only done when the result is going to be used
+                Map<String, ContentFingerprint> fingerprints = null;
+                String buildHash = null;
+                if (isContentTracked(buildMode)) {
+                    fingerprints = getFingerprints(resourceResolver, filter);
+                    buildHash = getBuildHash(filter, thumbnailPath, compressionLevel, fingerprints);
+                }
+                if (buildHash != null && isUpToDate(jcrPackage, definition, buildHash)) {
+                    packageBuildInfo.setPackageStatus(PackageStatus.BUILT);
+                    packageBuildInfo.setDataSize(jcrPackage.getSize());
+                    packageBuildInfo.addLogMessage(PACKAGE_UP_TO_DATE_MESSAGE);
+                    return;
+                }
+                if (BuildMode.SPLIT.equals(buildMode)
+                        && buildSplitPackages(resourceResolver, packMgr, definition, packageBuildInfo, filter, compressionLevel)) {
+                    packageBuildInfo.addLogMessage("Package parts built in " + stopWatch);
+                    return;
+                }
+                if (BuildMode.DELTA.equals(buildMode) && definition.getBuildCount() > 0) {
+                    Map<String, ContentFingerprint> previousFingerprints = GSON.fromJson(definition.get(CONTENT_FINGERPRINTS), FINGERPRINTS_TYPE);
+                    if (buildDeltaPackage(resourceResolver, packMgr, definition, packageBuildInfo, previousFingerprints, fingerprints, compressionLevel)) {
+                        packageBuildInfo.addLogMessage("Delta build completed in " + stopWatch);
+                        return;
+                    }
+                }
+                // the hash of an interrupted build must not match, so it is stored only after the package is assembled
+                definition.set(BUILD_HASH, (String) null, false);
+                definition.setFilter(filter, true);
                 basePackageService.addThumbnail(definition.getNode(), thumbnailPath, userSession);
                 packageBuildInfo.setPackageStatus(PackageStatus.BUILD_IN_PROGRESS);
-                packMgr.assemble(jcrPackage, new ProgressTrackerListener() {
-                    @Override
-                    public void onMessage(final Mode mode, final String statusCode, final String path) {
-                        packageBuildInfo.addLogMessage(statusCode + " " + path);
-                    }
-
-                    @Override
-                    public void onError(final Mode mode, final String s, final Exception e) {
-                        packageBuildInfo.addLogMessage(s + " " + e.getMessage());
-                    }
-                });
+                if (buildExecutorService.isCancelRequested(packageBuildInfo.getPackagePath())) {
+                    throw new BuildCancelledException();
+                }
+                try (PackageLogListener listener = getProgressTrackerListener(packageBuildInfo)) {
+                    assemble(packMgr, jcrPackage, listener, compressionLevel, userSession);
+                }
+                definition.set(CONTENT_FINGERPRINTS, fingerprints != null ? GSON.toJson(fingerprints) : null, false);
+                definition.set(BUILD_HASH, buildHash, true);
                 packageBuildInfo.setPackageReplicated(null);
                 packageBuildInfo.setPackageBuilt(Calendar.getInstance());
                 packageBuildInfo.setPackageStatus(PackageStatus.BUILT);
@@ -176,15 +315,376 @@ public class BuildPackageImpl implements BuildPackageService {
                 packageBuildInfo.setPackageStatus(PackageStatus.ERROR);
                 packageBuildInfo.addLogMessage(BasePackageServiceImpl.ERROR + String.format(BasePackageServiceImpl.PACKAGE_DOES_NOT_EXIST_MESSAGE, packageBuildInfo.getPackagePath()));
             }
-        } catch (RepositoryException | PackageException | IOException e) {
+        } catch (BuildCancelledException e) {
+            onBuildCancelled(packageBuildInfo, userSession);
+        } catch (RepositoryException | PackageException | IOException | LoginException e) {
+            if (buildExecutorService.isCancelRequested(packageBuildInfo.getPackagePath())) {
+                // the abort signalled from the listener may arrive wrapped by the packaging routine
+                onBuildCancelled(packageBuildInfo, userSession);
+                return;
+            }
             packageBuildInfo.setPackageStatus(PackageStatus.ERROR);
             loggerService.addExceptionToLog(packageBuildInfo, e);
             LOGGER.error("Error during package generation", e);
         } finally {
+            if (resourceResolver != null) {
+                resourceResolver.close();
+            }
             sessionService.closeSession(userSession);
         }
     }
 
+    /**
+     * Called from {@link BuildPackageImpl#buildPackage(String, PackageInfo, BuildPackageModel)} to get the
+     * {@link ContentFingerprint}s of the package filter roots
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param filter           {@code DefaultWorkspaceFilter} of the package
+     * @return {@code Map} of fingerprints by filter root paths
+     */
+    private Map<String, ContentFingerprint> getFingerprints(final ResourceResolver resourceResolver,
+                                                            final DefaultWorkspaceFilter filter) {
+        Map<String, ContentFingerprint> fingerprints = new TreeMap<>();
+        for (PathFilterSet filterSet : filter.getFilterSets()) {
+            ContentFingerprint fingerprint = contentFingerprintService.getFingerprint(resourceResolver, filterSet.getRoot());
+            if (fingerprint != null) {
+                fingerprints.put(filterSet.getRoot(), fingerprint);
+            }
+        }
+        return fingerprints;
+    }
+
+    /**
+     * Called from {@link BuildPackageImpl#buildPackage(String, PackageInfo, BuildPackageModel)} to compute the hash
+     * of everything the package contents depend on: the resolved filter, the thumbnail, the compression level,
+     * and the fingerprints of the filtered content
+     *
+     * @param filter           {@code DefaultWorkspaceFilter} of the package
+     * @param thumbnailPath    Path to the package thumbnail
+     * @param compressionLevel Compression level of the package archive
+     * @param fingerprints     {@link ContentFingerprint}s of the filter roots
+     * @return String value representing a hex-encoded SHA-256 hash
+     */
+    private static String getBuildHash(final DefaultWorkspaceFilter filter,
+                                       final String thumbnailPath,
+                                       final int compressionLevel,
+                                       final Map<String, ContentFingerprint> fingerprints) {
+        StringBuilder source = new StringBuilder();
+        for (PathFilterSet filterSet : filter.getFilterSets()) {
+            source.append(filterSet.getRoot()).append('\n');
+        }
+        source.append(thumbnailPath).append('\n')
+                .append(compressionLevel).append('\n')
+                .append(GSON.toJson(fingerprints));
+        try {
+            byte[] digest = MessageDigest.getInstance(BUILD_HASH_ALGORITHM).digest(source.toString().getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Called from {@link BuildPackageImpl#buildPackage(String, PackageInfo, BuildPackageModel)} to get whether
+     * the fingerprints of the filtered content are needed for the current build. They are needed to check whether
+     * the package is up to date, which is done in the {@link BuildMode#INCREMENTAL} and {@link BuildMode#DELTA} modes,
+     * and in the {@link BuildMode#FULL} mode if enabled in the configuration; and to assemble a delta package.
+     * In the {@link BuildMode#SPLIT} mode they are not needed since the parts are separate packages
+     *
+     * @param buildMode {@link BuildMode} of the current build
+     * @return True or false
+     */
+    private boolean isContentTracked(final BuildMode buildMode) {
+        return BuildMode.INCREMENTAL.equals(buildMode)
+                || BuildMode.DELTA.equals(buildMode)
+                || BuildMode.FULL.equals(buildMode) && basePackageService.isSkipUnchangedBuilds();
+    }
+
+    /**
+     * Called from {@link BuildPackageImpl#buildPackage(String, PackageInfo, BuildPackageModel)} to check whether
+     * the package has been built before with the same filter and content, so that assembling it anew can be skipped
+     *
+     * @param jcrPackage {@code JcrPackage} being built
+     * @param definition {@code JcrPackageDefinition} of the package
+     * @param buildHash  Hash computed for the current build
+     * @return True if the existing package is up to date; otherwise, false
+     * @throws RepositoryException in case of a JCR storage failure
+     */
+    private boolean isUpToDate(final JcrPackage jcrPackage,
+                               final JcrPackageDefinition definition,
+                               final String buildHash) throws RepositoryException {
+        return definition.getBuildCount() > 0
+                && jcrPackage.getSize() > 0
+                && buildHash.equals(definition.get(BUILD_HASH));
+    }
+
+    /**
+     * Called from {@link BuildPackageImpl#buildPackage(String, PackageInfo, BuildPackageModel)} to assemble a sibling
+     * package containing only the subtrees modified since the last full build. The delta cannot represent removed
+     * content, so the method gives up if the set of filter roots or the number of nodes under any of them has changed.
+     * If no subtree has been modified, nothing is assembled
+     *
+     * @param resourceResolver     {@code ResourceResolver} used to access JCR resources
+     * @param packMgr              {@code JcrPackageManager} instance
+     * @param definition           {@code JcrPackageDefinition} of the full package
+     * @param packageBuildInfo     {@link PackageInfo} object to store package building status information in
+     * @param previousFingerprints {@link ContentFingerprint}s recorded at the last full build
+     * @param fingerprints         Current {@link ContentFingerprint}s
+     * @param compressionLevel     Compression level of the package archive
+     * @return True if the delta package has been built or is not needed; false if a full build is required
+     * @throws RepositoryException in case of a JCR storage failure
+     * @throws PackageException    in case of a package assembling failure
+     * @throws IOException         in case of a package assembling failure
+     */
+    private boolean buildDeltaPackage(final ResourceResolver resourceResolver,
+                                      final JcrPackageManager packMgr,
+                                      final JcrPackageDefinition definition,
+                                      final PackageInfo packageBuildInfo,
+                                      final Map<String, ContentFingerprint> previousFingerprints,
+                                      final Map<String, ContentFingerprint> fingerprints,
+                                      final int compressionLevel) throws RepositoryException, PackageException, IOException {
+        if (previousFingerprints == null || !previousFingerprints.keySet().equals(fingerprints.keySet())
+                || previousFingerprints.entrySet().stream().anyMatch(entry -> entry.getValue().getNodeCount() != fingerprints.get(entry.getKey()).getNodeCount())) {
+            packageBuildInfo.addLogMessage(DELTA_NOT_APPLICABLE_MESSAGE);
+            return false;
+        }
+        DefaultWorkspaceFilter deltaFilter = new DefaultWorkspaceFilter();
+        previousFingerprints.forEach((root, fingerprint) -> contentFingerprintService
+                .getModifiedPaths(resourceResolver, root, fingerprint.getLastModified())
+                .forEach(path -> deltaFilter.add(new PathFilterSet(path))));
+        if (deltaFilter.getFilterSets().isEmpty()) {
+            packageBuildInfo.setPackageStatus(PackageStatus.BUILT);
+            packageBuildInfo.addLogMessage(DELTA_NOT_NEEDED_MESSAGE);
+            return true;
+        }
+
+        JcrPackage deltaPackage = createSiblingPackage(packMgr, definition, DELTA_PACKAGE_SUFFIX);
+        try {
+            JcrPackageDefinition deltaDefinition = Objects.requireNonNull(deltaPackage.getDefinition());
+            deltaDefinition.setFilter(deltaFilter, true);
+            packageBuildInfo.setPackageStatus(PackageStatus.BUILD_IN_PROGRESS);
+            try (PackageLogListener listener = getProgressTrackerListener(packageBuildInfo)) {
+                assemble(packMgr, deltaPackage, listener, compressionLevel, resourceResolver.adaptTo(Session.class));
+            }
+            packageBuildInfo.setPackageStatus(PackageStatus.BUILT);
+            packageBuildInfo.addLogMessage(String.format(DELTA_PACKAGE_BUILT_MESSAGE,
+                    getPackagePath(deltaPackage),
+                    deltaFilter.getFilterSets().size()));
+        } finally {
+            deltaPackage.close();
+        }
+        return true;
+    }
+
+    /**
+     * Called from {@link BuildPackageImpl#buildPackage(String, PackageInfo, BuildPackageModel)} to distribute the filter
+     * roots of an oversized package among several sibling packages (<i>parts</i>) not exceeding the configured size,
+     * and to create an index package that depends on all the parts. The original package is left intact
+     *
+     * @param resourceResolver {@code ResourceResolver} used to access JCR resources
+     * @param packMgr          {@code JcrPackageManager} instance
+     * @param definition       {@code JcrPackageDefinition} of the original package
+     * @param packageBuildInfo {@link PackageInfo} object to store package building status information in
+     * @param filter           {@code DefaultWorkspaceFilter} resolved for the original package
+     * @param compressionLevel Compression level of the package archives
+     * @return True if the parts have been built; false if the package fits in a single part, so that a full build
+     * is required
+     * @throws RepositoryException in case of a JCR storage failure
+     * @throws PackageException    in case of a package assembling failure
+     * @throws IOException         in case of a package assembling failure
+     */
+    private boolean buildSplitPackages(final ResourceResolver resourceResolver,
+                                       final JcrPackageManager packMgr,
+                                       final JcrPackageDefinition definition,
+                                       final PackageInfo packageBuildInfo,
+                                       final DefaultWorkspaceFilter filter,
+                                       final int compressionLevel) throws RepositoryException, PackageException, IOException {
+        long maxPartSize = basePackageService.getMaxPartSize();
+        Map<String, Long> rootSizes = new LinkedHashMap<>();
+        for (PathFilterSet filterSet : filter.getFilterSets()) {
+            rootSizes.merge(filterSet.getRoot(), basePackageService.getAssetSize(resourceResolver, filterSet.getRoot()), Math::max);
+        }
+        List<List<String>> parts = PackagePartitioner.partition(rootSizes, maxPartSize);
+        if (parts.size() < 2) {
+            packageBuildInfo.addLogMessage(SPLIT_NOT_NEEDED_MESSAGE);
+            return false;
+        }
+
+        Session session = resourceResolver.adaptTo(Session.class);
+        List<Dependency> dependencies = new ArrayList<>();
+        long totalSize = 0;
+        packageBuildInfo.setPackageStatus(PackageStatus.BUILD_IN_PROGRESS);
+        // a single listener is shared by all the parts so that the spilled log covers the whole split build
+        try (PackageLogListener listener = getProgressTrackerListener(packageBuildInfo)) {
+            for (int i = 0; i < parts.size(); i++) {
+                if (buildExecutorService.isCancelRequested(packageBuildInfo.getPackagePath())) {
+                    throw new BuildCancelledException();
+                }
+                DefaultWorkspaceFilter partFilter = new DefaultWorkspaceFilter();
+                parts.get(i).forEach(root -> partFilter.add(new PathFilterSet(root)));
+                long estimatedSize = parts.get(i).stream().mapToLong(rootSizes::get).sum();
+                if (estimatedSize > maxPartSize) {
+                    packageBuildInfo.addLogMessage(String.format(OVERSIZED_PART_MESSAGE, parts.get(i).get(0)));
+                }
+                JcrPackage partPackage = createSiblingPackage(packMgr, definition, PART_PACKAGE_SUFFIX + (i + 1));
+                try {
+                    JcrPackageDefinition partDefinition = Objects.requireNonNull(partPackage.getDefinition());
+                    partDefinition.setFilter(partFilter, true);
+                    assemble(packMgr, partPackage, listener, compressionLevel, session);
+                    dependencies.add(new Dependency(partDefinition.getId()));
+                    totalSize += partPackage.getSize();
+                    packageBuildInfo.addLogMessage(String.format(PART_PACKAGE_BUILT_MESSAGE, getPackagePath(partPackage), parts.get(i).size()));
+                } finally {
+                    partPackage.close();
+                }
+            }
+
+            JcrPackage indexPackage = createSiblingPackage(packMgr, definition, INDEX_PACKAGE_SUFFIX);
+            try {
+                JcrPackageDefinition indexDefinition = Objects.requireNonNull(indexPackage.getDefinition());
+                indexDefinition.setDependencies(dependencies.toArray(new Dependency[0]), false);
+                indexDefinition.setFilter(new DefaultWorkspaceFilter(), true);
+                assemble(packMgr, indexPackage, listener, compressionLevel, session);
+                packageBuildInfo.addLogMessage(String.format(INDEX_PACKAGE_BUILT_MESSAGE, getPackagePath(indexPackage), parts.size()));
+            } finally {
+                indexPackage.close();
+            }
+        }
+        packageBuildInfo.setDataSize(totalSize);
+        packageBuildInfo.setPackageStatus(PackageStatus.BUILT);
+        return true;
+    }
+
+    /**
+     * Called from {@link BuildPackageImpl#buildDeltaPackage(ResourceResolver, JcrPackageManager, JcrPackageDefinition, PackageInfo, Map, Map, int)}
+     * and {@link BuildPackageImpl#buildSplitPackages(ResourceResolver, JcrPackageManager, JcrPackageDefinition, PackageInfo, DefaultWorkspaceFilter, int)}
+     * to create an empty package in the same group and of the same version as the given one, its name being suffixed.
+     * A previously existing package with the same requisites is removed
+     *
+     * @param packMgr    {@code JcrPackageManager} instance
+     * @param definition {@code JcrPackageDefinition} of the original package
+     * @param nameSuffix String value appended to the name of the original package
+     * @return {@code JcrPackage} instance
+     * @throws RepositoryException in case of a JCR storage failure
+     */
+    private static JcrPackage createSiblingPackage(final JcrPackageManager packMgr,
+                                                   final JcrPackageDefinition definition,
+                                                   final String nameSuffix) throws RepositoryException {
+        String group = definition.get(JcrPackageDefinition.PN_GROUP);
+        String name = definition.get(JcrPackageDefinition.PN_NAME) + nameSuffix;
+        String version = definition.get(JcrPackageDefinition.PN_VERSION);
+        JcrPackage existingPackage = packMgr.open(new PackageId(group, name, version));
+        if (existingPackage != null) {
+            packMgr.remove(existingPackage);
+        }
+        return packMgr.create(group, name, version);
+    }
+
+    /**
+     * Gets the JCR path of the given package for logging purposes
+     *
+     * @param jcrPackage {@code JcrPackage} instance
+     * @return String value
+     * @throws RepositoryException in case of a JCR storage failure
+     */
+    private static String getPackagePath(final JcrPackage jcrPackage) throws RepositoryException {
+        Node packageNode = jcrPackage.getNode();
+        return packageNode != null ? packageNode.getPath() : StringUtils.EMPTY;
+    }
+
+    /**
+     * Called from {@link BuildPackageImpl#buildPackage(String, PackageInfo, BuildPackageModel)} to assemble the package
+     * archive with the given compression level. With the default level, the assembling is delegated to the package
+     * manager. Otherwise, the archive is exported once with custom {@code ExportOptions} carrying the level, and is
+     * stored in the package node the same way the package manager does. The package definition node, including
+     * the thumbnail, is embedded into the archive by a {@link DefinitionExportProcessor}
+     *
+     * @param packMgr          {@code JcrPackageManager} instance
+     * @param jcrPackage       {@code JcrPackage} to assemble
+     * @param listener         {@link PackageLogListener} reporting the assembling progress
+     * @param compressionLevel Compression level from {@code 0} (store only) to {@code 9}, or {@code -1} for the default
+     * @param session          {@code Session} used for the package building
+     * @throws RepositoryException in case of a JCR storage failure
+     * @throws PackageException    in case of a package assembling failure
+     * @throws IOException         in case of a package assembling failure
+     */
+    private static void assemble(final JcrPackageManager packMgr,
+                                 final JcrPackage jcrPackage,
+                                 final PackageLogListener listener,
+                                 final int compressionLevel,
+                                 final Session session) throws RepositoryException, PackageException, IOException {
+        if (compressionLevel == Deflater.DEFAULT_COMPRESSION || session == null) {
+            packMgr.assemble(jcrPackage, listener);
+            return;
+        }
+        JcrPackageDefinition definition = Objects.requireNonNull(jcrPackage.getDefinition());
+        Node packageNode = Objects.requireNonNull(jcrPackage.getNode());
+        Calendar now = Calendar.getInstance();
+        definition.sealForAssembly(now, true);
+
+        ExportOptions options = new ExportOptions();
+        options.setMetaInf(definition.getMetaInf());
+        options.setListener(listener);
+        options.setCompressionLevel(compressionLevel);
+        options.setPostProcessor(new DefinitionExportProcessor(definition.getNode()));
+
+        Path archive = Files.createTempFile(ARCHIVE_FILE_PREFIX, ARCHIVE_FILE_SUFFIX);
+        try {
+            try (OutputStream out = Files.newOutputStream(archive)) {
+                packMgr.assemble(session, options, out);
+            }
+            Node contentNode = packageNode.getNode(JcrConstants.JCR_CONTENT);
+            try (InputStream in = Files.newInputStream(archive)) {
+                contentNode.setProperty(JcrConstants.JCR_DATA, session.getValueFactory().createBinary(in));
+            }
+            contentNode.setProperty(JcrConstants.JCR_LASTMODIFIED, now);
+            contentNode.setProperty(JcrConstants.JCR_MIMETYPE, JcrPackage.MIME_TYPE);
+            session.save();
+        } finally {
+            Files.deleteIfExists(archive);
+        }
+    }
+
+    /**
+     * Called from {@link BuildPackageImpl#buildPackage(String, PackageInfo, BuildPackageModel)} to report a build
+     * aborted upon user request and to discard the changes the build left pending in the session
+     *
+     * @param packageBuildInfo {@link PackageInfo} object to store package building status information in
+     * @param userSession      {@code Session} used for the package building
+     */
+    private void onBuildCancelled(final PackageInfo packageBuildInfo, final Session userSession) {
+        packageBuildInfo.setPackageStatus(PackageStatus.CANCELLED);
+        packageBuildInfo.addLogMessage(BUILD_CANCELLED_MESSAGE);
+        LOGGER.info("Build of {} cancelled", packageBuildInfo.getPackagePath());
+        try {
+            if (userSession != null && userSession.isLive()) {
+                userSession.refresh(false);
+            }
+        } catch (RepositoryException e) {
+            LOGGER.warn("Could not discard pending changes of the cancelled build", e);
+        }
+    }
+
+    /**
+     * Gets the {@link PackageLogListener} that reports package assembling progress to the given {@link PackageInfo}.
+     * The listener also aborts the assembling at the next node once the build is requested to be cancelled
+     *
+     * @param packageBuildInfo {@link PackageInfo} object to store package building status information in
+     * @return {@link PackageLogListener} instance
+     */
+    private PackageLogListener getProgressTrackerListener(final PackageInfo packageBuildInfo) {
+        return new PackageLogListener(packageBuildInfo, basePackageService.getLogTailSize(), basePackageService.isLogSpillEnabled()) {
+            @Override
+            public void onMessage(final Mode mode, final String statusCode, final String path) {
+                if (buildExecutorService.isCancelRequested(packageBuildInfo.getPackagePath())) {
+                    throw new BuildCancelledException();
+                }
+                super.onMessage(mode, statusCode, path);
+            }
+        };
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -193,29 +693,199 @@ public class BuildPackageImpl implements BuildPackageService {
     public PackageInfo buildPackage(final ResourceResolver resourceResolver,
                                     final BuildPackageModel requestInfo) {
         PackageInfo packageInfo = packageInfoService.getPackageInfo(resourceResolver, requestInfo);
-        if (!PackageStatus.BUILD_IN_PROGRESS.equals(packageInfo.getPackageStatus()) && !PackageStatus.INSTALL_IN_PROGRESS.equals(packageInfo.getPackageStatus())) {
-            packageInfo.setPackageStatus(PackageStatus.BUILD_IN_PROGRESS);
+        if (!isBusy(packageInfo)) {
             packageInfo.clearLog();
             basePackageService.getPackageInfos().put(requestInfo.getPackagePath(), packageInfo);
-            buildPackageAsync(resourceResolver.getUserID(), packageInfo, requestInfo.getReferencedResources());
+            PackageJob job = packageJobService.enqueue(PackageJob.Type.BUILD,
+                    requestInfo.getPackagePath(),
+                    resourceResolver.getUserID(),
+                    GSON.toJson(requestInfo));
+            buildPackageAsync(job, packageInfo);
         }
 
         return packageInfo;
     }
 
     /**
-     * Called from {@link BuildPackageImpl#buildPackage(ResourceResolver, BuildPackageModel)}.
-     * Encapsulates building package in a separate execution thread
+     * {@inheritDoc}
+     */
+    @Override
+    public PackageInfo cancelBuild(final ResourceResolver resourceResolver,
+                                   final BuildPackageModel requestInfo) {
+        PackageInfo packageInfo = packageInfoService.getPackageInfo(resourceResolver, requestInfo);
+        if (buildExecutorService.cancel(requestInfo.getPackagePath())
+                || cancelPendingBatchBuild(requestInfo.getPackagePath())) {
+            packageJobService.getJobs(PackageJob.Type.BUILD).stream()
+                    .filter(job -> requestInfo.getPackagePath().equals(job.getPackagePath()))
+                    .filter(job -> PackageJob.State.PENDING.equals(job.getState()))
+                    .forEach(packageJobService::complete);
+            if (!PackageStatus.CANCELLED.equals(packageInfo.getPackageStatus())) {
+                packageInfo.addLogMessage(CANCEL_REQUESTED_MESSAGE);
+            }
+        } else {
+            packageInfo.addLogMessage(BasePackageServiceImpl.ERROR + NOTHING_TO_CANCEL_MESSAGE);
+        }
+        return packageInfo;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BatchInfo buildPackages(final ResourceResolver resourceResolver,
+                                   final BatchBuildModel requestInfo) {
+        List<String> packagePaths = requestInfo.getPackagePaths();
+        BatchInfo batchInfo = new BatchInfo(UUID.randomUUID().toString(), packagePaths);
+        int concurrency = requestInfo.getConcurrency() > 0
+                ? Math.min(requestInfo.getConcurrency(), packagePaths.size())
+                : packagePaths.size();
+        batchInfo.setConcurrency(concurrency);
+        basePackageService.getBatchInfos().put(batchInfo.getBatchId(), batchInfo);
+
+        Queue<Map.Entry<PackageJob, PackageInfo>> pendingBuilds = new ConcurrentLinkedQueue<>();
+        for (String packagePath : packagePaths) {
+            BuildPackageModel buildPackageModel = new BuildPackageModel();
+            buildPackageModel.setPackagePath(packagePath);
+            buildPackageModel.setBuildMode(requestInfo.getBuildMode());
+            PackageInfo packageInfo = packageInfoService.getPackageInfo(resourceResolver, buildPackageModel);
+            if (packageInfo.getPackagePath() == null) {
+                batchInfo.onBuildSkipped(packagePath, String.format(BasePackageServiceImpl.PACKAGE_DOES_NOT_EXIST_MESSAGE, packagePath));
+                continue;
+            }
+            if (isBusy(packageInfo)) {
+                batchInfo.onBuildSkipped(packagePath, PACKAGE_IS_BUSY_MESSAGE);
+                continue;
+            }
+            packageInfo.clearLog();
+            // reported as queued while waiting for a free slot within the batch
+            packageInfo.setPackageStatus(PackageStatus.QUEUED);
+            basePackageService.getPackageInfos().put(packagePath, packageInfo);
+            PackageJob job = packageJobService.enqueue(PackageJob.Type.BUILD,
+                    packagePath,
+                    resourceResolver.getUserID(),
+                    GSON.toJson(buildPackageModel));
+            pendingBuilds.add(new AbstractMap.SimpleImmutableEntry<>(job, packageInfo));
+        }
+
+        if (!pendingBuilds.isEmpty()) {
+            pendingBatchBuilds.put(batchInfo, pendingBuilds);
+        }
+        for (int i = 0; i < concurrency; i++) {
+            submitNextBatchBuild(batchInfo, pendingBuilds);
+        }
+        return new BatchInfo(batchInfo);
+    }
+
+    /**
+     * Called from {@link BuildPackageImpl#buildPackages(ResourceResolver, BatchBuildModel)} and upon completion of
+     * a batch build to start the next pending build of the batch. This way no more than the allowed number of packages
+     * of a batch are being built simultaneously
      *
-     * @param userId              User ID per the effective {@code ResourceResolver}
-     * @param packageBuildInfo    {@link PackageInfo} object to store package building status information in
-     * @param referencedResources JSON string representing resources to be embedded in the resulting package
+     * @param batchInfo     {@link BatchInfo} object to store the batch progress in
+     * @param pendingBuilds {@code Queue} of persisted jobs paired with the {@link PackageInfo} objects of packages
+     *                      waiting to be built
      */
+    private void submitNextBatchBuild(final BatchInfo batchInfo,
+                                      final Queue<Map.Entry<PackageJob, PackageInfo>> pendingBuilds) {
+        Map.Entry<PackageJob, PackageInfo> nextBuild = pendingBuilds.poll();
+        if (nextBuild == null) {
+            pendingBatchBuilds.remove(batchInfo);
+            return;
+        }
+        PackageInfo packageInfo = nextBuild.getValue();
+        boolean accepted = buildPackageAsync(nextBuild.getKey(), packageInfo, () -> {
+            batchInfo.onBuildFinished(packageInfo);
+            submitNextBatchBuild(batchInfo, pendingBuilds);
+        });
+        if (!accepted) {
+            batchInfo.onBuildFinished(packageInfo);
+            submitNextBatchBuild(batchInfo, pendingBuilds);
+        }
+    }
 
-    private void buildPackageAsync(final String userId,
-                                   final PackageInfo packageBuildInfo,
-                                   final String referencedResources) {
-        new Thread(() -> buildPackage(userId, packageBuildInfo, referencedResources)).start();
+    /**
+     * Called from {@link BuildPackageImpl#cancelBuild(ResourceResolver, BuildPackageModel)} to cancel the build of
+     * a package that is waiting for a free slot within its batch and therefore has not yet been handed over to
+     * the {@link BuildExecutorService}
+     *
+     * @param packagePath String value representing path to the package in the JCR storage
+     * @return True if a pending batch build has been found for the package and cancelled; otherwise, false
+     */
+    private boolean cancelPendingBatchBuild(final String packagePath) {
+        for (Map.Entry<BatchInfo, Queue<Map.Entry<PackageJob, PackageInfo>>> batch : pendingBatchBuilds.entrySet()) {
+            for (Map.Entry<PackageJob, PackageInfo> pendingBuild : batch.getValue()) {
+                if (packagePath.equals(pendingBuild.getValue().getPackagePath()) && batch.getValue().remove(pendingBuild)) {
+                    PackageInfo packageInfo = pendingBuild.getValue();
+                    packageInfo.setPackageStatus(PackageStatus.CANCELLED);
+                    packageInfo.addLogMessage(BUILD_CANCELLED_MESSAGE);
+                    packageJobService.complete(pendingBuild.getKey());
+                    batch.getKey().onBuildFinished(packageInfo);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets whether the package is queued for building or is being built or installed
+     *
+     * @param packageInfo {@link PackageInfo} of the package
+     * @return True or false
+     */
+    private static boolean isBusy(final PackageInfo packageInfo) {
+        return PackageStatus.QUEUED.equals(packageInfo.getPackageStatus())
+                || PackageStatus.BUILD_IN_PROGRESS.equals(packageInfo.getPackageStatus())
+                || PackageStatus.INSTALL_IN_PROGRESS.equals(packageInfo.getPackageStatus());
+    }
+
+    /**
+     * Called from {@link BuildPackageImpl#buildPackage(ResourceResolver, BuildPackageModel)} and upon the service
+     * activation. Hands the package building over to the {@link BuildExecutorService} so that it runs in a bounded pool
+     * of worker threads, and removes the persisted job once the building is over
+     *
+     * @param job              {@link PackageJob} persisted for the current build; holds the requesting user ID and
+     *                         the JSON-coded {@link BuildPackageModel}
+     * @param packageBuildInfo {@link PackageInfo} object to store package building status information in
+     */
+
+    private void buildPackageAsync(final PackageJob job,
+                                   final PackageInfo packageBuildInfo) {
+        buildPackageAsync(job, packageBuildInfo, null);
+    }
+
+    /**
+     * Hands the package building over to the {@link BuildExecutorService} and removes the persisted job once
+     * the building is over, or once the build is cancelled or discarded while still queued
+     *
+     * @param job              {@link PackageJob} persisted for the current build
+     * @param packageBuildInfo {@link PackageInfo} object to store package building status information in
+     * @param onComplete       Optional routine run after the building is over, or after the build is dropped from
+     *                         the queue
+     * @return True if the build has been accepted by the executor; otherwise, false
+     */
+    private boolean buildPackageAsync(final PackageJob job,
+                                      final PackageInfo packageBuildInfo,
+                                      final Runnable onComplete) {
+        Runnable onOver = () -> {
+            packageJobService.complete(job);
+            if (onComplete != null) {
+                onComplete.run();
+            }
+        };
+        boolean accepted = buildExecutorService.submit(packageBuildInfo, PackageStatus.BUILD_IN_PROGRESS, () -> {
+            packageJobService.start(job);
+            try {
+                BuildPackageModel requestInfo = GSON.fromJson(job.getParameters(), BuildPackageModel.class);
+                buildPackage(job.getUserId(), packageBuildInfo, requestInfo);
+            } finally {
+                onOver.run();
+            }
+        }, onOver);
+        if (!accepted) {
+            packageJobService.complete(job);
+        }
+        return accepted;
     }
 
     /**
@@ -264,4 +934,11 @@ public class BuildPackageImpl implements BuildPackageService {
             packageGeneralResources.forEach(pathConsumer);
         }
     }
+
+    /**
+     * Thrown from the {@code ProgressTrackerListener} to abort package assembling upon user request
+     */
+    private static class BuildCancelledException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
 }
@@ -77,7 +77,7 @@ public class CreatePackageServiceImpl implements CreatePackageService {
             return packageInfo;
         }
 
-        Set<ReferencedItem> referencedAssets = basePackageService.getReferencedResources(resourceResolver, packageInfo.getPaths());
+        Set<ReferencedItem> referencedAssets = basePackageService.getReferencedResources(resourceResolver, packageInfo.getPaths(), packageInfo.getReferenceDepth()).keySet();
         Collection<String> resultingPaths = basePackageService.initAssets(packageInfo.getPaths(), referencedAssets, packageInfo);
         DefaultWorkspaceFilter filter = basePackageService.getWorkspaceFilter(resultingPaths);
         createPackage(session, packageInfo, packageModel.getPaths(), filter);
@@ -0,0 +1,82 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg.impl;
+
+import org.apache.jackrabbit.util.Text;
+import org.apache.jackrabbit.vault.fs.Mounter;
+import org.apache.jackrabbit.vault.fs.api.PathFilterSet;
+import org.apache.jackrabbit.vault.fs.api.RepositoryAddress;
+import org.apache.jackrabbit.vault.fs.api.VaultFileSystem;
+import org.apache.jackrabbit.vault.fs.config.DefaultWorkspaceFilter;
+import org.apache.jackrabbit.vault.fs.io.AbstractExporter;
+import org.apache.jackrabbit.vault.fs.io.ExportPostProcessor;
+import org.apache.jackrabbit.vault.util.Constants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+/**
+ * Implements {@code ExportPostProcessor} to embed the package definition node, including the thumbnail, into
+ * a package archive exported with custom {@code ExportOptions}. Mirrors what the package manager does when it
+ * assembles a package with the default options
+ */
+class DefinitionExportProcessor implements ExportPostProcessor {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefinitionExportProcessor.class);
+
+    private static final String DEFINITION_DIRECTORY = "definition";
+
+    private final Node definitionNode;
+
+    /**
+     * Basic constructor
+     *
+     * @param definitionNode {@code Node} representing the package definition
+     */
+    DefinitionExportProcessor(final Node definitionNode) {
+        this.definitionNode = definitionNode;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void process(final AbstractExporter exporter) {
+        try {
+            Session session = definitionNode.getSession();
+            String definitionPath = definitionNode.getPath();
+            DefaultWorkspaceFilter filter = new DefaultWorkspaceFilter();
+            filter.add(new PathFilterSet(definitionPath));
+            RepositoryAddress address = new RepositoryAddress(
+                    Text.escapePath("/" + session.getWorkspace().getName() + definitionPath));
+            VaultFileSystem fileSystem = Mounter.mount(null, filter, address, "/" + DEFINITION_DIRECTORY, session);
+            try {
+                String targetPath = Constants.META_DIR + "/" + DEFINITION_DIRECTORY;
+                exporter.setRelativePaths(true);
+                exporter.setRootPath("");
+                exporter.createDirectory(targetPath);
+                exporter.export(fileSystem.getRoot(), targetPath);
+            } finally {
+                fileSystem.unmount();
+            }
+        } catch (RepositoryException | IOException | URISyntaxException e) {
+            LOGGER.error("Could not embed the package definition into the archive", e);
+        }
+    }
+}
@@ -78,7 +78,7 @@ public class EditPackageServiceImpl implements EditPackageService {
             return packageInfo;
         }
 
-        Set<ReferencedItem> referencedAssets = basePackageService.getReferencedResources(resourceResolver, packageInfo.getPaths());
+        Set<ReferencedItem> referencedAssets = basePackageService.getReferencedResources(resourceResolver, packageInfo.getPaths(), packageInfo.getReferenceDepth()).keySet();
         Collection<String> resultingPaths = basePackageService.initAssets(packageInfo.getPaths(), referencedAssets, packageInfo);
         DefaultWorkspaceFilter filter = basePackageService.getWorkspaceFilter(resultingPaths);
         modifyPackage(session, modificationPackageModel.getPackagePath(), packageInfo, modificationPackageModel.getPaths(), filter);
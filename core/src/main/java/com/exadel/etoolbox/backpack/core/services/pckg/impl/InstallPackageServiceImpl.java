@@ -1,21 +1,24 @@
 package com.exadel.etoolbox.backpack.core.services.pckg.impl;
 
+import com.exadel.etoolbox.backpack.core.dto.repository.PackageJob;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
 import com.exadel.etoolbox.backpack.core.services.LoggerService;
 import com.exadel.etoolbox.backpack.core.services.SessionService;
 import com.exadel.etoolbox.backpack.core.services.pckg.BasePackageService;
+import com.exadel.etoolbox.backpack.core.services.pckg.BuildExecutorService;
 import com.exadel.etoolbox.backpack.core.services.pckg.InstallPackageService;
 import com.exadel.etoolbox.backpack.core.services.pckg.PackageInfoService;
+import com.exadel.etoolbox.backpack.core.services.pckg.PackageJobService;
 import com.exadel.etoolbox.backpack.core.servlets.model.InstallPackageModel;
 import org.apache.commons.lang3.time.StopWatch;
-import org.apache.jackrabbit.vault.fs.api.ProgressTrackerListener;
 import org.apache.jackrabbit.vault.fs.io.ImportOptions;
 import org.apache.jackrabbit.vault.packaging.DependencyHandling;
 import org.apache.jackrabbit.vault.packaging.JcrPackage;
 import org.apache.jackrabbit.vault.packaging.JcrPackageManager;
 import org.apache.jackrabbit.vault.packaging.PackageException;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
@@ -30,12 +33,14 @@ import java.util.Calendar;
 /**
  * Implements {@link InstallPackageService} to provide install package operations
  */
-@Component(service = InstallPackageService.class)
+@Component(service = InstallPackageService.class, immediate = true)
 public class InstallPackageServiceImpl implements InstallPackageService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(InstallPackageServiceImpl.class);
     private static final String SERVICE_NAME = "backpack-service";
     private static final String START_INSTALL_MESSAGE = "Install Package: ";
+    private static final String RESUMED_INSTALL_MESSAGE = "Package installation resumed after an instance restart";
+    private static final String INTERRUPTED_INSTALL_MESSAGE = "Package installation was interrupted by an instance restart. Please check the content and install the package again.";
 
     @Reference
     private PackageInfoService packageInfoService;
@@ -49,33 +54,80 @@ public class InstallPackageServiceImpl implements InstallPackageService {
     @Reference
     private LoggerService loggerService;
 
+    @Reference
+    private PackageJobService packageJobService;
+
+    @Reference
+    private BuildExecutorService buildExecutorService;
+
+    /**
+     * Run upon this OSGi service activation to process the package installations that were persisted but not completed
+     * before the instance had been stopped. Installations that had not yet started are resumed; installations
+     * interrupted halfway are reported as failed since re-running them blindly over partially imported content is unsafe
+     */
+    @Activate
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void activate() {
+        for (PackageJob job : packageJobService.getJobs(PackageJob.Type.INSTALL)) {
+            PackageInfo packageInfo = packageJobService.restorePackageInfo(job);
+            if (PackageStatus.ERROR.equals(packageInfo.getPackageStatus())) {
+                packageJobService.complete(job);
+            } else if (PackageJob.State.RUNNING.equals(job.getState())) {
+                packageJobService.fail(job, packageInfo, INTERRUPTED_INSTALL_MESSAGE);
+            } else {
+                packageInfo.setPackageStatus(PackageStatus.INSTALL_IN_PROGRESS);
+                packageInfo.clearLog();
+                packageInfo.addLogMessage(RESUMED_INSTALL_MESSAGE);
+                installPackageAsync(job, BasePackageServiceImpl.GSON.fromJson(job.getParameters(), InstallPackageModel.class), packageInfo);
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public PackageInfo installPackage(ResourceResolver resourceResolver, InstallPackageModel installPackageModel) {
         PackageInfo packageInfo = packageInfoService.getPackageInfo(resourceResolver, installPackageModel);
-        if (!PackageStatus.INSTALL_IN_PROGRESS.equals(packageInfo.getPackageStatus()) && !PackageStatus.BUILD_IN_PROGRESS.equals(packageInfo.getPackageStatus())) {
+        if (!PackageStatus.INSTALL_IN_PROGRESS.equals(packageInfo.getPackageStatus())
+                && !PackageStatus.QUEUED.equals(packageInfo.getPackageStatus())
+                && !PackageStatus.BUILD_IN_PROGRESS.equals(packageInfo.getPackageStatus())) {
             packageInfo.setPackageStatus(PackageStatus.INSTALL_IN_PROGRESS);
             packageInfo.clearLog();
             packageInfo.addLogMessage(START_INSTALL_MESSAGE + packageInfo.getPackagePath());
             packageInfo.addLogMessage(LocalDateTime.now().toString());
             basePackageService.getPackageInfos().put(installPackageModel.getPackagePath(), packageInfo);
-            installPackageAsync(resourceResolver.getUserID(), installPackageModel, packageInfo);
+            PackageJob job = packageJobService.enqueue(PackageJob.Type.INSTALL,
+                    installPackageModel.getPackagePath(),
+                    resourceResolver.getUserID(),
+                    BasePackageServiceImpl.GSON.toJson(installPackageModel));
+            installPackageAsync(job, installPackageModel, packageInfo);
         }
         return packageInfo;
     }
 
     /**
-     * Called from {@link InstallPackageServiceImpl#installPackage(ResourceResolver, InstallPackageModel)}.
-     * Encapsulates installing package in a separate execution thread
+     * Called from {@link InstallPackageServiceImpl#installPackage(ResourceResolver, InstallPackageModel)} and upon
+     * the service activation. Hands the package installing over to the {@link BuildExecutorService} so that it runs in
+     * the same bounded pool of worker threads as package builds, and removes the persisted job once the installation
+     * is over
      *
-     * @param userId User ID per the effective {@code ResourceResolver}
+     * @param job {@link PackageJob} persisted for the current installation
      * @param installPackageModel {@link InstallPackageModel} object containing user-set options for the package installing
      * @param packageInfo {@link PackageInfo} object to store package installation status information in
      */
-    private void installPackageAsync(String userId, InstallPackageModel installPackageModel, PackageInfo packageInfo) {
-        new Thread(() -> installPackage(userId, installPackageModel, packageInfo)).start();
+    private void installPackageAsync(PackageJob job, InstallPackageModel installPackageModel, PackageInfo packageInfo) {
+        boolean accepted = buildExecutorService.submit(packageInfo, PackageStatus.INSTALL_IN_PROGRESS, () -> {
+            packageJobService.start(job);
+            try {
+                installPackage(job.getUserId(), installPackageModel, packageInfo);
+            } finally {
+                packageJobService.complete(job);
+            }
+        });
+        if (!accepted) {
+            packageJobService.complete(job);
+        }
     }
 
     /**
@@ -97,9 +149,10 @@ public class InstallPackageServiceImpl implements InstallPackageService {
                 return;
             }
             StopWatch stopWatch = StopWatch.createStarted();
-            ImportOptions importOptions = getImportOptions(installPackageModel, packageInfo);
             packageInfo.setPackageStatus(PackageStatus.INSTALL_IN_PROGRESS);
-            jcrPackage.install(importOptions);
+            try (PackageLogListener listener = new PackageLogListener(packageInfo, basePackageService.getLogTailSize(), basePackageService.isLogSpillEnabled())) {
+                jcrPackage.install(getImportOptions(installPackageModel, listener));
+            }
             packageInfo.setPackageInstalled(Calendar.getInstance());
             packageInfo.setPackageStatus(PackageStatus.INSTALL);
             packageInfo.addLogMessage("Package installed in " + stopWatch);
@@ -117,24 +170,14 @@ public class InstallPackageServiceImpl implements InstallPackageService {
      * instance with options that control the package import
      *
      * @param installPackageModel {@link InstallPackageModel} object containing user-set options for the package installing
-     * @param packageInfo {@link PackageInfo} object to store package installation status information in
+     * @param listener {@link PackageLogListener} object reporting package installation progress
      * @return {@code ImportOptions} object
      */
-    private ImportOptions getImportOptions(InstallPackageModel installPackageModel, PackageInfo packageInfo) {
+    private ImportOptions getImportOptions(InstallPackageModel installPackageModel, PackageLogListener listener) {
         ImportOptions importOptions = new ImportOptions();
         importOptions.setAutoSaveThreshold(installPackageModel.getThreshold());
         importOptions.setDependencyHandling(DependencyHandling.valueOf(installPackageModel.getDependencyHandling().toUpperCase()));
-        importOptions.setListener(new ProgressTrackerListener() {
-            @Override
-            public void onMessage(Mode mode, String s, String s1) {
-                packageInfo.addLogMessage(s + " " + s1);
-            }
-
-            @Override
-            public void onError(Mode mode, String s, Exception e) {
-                packageInfo.addLogMessage(s + " " + e.getMessage());
-            }
-        });
+        importOptions.setListener(listener);
         return importOptions;
     }
 }
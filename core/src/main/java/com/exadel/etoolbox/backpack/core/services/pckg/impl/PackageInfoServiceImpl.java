@@ -13,10 +13,12 @@
  */
 package com.exadel.etoolbox.backpack.core.services.pckg.impl;
 
+import com.exadel.etoolbox.backpack.core.dto.response.BatchInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
 import com.exadel.etoolbox.backpack.core.services.pckg.BasePackageService;
 import com.exadel.etoolbox.backpack.core.services.pckg.PackageInfoService;
+import com.exadel.etoolbox.backpack.core.servlets.model.BatchInfoModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.LatestPackageInfoModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.PackageInfoModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.PackageModel;
@@ -234,6 +236,9 @@ public class PackageInfoServiceImpl implements PackageInfoService {
                     if (StringUtils.isNotBlank(definition.get(BasePackageServiceImpl.SWITCH_PARAMETER))) {
                         packageModel.setToggle(BasePackageServiceImpl.GSON.fromJson(definition.get(BasePackageServiceImpl.SWITCH_PARAMETER), Boolean.class));
                     }
+                    if (StringUtils.isNotBlank(definition.get(BasePackageServiceImpl.REFERENCE_DEPTH_PARAMETER))) {
+                        packageModel.setReferenceDepth(BasePackageServiceImpl.GSON.fromJson(definition.get(BasePackageServiceImpl.REFERENCE_DEPTH_PARAMETER), Integer.class));
+                    }
                     if (definition.get(BasePackageServiceImpl.QUERY_PARAMETER) != null) {
                         packageModel.setQuery(BasePackageServiceImpl.GSON.fromJson(definition.get(BasePackageServiceImpl.QUERY_PARAMETER), String.class));
                     }
@@ -283,6 +288,9 @@ public class PackageInfoServiceImpl implements PackageInfoService {
                     if (StringUtils.isNotBlank(definition.get(BasePackageServiceImpl.SWITCH_PARAMETER))) {
                         packageInfo.setToggle(BasePackageServiceImpl.GSON.fromJson(definition.get(BasePackageServiceImpl.SWITCH_PARAMETER), Boolean.class));
                     }
+                    if (StringUtils.isNotBlank(definition.get(BasePackageServiceImpl.REFERENCE_DEPTH_PARAMETER))) {
+                        packageInfo.setReferenceDepth(BasePackageServiceImpl.GSON.fromJson(definition.get(BasePackageServiceImpl.REFERENCE_DEPTH_PARAMETER), Integer.class));
+                    }
                     if (definition.getBuildCount() > 0) {
                         packageInfo.setPackageStatus(PackageStatus.BUILT);
                     } else {
@@ -306,8 +314,11 @@ public class PackageInfoServiceImpl implements PackageInfoService {
         PackageInfo partialBuildInfo;
 
         if (completeBuildInfo != null) {
-            partialBuildInfo = new PackageInfo(completeBuildInfo);
-            partialBuildInfo.setLog(completeBuildInfo.getLatestBuildInfo(latestPackageInfoModel.getLatestLogIndex()));
+            synchronized (completeBuildInfo) {
+                partialBuildInfo = new PackageInfo(completeBuildInfo);
+                partialBuildInfo.setLog(completeBuildInfo.getLatestBuildInfo(latestPackageInfoModel.getLatestLogIndex()));
+                partialBuildInfo.setNextLogIndex(completeBuildInfo.getLogSize());
+            }
         } else {
             partialBuildInfo = new PackageInfo();
             partialBuildInfo.setPackagePath(packagePath);
@@ -318,4 +329,12 @@ public class PackageInfoServiceImpl implements PackageInfoService {
         return partialBuildInfo;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public BatchInfo getBatchInfo(final BatchInfoModel batchInfoModel) {
+        BatchInfo batchInfo = basePackageService.getBatchInfos().asMap().get(batchInfoModel.getBatchId());
+        return batchInfo != null ? new BatchInfo(batchInfo) : null;
+    }
 }
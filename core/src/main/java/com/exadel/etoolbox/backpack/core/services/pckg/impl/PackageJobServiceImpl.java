@@ -0,0 +1,233 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg.impl;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.PackageJob;
+import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
+import com.exadel.etoolbox.backpack.core.services.SessionService;
+import com.exadel.etoolbox.backpack.core.services.pckg.BasePackageService;
+import com.exadel.etoolbox.backpack.core.services.pckg.PackageInfoService;
+import com.exadel.etoolbox.backpack.core.services.pckg.PackageJobService;
+import org.apache.jackrabbit.vault.packaging.JcrPackage;
+import org.apache.jackrabbit.vault.packaging.JcrPackageManager;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.ValueMap;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Implements {@link PackageJobService} to persist package operations under <i>/var/etoolbox-backpack/jobs</i>
+ */
+@Component(service = PackageJobService.class)
+public class PackageJobServiceImpl implements PackageJobService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PackageJobServiceImpl.class);
+
+    static final String JOBS_ROOT = "/var/etoolbox-backpack/jobs";
+    private static final String SUBSERVICE_NAME = "backpack-service";
+    private static final String PN_TYPE = "type";
+    private static final String PN_PACKAGE_PATH = "packagePath";
+    private static final String PN_USER_ID = "userId";
+    private static final String PN_PARAMETERS = "parameters";
+    private static final String PN_CREATED = "created";
+    private static final String PN_STATE = "state";
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    private ResourceResolverFactory resourceResolverFactory;
+
+    @Reference
+    private BasePackageService basePackageService;
+
+    @Reference
+    private PackageInfoService packageInfoService;
+
+    @Reference
+    private SessionService sessionService;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized PackageJob enqueue(final PackageJob.Type type,
+                                           final String packagePath,
+                                           final String userId,
+                                           final String parameters) {
+        PackageJob job = new PackageJob(UUID.randomUUID().toString(),
+                type,
+                packagePath,
+                userId,
+                parameters,
+                Calendar.getInstance(),
+                PackageJob.State.PENDING);
+        try (ResourceResolver resourceResolver = getServiceResourceResolver()) {
+            Resource jobsRoot = ResourceUtil.getOrCreateResource(resourceResolver, JOBS_ROOT, Collections.emptyMap(), null, false);
+            Map<String, Object> properties = new HashMap<>();
+            properties.put(PN_TYPE, type.name());
+            properties.put(PN_PACKAGE_PATH, packagePath);
+            properties.put(PN_USER_ID, userId);
+            if (parameters != null) {
+                properties.put(PN_PARAMETERS, parameters);
+            }
+            properties.put(PN_CREATED, job.getCreated());
+            properties.put(PN_STATE, job.getState().name());
+            resourceResolver.create(jobsRoot, job.getId(), properties);
+            resourceResolver.commit();
+        } catch (LoginException | PersistenceException e) {
+            LOGGER.error("Could not persist the {} job for {}", type, packagePath, e);
+        }
+        return job;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void start(final PackageJob job) {
+        job.setState(PackageJob.State.RUNNING);
+        try (ResourceResolver resourceResolver = getServiceResourceResolver()) {
+            Resource jobResource = resourceResolver.getResource(JOBS_ROOT + "/" + job.getId());
+            ModifiableValueMap properties = jobResource != null ? jobResource.adaptTo(ModifiableValueMap.class) : null;
+            if (properties == null) {
+                return;
+            }
+            properties.put(PN_STATE, job.getState().name());
+            resourceResolver.commit();
+        } catch (LoginException | PersistenceException e) {
+            LOGGER.error("Could not update the job {}", job.getId(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void complete(final PackageJob job) {
+        try (ResourceResolver resourceResolver = getServiceResourceResolver()) {
+            Resource jobResource = resourceResolver.getResource(JOBS_ROOT + "/" + job.getId());
+            if (jobResource != null) {
+                resourceResolver.delete(jobResource);
+                resourceResolver.commit();
+            }
+        } catch (LoginException | PersistenceException e) {
+            LOGGER.error("Could not remove the job {}", job.getId(), e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized List<PackageJob> getJobs(final PackageJob.Type type) {
+        List<PackageJob> jobs = new ArrayList<>();
+        try (ResourceResolver resourceResolver = getServiceResourceResolver()) {
+            Resource jobsRoot = resourceResolver.getResource(JOBS_ROOT);
+            if (jobsRoot == null) {
+                return jobs;
+            }
+            for (Resource jobResource : jobsRoot.getChildren()) {
+                ValueMap properties = jobResource.getValueMap();
+                if (!type.name().equals(properties.get(PN_TYPE, String.class))) {
+                    continue;
+                }
+                jobs.add(new PackageJob(jobResource.getName(),
+                        type,
+                        properties.get(PN_PACKAGE_PATH, String.class),
+                        properties.get(PN_USER_ID, String.class),
+                        properties.get(PN_PARAMETERS, String.class),
+                        properties.get(PN_CREATED, Calendar.class),
+                        PackageJob.State.valueOf(properties.get(PN_STATE, PackageJob.State.PENDING.name()))));
+            }
+        } catch (LoginException e) {
+            LOGGER.error("Could not read the persisted jobs", e);
+        }
+        jobs.sort(Comparator.comparing(PackageJob::getCreated, Comparator.nullsFirst(Comparator.naturalOrder())));
+        return jobs;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public PackageInfo restorePackageInfo(final PackageJob job) {
+        PackageInfo packageInfo = null;
+        Session userSession = null;
+        JcrPackage jcrPackage = null;
+        try {
+            userSession = sessionService.getUserImpersonatedSession(job.getUserId());
+            JcrPackageManager packMgr = basePackageService.getPackageManager(userSession);
+            if (userSession.nodeExists(job.getPackagePath())) {
+                jcrPackage = packMgr.open(userSession.getNode(job.getPackagePath()));
+                packageInfo = packageInfoService.getPackageInfo(jcrPackage);
+            }
+        } catch (RepositoryException e) {
+            LOGGER.error("Could not restore the package info for {}", job.getPackagePath(), e);
+        } finally {
+            if (jcrPackage != null) {
+                jcrPackage.close();
+            }
+            sessionService.closeSession(userSession);
+        }
+        if (packageInfo == null) {
+            packageInfo = new PackageInfo();
+            packageInfo.setPackagePath(job.getPackagePath());
+            packageInfo.setPackageStatus(PackageStatus.ERROR);
+            packageInfo.addLogMessage(BasePackageServiceImpl.ERROR + String.format(BasePackageServiceImpl.PACKAGE_DOES_NOT_EXIST_MESSAGE, job.getPackagePath()));
+        }
+        basePackageService.getPackageInfos().put(job.getPackagePath(), packageInfo);
+        return packageInfo;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void fail(final PackageJob job, final PackageInfo packageInfo, final String message) {
+        packageInfo.setPackageStatus(PackageStatus.ERROR);
+        packageInfo.addLogMessage(BasePackageServiceImpl.ERROR + message);
+        LOGGER.warn("{} job for {} failed: {}", job.getType(), job.getPackagePath(), message);
+        complete(job);
+    }
+
+    /**
+     * Gets a {@code ResourceResolver} authorized as the BackPack service user
+     *
+     * @return {@code ResourceResolver} instance
+     * @throws LoginException in case the service user cannot be logged in
+     */
+    private ResourceResolver getServiceResourceResolver() throws LoginException {
+        return resourceResolverFactory.getServiceResourceResolver(
+                Collections.singletonMap(ResourceResolverFactory.SUBSERVICE, SUBSERVICE_NAME));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg.impl;
+
+import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import org.apache.jackrabbit.vault.fs.api.ProgressTrackerListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Implements {@code ProgressTrackerListener} to report package building and installation progress to a {@link PackageInfo}.
+ * Only the latest messages are kept in memory while the messages are counted per status code. Optionally, the full log
+ * is written to a temporary file
+ */
+class PackageLogListener implements ProgressTrackerListener, Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PackageLogListener.class);
+
+    private static final String LOG_FILE_PREFIX = "backpack-";
+    private static final String LOG_FILE_SUFFIX = ".log";
+    private static final String ERROR_STATUS = "E";
+
+    private final PackageInfo packageInfo;
+    private Writer writer;
+
+    /**
+     * Basic constructor
+     *
+     * @param packageInfo {@link PackageInfo} object to store status information in
+     * @param tailSize    Number of the latest messages kept in memory; zero means no limit
+     * @param spill       Whether the full log should be written to a temporary file
+     */
+    PackageLogListener(final PackageInfo packageInfo, final int tailSize, final boolean spill) {
+        this.packageInfo = packageInfo;
+        packageInfo.setLogCapacity(tailSize);
+        BasePackageServiceImpl.deleteLogFile(packageInfo);
+        packageInfo.setLogFile(null);
+        if (spill) {
+            try {
+                Path logFile = Files.createTempFile(LOG_FILE_PREFIX, LOG_FILE_SUFFIX);
+                writer = Files.newBufferedWriter(logFile, StandardCharsets.UTF_8);
+                packageInfo.setLogFile(logFile.toString());
+                packageInfo.addLogMessage("Full log is written to " + logFile);
+            } catch (IOException e) {
+                LOGGER.error("Could not create the log file", e);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onMessage(final Mode mode, final String statusCode, final String path) {
+        packageInfo.incrementLogCounter(statusCode);
+        log(statusCode + " " + path);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onError(final Mode mode, final String path, final Exception e) {
+        packageInfo.incrementLogCounter(ERROR_STATUS);
+        log(path + " " + e.getMessage());
+    }
+
+    /**
+     * Flushes and closes the log file, if any
+     */
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            LOGGER.warn("Could not close the log file", e);
+        }
+        writer = null;
+    }
+
+    /**
+     * Called from {@link PackageLogListener#onMessage(Mode, String, String)} and
+     * {@link PackageLogListener#onError(Mode, String, Exception)} to store a message
+     *
+     * @param message String value
+     */
+    private void log(final String message) {
+        packageInfo.addLogMessage(message);
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.write(message);
+            writer.write(System.lineSeparator());
+        } catch (IOException e) {
+            LOGGER.error("Could not write to the log file", e);
+            close();
+        }
+    }
+}
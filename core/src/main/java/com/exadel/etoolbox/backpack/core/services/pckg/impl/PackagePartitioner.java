@@ -0,0 +1,68 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg.impl;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Distributes package filter roots among several parts so that the summary size of each part does not exceed
+ * the given limit. Uses the <i>first-fit decreasing</i> strategy; a root that is larger than the limit by itself
+ * is placed in a separate part
+ */
+class PackagePartitioner {
+
+    private PackagePartitioner() {
+    }
+
+    /**
+     * Splits the given filter roots into parts
+     *
+     * @param rootSizes   {@code Map} of sizes in bytes by filter root paths. The iteration order of the map is retained
+     *                    within each part
+     * @param maxPartSize Maximal summary size of a part in bytes
+     * @return {@code List} of parts, each being a non-empty {@code List} of filter root paths
+     */
+    static List<List<String>> partition(final Map<String, Long> rootSizes, final long maxPartSize) {
+        List<String> roots = new ArrayList<>(rootSizes.keySet());
+        List<String> bySizeDescending = roots.stream()
+                .sorted(Comparator.comparing(rootSizes::get, Comparator.reverseOrder()))
+                .collect(Collectors.toList());
+
+        List<List<String>> parts = new ArrayList<>();
+        List<Long> partSizes = new ArrayList<>();
+        for (String root : bySizeDescending) {
+            long size = rootSizes.get(root);
+            int target = -1;
+            for (int i = 0; i < parts.size() && target < 0; i++) {
+                if (partSizes.get(i) + size <= maxPartSize) {
+                    target = i;
+                }
+            }
+            if (target < 0) {
+                parts.add(new ArrayList<>());
+                partSizes.add(0L);
+                target = parts.size() - 1;
+            }
+            parts.get(target).add(root);
+            partSizes.set(target, partSizes.get(target) + size);
+        }
+
+        parts.forEach(part -> part.sort(Comparator.comparingInt(roots::indexOf)));
+        return parts;
+    }
+}
@@ -3,18 +3,22 @@ package com.exadel.etoolbox.backpack.core.services.pckg.impl;
 import com.day.cq.replication.ReplicationActionType;
 import com.day.cq.replication.ReplicationException;
 import com.day.cq.replication.Replicator;
+import com.exadel.etoolbox.backpack.core.dto.repository.PackageJob;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
 import com.exadel.etoolbox.backpack.core.services.LoggerService;
 import com.exadel.etoolbox.backpack.core.services.SessionService;
 import com.exadel.etoolbox.backpack.core.services.pckg.BasePackageService;
+import com.exadel.etoolbox.backpack.core.services.pckg.BuildExecutorService;
 import com.exadel.etoolbox.backpack.core.services.pckg.PackageInfoService;
+import com.exadel.etoolbox.backpack.core.services.pckg.PackageJobService;
 import com.exadel.etoolbox.backpack.core.services.pckg.ReplicatePackageService;
 import com.exadel.etoolbox.backpack.core.servlets.model.PackageInfoModel;
 import org.apache.commons.lang3.time.StopWatch;
 import org.apache.jackrabbit.vault.packaging.JcrPackage;
 import org.apache.jackrabbit.vault.packaging.JcrPackageManager;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
@@ -29,7 +33,7 @@ import java.util.Calendar;
 /**
  * Implements {@link ReplicatePackageService} to provide replication operations
  */
-@Component(service = ReplicatePackageService.class)
+@Component(service = ReplicatePackageService.class, immediate = true)
 public class ReplicatePackageServiceImpl implements ReplicatePackageService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ReplicatePackageServiceImpl.class);
@@ -38,6 +42,7 @@ public class ReplicatePackageServiceImpl implements ReplicatePackageService {
     private static final String FINISH_REPLICATE_MESSAGE = "Package is replicated asynchronously in ";
     private static final String NODE_NOT_ACCESSIBLE_MESSAGE = "Node is not accessible through the current Session";
     private static final String PACKAGE_IS_NOT_BUILT_MESSAGE = "Before replication package must be built";
+    private static final String RESUMED_REPLICATE_MESSAGE = "Package replication resumed after an instance restart";
 
     @Reference
     private PackageInfoService packageInfoService;
@@ -54,6 +59,34 @@ public class ReplicatePackageServiceImpl implements ReplicatePackageService {
     @Reference
     private Replicator replicator;
 
+    @Reference
+    private PackageJobService packageJobService;
+
+    @Reference
+    private BuildExecutorService buildExecutorService;
+
+    /**
+     * Run upon this OSGi service activation to resume the package replications that were persisted but not completed
+     * before the instance had been stopped. Activating a package is repeatable, so both pending and interrupted
+     * replications are started anew
+     */
+    @Activate
+    @SuppressWarnings("unused") // run internally by the OSGi mechanism
+    private void activate() {
+        for (PackageJob job : packageJobService.getJobs(PackageJob.Type.REPLICATE)) {
+            PackageInfo packageInfo = packageJobService.restorePackageInfo(job);
+            if (PackageStatus.ERROR.equals(packageInfo.getPackageStatus())) {
+                packageJobService.complete(job);
+            } else if (!PackageStatus.BUILT.equals(packageInfo.getPackageStatus())) {
+                packageJobService.fail(job, packageInfo, PACKAGE_IS_NOT_BUILT_MESSAGE);
+            } else {
+                packageInfo.clearLog();
+                packageInfo.addLogMessage(RESUMED_REPLICATE_MESSAGE);
+                replicatePackageAsync(job, packageInfo);
+            }
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -65,7 +98,11 @@ public class ReplicatePackageServiceImpl implements ReplicatePackageService {
             packageInfo.addLogMessage(START_REPLICATE_MESSAGE + packageInfoModel.getPackagePath());
             packageInfo.addLogMessage(LocalDateTime.now().toString());
             basePackageService.getPackageInfos().put(packageInfoModel.getPackagePath(), packageInfo);
-            replicatePackage(resourceResolver.getUserID(), packageInfo);
+            PackageJob job = packageJobService.enqueue(PackageJob.Type.REPLICATE,
+                    packageInfoModel.getPackagePath(),
+                    resourceResolver.getUserID(),
+                    null);
+            replicatePackage(job, packageInfo);
         } else {
             packageInfo.addLogMessage(BasePackageServiceImpl.ERROR + PACKAGE_IS_NOT_BUILT_MESSAGE);
         }
@@ -73,18 +110,47 @@ public class ReplicatePackageServiceImpl implements ReplicatePackageService {
     }
 
     /**
-     * Called from {@link ReplicatePackageServiceImpl#replicatePackage(ResourceResolver, PackageInfoModel)}
-     * Encapsulates installing package in a separate execution thread
+     * Called upon the service activation to resume a persisted replication.
+     * Submits replicating package to the pool of worker threads shared with package builds and installations. Since
+     * the package itself stays intact, it is reported as built while replicating, and also if the replication is
+     * rejected or dropped from the queue
      *
-     * @param userId User ID per the effective {@code ResourceResolver}
+     * @param job {@link PackageJob} persisted for the current replication
      * @param packageInfo {@link PackageInfo} object to store package building status information in
      */
-    private void replicatePackageAsync(final String userId, PackageInfo packageInfo) {
-        new Thread(() -> replicatePackage(userId, packageInfo)).start();
+    private void replicatePackageAsync(final PackageJob job, PackageInfo packageInfo) {
+        Runnable onDropped = () -> {
+            packageInfo.setPackageStatus(PackageStatus.BUILT);
+            packageJobService.complete(job);
+        };
+        boolean accepted = buildExecutorService.submit(packageInfo,
+                PackageStatus.BUILT,
+                () -> replicatePackage(job, packageInfo),
+                onDropped);
+        if (!accepted) {
+            onDropped.run();
+        }
+    }
+
+    /**
+     * Called from {@link ReplicatePackageServiceImpl#replicatePackage(ResourceResolver, PackageInfoModel)} and
+     * {@link ReplicatePackageServiceImpl#replicatePackageAsync(PackageJob, PackageInfo)}
+     * Keeps the persisted job in sync with the replication and removes it once the replication is over
+     *
+     * @param job {@link PackageJob} persisted for the current replication
+     * @param packageInfo {@link PackageInfo} object to store package building status information in
+     */
+    private void replicatePackage(final PackageJob job, PackageInfo packageInfo) {
+        packageJobService.start(job);
+        try {
+            replicatePackage(job.getUserId(), packageInfo);
+        } finally {
+            packageJobService.complete(job);
+        }
     }
 
     /**
-     * Called from {@link ReplicatePackageServiceImpl#replicatePackageAsync(String, PackageInfo)}
+     * Called from {@link ReplicatePackageServiceImpl#replicatePackage(PackageJob, PackageInfo)}
      * Performs the internal package replication procedure
      *
      * @param userId User ID per the effective {@code ResourceResolver}
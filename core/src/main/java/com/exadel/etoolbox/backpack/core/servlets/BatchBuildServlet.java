@@ -0,0 +1,124 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.servlets;
+
+import com.exadel.etoolbox.backpack.core.dto.response.BatchInfo;
+import com.exadel.etoolbox.backpack.core.services.pckg.BuildPackageService;
+import com.exadel.etoolbox.backpack.core.services.pckg.PackageInfoService;
+import com.exadel.etoolbox.backpack.core.servlets.model.BatchBuildModel;
+import com.exadel.etoolbox.backpack.core.servlets.model.BatchInfoModel;
+import com.exadel.etoolbox.backpack.core.util.CalendarAdapter;
+import com.exadel.etoolbox.backpack.request.RequestAdapter;
+import com.exadel.etoolbox.backpack.request.validator.ValidatorResponse;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.SlingAllMethodsServlet;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Calendar;
+import java.util.Collections;
+
+/**
+ * Serves as the network endpoint for user requests that trigger building of several packages at once or else poll
+ * the aggregate progress of such a batch<br><br>
+ *
+ * See also:<br>
+ *     {@link BuildPackageServlet} - endpoint for requests for building a single package
+ */
+@Component(
+        service = Servlet.class,
+        property = {
+                "sling.servlet.paths=/services/backpack/buildBatch",
+                "sling.servlet.methods=[get,post]"
+        })
+@SuppressWarnings("PackageAccessibility") // because Servlet and HttpServletResponse classes reported as a non-bundle dependency
+public class BatchBuildServlet extends SlingAllMethodsServlet {
+    private static final long serialVersionUID = 1L;
+
+    private static final Gson GSON = new GsonBuilder().registerTypeHierarchyAdapter(Calendar.class, new CalendarAdapter()).create();
+    static final String APPLICATION_JSON = "application/json";
+    private static final String NO_PACKAGES_MESSAGE = "Package paths must be a non-empty JSON array";
+    private static final String BATCH_NOT_FOUND_MESSAGE = "Batch %s is not found";
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    private transient BuildPackageService buildPackageService;
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    private transient PackageInfoService packageInfoService;
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    private transient RequestAdapter requestAdapter;
+
+    /**
+     * Processes {@code POST} requests to the current endpoint. Attempts to build the packages specified in the request.
+     * Request parameters are parsed to a {@link BatchBuildModel} which is validated and passed
+     * to the corresponding {@link BuildPackageService} routine if proven valid; otherwise, the {@code HTTP status 400} reported
+     * @param request {@code SlingHttpServletRequest} instance
+     * @param response {@code SlingHttpServletResponse} instance
+     * @throws IOException in case writing data to the {@code SlingHttpServletResponse} fails
+     */
+    @Override
+    protected void doPost(final SlingHttpServletRequest request,
+                          final SlingHttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_JSON);
+        ValidatorResponse<BatchBuildModel> validatorResponse = requestAdapter.adaptValidate(request.getParameterMap(), BatchBuildModel.class);
+        if (!validatorResponse.isValid()) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write(GSON.toJson(validatorResponse.getLog()));
+        } else if (validatorResponse.getModel().getPackagePaths().isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write(GSON.toJson(Collections.singletonList(NO_PACKAGES_MESSAGE)));
+        } else {
+            BatchInfo batchInfo = buildPackageService.buildPackages(request.getResourceResolver(), validatorResponse.getModel());
+            response.getWriter().write(GSON.toJson(batchInfo));
+        }
+    }
+
+    /**
+     * Processes {@code GET} requests to the current endpoint. Reports the aggregate progress of a batch build.
+     * Request parameters are parsed to a {@link BatchInfoModel} which is validated and passed
+     * to the corresponding {@link PackageInfoService} routine if proven valid; otherwise, the {@code HTTP status 400} reported
+     * @param request {@code SlingHttpServletRequest} instance
+     * @param response {@code SlingHttpServletResponse} instance
+     * @throws IOException in case writing data to the {@code SlingHttpServletResponse} fails
+     */
+    @Override
+    protected void doGet(final SlingHttpServletRequest request,
+                         final SlingHttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_JSON);
+        ValidatorResponse<BatchInfoModel> validatorResponse = requestAdapter.adaptValidate(request.getParameterMap(), BatchInfoModel.class);
+        if (!validatorResponse.isValid()) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write(GSON.toJson(validatorResponse.getLog()));
+            return;
+        }
+        BatchInfo batchInfo = packageInfoService.getBatchInfo(validatorResponse.getModel());
+        if (batchInfo == null) {
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            response.getWriter().write(GSON.toJson(Collections.singletonList(
+                    String.format(BATCH_NOT_FOUND_MESSAGE, validatorResponse.getModel().getBatchId()))));
+            return;
+        }
+        response.getWriter().write(GSON.toJson(batchInfo));
+    }
+}
@@ -69,7 +69,8 @@ public class BuildPackageServlet extends SlingAllMethodsServlet {
     private transient RequestAdapter requestAdapter;
 
     /**
-     * Processes {@code POST} requests to the current endpoint. Attempts to build a package according to the request parameters.
+     * Processes {@code POST} requests to the current endpoint. Attempts to build a package, or to cancel the build in progress,
+     * according to the request parameters.
      * Request parameters are parsed to a {@link BuildPackageModel} which is validated and passed
      * to the corresponding {@link BuildPackageService} routine if proven valid; otherwise, the {@code HTTP status 400} reported
      * @param request {@code SlingHttpServletRequest} instance
@@ -87,7 +88,9 @@ public class BuildPackageServlet extends SlingAllMethodsServlet {
         } else {
             PackageInfo packageInfo;
             BuildPackageModel model = validatorResponse.getModel();
-            if (model.isTestBuild()) {
+            if (model.isCancel()) {
+                packageInfo = buildPackageService.cancelBuild(request.getResourceResolver(), model);
+            } else if (model.isTestBuild()) {
                 packageInfo = buildPackageService.testBuildPackage(request.getResourceResolver(), model);
             } else {
                 packageInfo = buildPackageService.buildPackage(request.getResourceResolver(), model);
@@ -0,0 +1,94 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.servlets;
+
+import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.services.QueryService;
+import com.exadel.etoolbox.backpack.core.servlets.model.QueryPreviewModel;
+import com.exadel.etoolbox.backpack.request.RequestAdapter;
+import com.exadel.etoolbox.backpack.request.validator.ValidatorResponse;
+import com.google.gson.Gson;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static com.exadel.etoolbox.backpack.core.servlets.BuildPackageServlet.APPLICATION_JSON;
+
+/**
+ * Serves as the network endpoint for user requests that preview the paths an SQL2 query would add to a package.
+ * Only a page of the paths is read, so that a broad query can be checked before the package is created<br><br>
+ * <p>
+ * See also:<br>
+ * {@link CreatePackageServlet} - endpoint for requests that trigger package creation
+ */
+@Component(
+        service = Servlet.class,
+        property = {
+                "sling.servlet.paths=/services/backpack/queryPreview",
+                "sling.servlet.methods=get"
+        })
+@SuppressWarnings("PackageAccessibility") // because Servlet and HttpServletResponse classes reported as a non-bundle dependency
+public class QueryPreviewServlet extends SlingSafeMethodsServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    static final long DEFAULT_PREVIEW_SIZE = 20L;
+
+    private static final Gson GSON = new Gson();
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    private transient RequestAdapter requestAdapter;
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    private transient QueryService queryService;
+
+    /**
+     * Processes {@code GET} requests to the current endpoint. Request parameters are parsed to a
+     * {@link QueryPreviewModel} which is validated; the page of paths found by the query is reported along with the
+     * query plan and the errors, if any. If the model is not valid, the {@code HTTP status 400} is reported
+     *
+     * @param request  {@code SlingHttpServletRequest} instance
+     * @param response {@code SlingHttpServletResponse} instance
+     * @throws IOException in case writing data to the {@code SlingHttpServletResponse} fails
+     */
+    @Override
+    protected void doGet(final SlingHttpServletRequest request,
+                         final SlingHttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_JSON);
+        ValidatorResponse<QueryPreviewModel> validatorResponse = requestAdapter.adaptValidate(request.getParameterMap(), QueryPreviewModel.class);
+        if (!validatorResponse.isValid()) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write(GSON.toJson(validatorResponse));
+            return;
+        }
+        QueryPreviewModel model = validatorResponse.getModel();
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.setPaths(queryService.getResourcesPathsFromQuery(
+                request.getResourceResolver(),
+                model.getQuery(),
+                packageInfo,
+                model.getLimit() > 0 ? model.getLimit() : DEFAULT_PREVIEW_SIZE,
+                Math.max(model.getOffset(), 0L),
+                model.isAllowTraversal()));
+        response.getWriter().write(GSON.toJson(packageInfo));
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.servlets;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.AssetReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.response.ReferenceSearchProgress;
+import com.exadel.etoolbox.backpack.core.services.pckg.BasePackageService;
+import com.exadel.etoolbox.backpack.core.servlets.model.ReferencesModel;
+import com.exadel.etoolbox.backpack.request.RequestAdapter;
+import com.exadel.etoolbox.backpack.request.validator.ValidatorResponse;
+import com.google.gson.Gson;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.servlets.SlingAllMethodsServlet;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Serves as the network endpoint for user requests that search for resources referenced by the specified filter
+ * paths. The results are streamed as newline-delimited JSON: one {@link ReferenceSearchProgress} record per found
+ * item, followed by the final record, so that the client can display them while the search continues<br><br>
+ * <p>
+ * See also:<br>
+ * {@link CreatePackageServlet} - endpoint for requests that trigger package creation
+ */
+@Component(
+        service = Servlet.class,
+        property = {
+                "sling.servlet.paths=/services/backpack/references",
+                "sling.servlet.methods=post"
+        })
+@SuppressWarnings("PackageAccessibility")
+// because Servlet and HttpServletResponse classes reported as a non-bundle dependency
+public class ReferencesServlet extends SlingAllMethodsServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReferencesServlet.class);
+
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final Gson GSON = new Gson();
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    private transient RequestAdapter requestAdapter;
+
+    @Reference
+    @SuppressWarnings("UnusedDeclaration") // value injected by Sling
+    private transient BasePackageService basePackageService;
+
+    /**
+     * Processes {@code POST} requests to the current endpoint. Request parameters are parsed to a
+     * {@link ReferencesModel} which is validated; the found references are written to the response one per line
+     * as soon as they are found. If the model is not valid, the {@code HTTP status 400} is reported
+     *
+     * @param request  {@code SlingHttpServletRequest} instance
+     * @param response {@code SlingHttpServletResponse} instance
+     * @throws IOException in case writing data to the {@code SlingHttpServletResponse} fails
+     */
+    @Override
+    protected void doPost(final SlingHttpServletRequest request,
+                          final SlingHttpServletResponse response) throws IOException {
+        ValidatorResponse<ReferencesModel> validatorResponse = requestAdapter.adaptValidate(request.getParameterMap(), ReferencesModel.class);
+        if (!validatorResponse.isValid()) {
+            response.setContentType(BuildPackageServlet.APPLICATION_JSON);
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            response.getWriter().write(GSON.toJson(validatorResponse));
+            return;
+        }
+        response.setContentType(APPLICATION_NDJSON);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        PrintWriter writer = response.getWriter();
+        ResourceResolver resourceResolver = request.getResourceResolver();
+        ReferencesModel model = validatorResponse.getModel();
+        List<String> paths = basePackageService.getActualPaths(resourceResolver, model.getPaths());
+        int[] count = new int[1];
+        long[] totalSize = new long[1];
+        try {
+            basePackageService.getReferencedResources(resourceResolver, paths, model.getReferenceDepth(), (item, level) -> {
+                count[0]++;
+                if (item instanceof AssetReferencedItem) {
+                    totalSize[0] += basePackageService.getAssetSize(resourceResolver, item.getPath());
+                }
+                writeRecord(writer, new ReferenceSearchProgress(item, level, count[0], totalSize[0], false));
+            });
+            writeRecord(writer, new ReferenceSearchProgress(null, 0, count[0], totalSize[0], true));
+        } catch (UncheckedIOException e) {
+            LOGGER.debug("Reference search for {} aborted", paths, e);
+        }
+    }
+
+    /**
+     * Called from {@link ReferencesServlet#doPost(SlingHttpServletRequest, SlingHttpServletResponse)} to write
+     * a single record and send it to the client immediately
+     *
+     * @param writer {@code PrintWriter} of the response
+     * @param record {@link ReferenceSearchProgress} object
+     * @throws UncheckedIOException if the client is no longer connected, to stop the search
+     */
+    private static void writeRecord(final PrintWriter writer, final ReferenceSearchProgress record) {
+        writer.write(GSON.toJson(record));
+        writer.write('\n');
+        writer.flush();
+        if (writer.checkError()) {
+            throw new UncheckedIOException(new IOException("Could not write to the response"));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.servlets.model;
+
+import com.exadel.etoolbox.backpack.core.dto.response.BuildMode;
+import com.exadel.etoolbox.backpack.core.services.pckg.BuildPackageService;
+import com.exadel.etoolbox.backpack.core.servlets.BatchBuildServlet;
+import com.exadel.etoolbox.backpack.request.annotations.RequestMapping;
+import com.exadel.etoolbox.backpack.request.annotations.RequestParam;
+import com.exadel.etoolbox.backpack.request.annotations.Validate;
+import com.exadel.etoolbox.backpack.request.validator.impl.RequiredValidator;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.ResourceResolver;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Represents the set of user-defined options for a request to build several packages at once. Upon initialization, passed
+ * as a parameter to the {@link BuildPackageService#buildPackages(ResourceResolver, BatchBuildModel)}
+ *
+ * @see BatchBuildServlet
+ */
+@RequestMapping
+public class BatchBuildModel {
+
+    private static final Gson GSON = new Gson();
+    private static final Type LIST_TYPE = new TypeToken<List<String>>() {
+    }.getType();
+
+    @RequestParam
+    @Validate(validator = RequiredValidator.class,
+            invalidMessages = "Package paths field is required")
+    private String packagePaths;
+
+    @RequestParam
+    @SuppressWarnings("UnusedDeclaration") // directly injected by the RequestAdapter routine
+    private int concurrency;
+
+    @RequestParam
+    private String buildMode;
+
+    /**
+     * Gets the distinct paths to the packages to build. The paths are passed as a JSON array
+     *
+     * @return {@code List} of String values; an empty list if the value cannot be parsed
+     */
+    public List<String> getPackagePaths() {
+        if (StringUtils.isBlank(packagePaths)) {
+            return Collections.emptyList();
+        }
+        try {
+            List<String> paths = GSON.fromJson(packagePaths, LIST_TYPE);
+            if (paths == null) {
+                return Collections.emptyList();
+            }
+            paths.removeIf(StringUtils::isBlank);
+            return new ArrayList<>(new LinkedHashSet<>(paths));
+        } catch (JsonParseException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Assigns to this instance a JSON array of paths to the packages to build
+     *
+     * @param packagePaths String value
+     */
+    public void setPackagePaths(final String packagePaths) {
+        this.packagePaths = packagePaths;
+    }
+
+    /**
+     * Gets the maximal number of packages of the batch built simultaneously. A non-positive value means that
+     * only the limits of the build executor apply
+     *
+     * @return Integer value
+     */
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * Gets the mode the packages are built in. Falls back to {@link BuildMode#FULL} if the mode is not specified or unknown
+     *
+     * @return {@link BuildMode} value
+     */
+    public BuildMode getBuildMode() {
+        if (StringUtils.isBlank(buildMode)) {
+            return BuildMode.FULL;
+        }
+        try {
+            return BuildMode.valueOf(buildMode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return BuildMode.FULL;
+        }
+    }
+}
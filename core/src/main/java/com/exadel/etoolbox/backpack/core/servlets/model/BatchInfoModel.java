@@ -0,0 +1,54 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.servlets.model;
+
+import com.exadel.etoolbox.backpack.core.services.pckg.PackageInfoService;
+import com.exadel.etoolbox.backpack.core.servlets.BatchBuildServlet;
+import com.exadel.etoolbox.backpack.request.annotations.RequestMapping;
+import com.exadel.etoolbox.backpack.request.annotations.RequestParam;
+import com.exadel.etoolbox.backpack.request.annotations.Validate;
+import com.exadel.etoolbox.backpack.request.validator.impl.RequiredValidator;
+
+/**
+ * Represents user-defined options supplied to a request for the progress of a batch build. Upon initialization,
+ * passed as a parameter to the {@link PackageInfoService#getBatchInfo(BatchInfoModel)}
+ *
+ * @see BatchBuildServlet
+ */
+@RequestMapping
+public class BatchInfoModel {
+
+    @RequestParam
+    @Validate(validator = RequiredValidator.class,
+            invalidMessages = "Batch ID field is required")
+    private String batchId;
+
+    /**
+     * Gets the ID of the batch
+     *
+     * @return String value, non-blank
+     */
+    public String getBatchId() {
+        return batchId;
+    }
+
+    /**
+     * Assigns the ID of the batch to the current instance
+     *
+     * @param batchId String value, non-blank string expected
+     */
+    public void setBatchId(final String batchId) {
+        this.batchId = batchId;
+    }
+}
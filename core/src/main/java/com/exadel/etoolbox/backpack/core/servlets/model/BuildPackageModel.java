@@ -14,12 +14,16 @@
 
 package com.exadel.etoolbox.backpack.core.servlets.model;
 
+import com.exadel.etoolbox.backpack.core.dto.response.BuildMode;
 import com.exadel.etoolbox.backpack.core.services.pckg.BuildPackageService;
 import com.exadel.etoolbox.backpack.core.servlets.BuildPackageServlet;
 import com.exadel.etoolbox.backpack.request.annotations.RequestMapping;
 import com.exadel.etoolbox.backpack.request.annotations.RequestParam;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.ResourceResolver;
 
+import java.util.zip.Deflater;
+
 /**
  * Represents the set of user-defined options for a request to build a package. Upon initialization, passed
  * as a parameter to the {@link BuildPackageService#buildPackage(ResourceResolver, BuildPackageModel)}
@@ -33,9 +37,19 @@ public class BuildPackageModel extends PackageInfoModel {
     @SuppressWarnings("UnusedDeclaration") // directly injected by the RequestAdapter routine
     private boolean testBuild;
 
+    @RequestParam
+    @SuppressWarnings("UnusedDeclaration") // directly injected by the RequestAdapter routine
+    private boolean cancel;
+
     @RequestParam
     private String referencedResources;
 
+    @RequestParam
+    private String buildMode;
+
+    @RequestParam
+    private String compressionLevel;
+
     /**
      * Gets whether this request is for a test build (a dry-run build without assembling actual package file)
      *
@@ -45,6 +59,15 @@ public class BuildPackageModel extends PackageInfoModel {
         return testBuild;
     }
 
+    /**
+     * Gets whether this request is for cancelling the package build in progress
+     *
+     * @return True or false
+     */
+    public boolean isCancel() {
+        return cancel;
+    }
+
     /**
      * Gets collection of paths to JCR resources that must be included in the current package
      *
@@ -60,4 +83,52 @@ public class BuildPackageModel extends PackageInfoModel {
     public void setReferencedResources(final String referencedResources) {
         this.referencedResources = referencedResources;
     }
+
+    /**
+     * Gets the mode of the current build. Falls back to {@link BuildMode#FULL} if the mode is not specified or unknown
+     *
+     * @return {@link BuildMode} value
+     */
+    public BuildMode getBuildMode() {
+        if (StringUtils.isBlank(buildMode)) {
+            return BuildMode.FULL;
+        }
+        try {
+            return BuildMode.valueOf(buildMode.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return BuildMode.FULL;
+        }
+    }
+
+    /**
+     * Assigns to this instance the mode of the current build
+     */
+    public void setBuildMode(final BuildMode buildMode) {
+        this.buildMode = buildMode != null ? buildMode.name() : null;
+    }
+
+    /**
+     * Gets the compression level of the package archive: from {@code 0} (store only) to {@code 9} (best compression),
+     * or {@code -1} for the default compression
+     *
+     * @return Integer value, or null if the level is not specified or invalid
+     */
+    public Integer getCompressionLevel() {
+        if (StringUtils.isBlank(compressionLevel)) {
+            return null;
+        }
+        try {
+            int level = Integer.parseInt(compressionLevel.trim());
+            return level >= Deflater.DEFAULT_COMPRESSION && level <= Deflater.BEST_COMPRESSION ? level : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Assigns to this instance the compression level of the package archive
+     */
+    public void setCompressionLevel(final Integer compressionLevel) {
+        this.compressionLevel = compressionLevel != null ? compressionLevel.toString() : null;
+    }
 }
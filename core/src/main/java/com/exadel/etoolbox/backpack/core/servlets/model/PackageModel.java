@@ -62,6 +62,15 @@ public class PackageModel {
     @RequestParam
     private boolean toggle;
 
+    @RequestParam
+    private boolean allowTraversal;
+
+    @RequestParam
+    private boolean estimateSize;
+
+    @RequestParam
+    private int referenceDepth;
+
     /**
      * Gets the name of the current package
      *
@@ -207,4 +216,60 @@ public class PackageModel {
     public void setToggle(boolean toggle) {
         this.toggle = toggle;
     }
+
+    /**
+     * Gets whether the SQL2 query may be executed even if it traverses the repository instead of using an index
+     *
+     * @return boolean value
+     */
+    public boolean isAllowTraversal() {
+        return allowTraversal;
+    }
+
+    /**
+     * Sets whether the SQL2 query may be executed even if it traverses the repository
+     *
+     * @param allowTraversal boolean value
+     */
+    public void setAllowTraversal(boolean allowTraversal) {
+        this.allowTraversal = allowTraversal;
+    }
+
+    /**
+     * Gets whether the size of the package content should be estimated by sampling for a quick response, while the
+     * exact size is computed in the background
+     *
+     * @return boolean value
+     */
+    public boolean isEstimateSize() {
+        return estimateSize;
+    }
+
+    /**
+     * Sets whether the size of the package content should be estimated by sampling
+     *
+     * @param estimateSize boolean value
+     */
+    public void setEstimateSize(boolean estimateSize) {
+        this.estimateSize = estimateSize;
+    }
+
+    /**
+     * Gets the number of reference levels to follow when collecting the resources referenced by the package content:
+     * the references of the content, then the references of the referenced pages and assets, and so on
+     *
+     * @return Integer value; 0 or 1 stand for the direct references only
+     */
+    public int getReferenceDepth() {
+        return referenceDepth;
+    }
+
+    /**
+     * Sets the number of reference levels to follow when collecting the referenced resources
+     *
+     * @param referenceDepth Integer value
+     */
+    public void setReferenceDepth(int referenceDepth) {
+        this.referenceDepth = referenceDepth;
+    }
 }
@@ -0,0 +1,116 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.servlets.model;
+
+import com.exadel.etoolbox.backpack.core.servlets.QueryPreviewServlet;
+import com.exadel.etoolbox.backpack.request.annotations.RequestMapping;
+import com.exadel.etoolbox.backpack.request.annotations.RequestParam;
+import com.exadel.etoolbox.backpack.request.annotations.Validate;
+import com.exadel.etoolbox.backpack.request.validator.impl.RequiredValidator;
+
+/**
+ * Represents the set of user-defined options for a request to preview a page of the paths an SQL2 query would add
+ * to a package
+ *
+ * @see QueryPreviewServlet
+ */
+@RequestMapping
+public class QueryPreviewModel {
+
+    @RequestParam
+    @Validate(validator = RequiredValidator.class,
+            invalidMessages = "Query field is required")
+    private String query;
+
+    @RequestParam
+    private boolean allowTraversal;
+
+    @RequestParam
+    private long limit;
+
+    @RequestParam
+    private long offset;
+
+    /**
+     * Gets the SQL2 query to preview
+     *
+     * @return String value, non-blank
+     */
+    public String getQuery() {
+        return query;
+    }
+
+    /**
+     * Sets the SQL2 query to preview
+     *
+     * @param query String value, non-blank string expected
+     */
+    public void setQuery(final String query) {
+        this.query = query;
+    }
+
+    /**
+     * Gets whether the query may run even if it would traverse the repository instead of using an index
+     *
+     * @return boolean value
+     */
+    public boolean isAllowTraversal() {
+        return allowTraversal;
+    }
+
+    /**
+     * Sets whether the query may run even if it would traverse the repository instead of using an index
+     *
+     * @param allowTraversal boolean value
+     */
+    public void setAllowTraversal(final boolean allowTraversal) {
+        this.allowTraversal = allowTraversal;
+    }
+
+    /**
+     * Gets the maximal number of paths to preview
+     *
+     * @return Long value; 0 stands for the default page size
+     */
+    public long getLimit() {
+        return limit;
+    }
+
+    /**
+     * Sets the maximal number of paths to preview
+     *
+     * @param limit Long value
+     */
+    public void setLimit(final long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * Gets the number of paths to skip, so that the preview can be continued page by page
+     *
+     * @return Long value
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Sets the number of paths to skip
+     *
+     * @param offset Long value
+     */
+    public void setOffset(final long offset) {
+        this.offset = offset;
+    }
+}
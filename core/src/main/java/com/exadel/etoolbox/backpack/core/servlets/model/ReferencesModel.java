@@ -0,0 +1,77 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.servlets.model;
+
+import com.exadel.etoolbox.backpack.core.servlets.ReferencesServlet;
+import com.exadel.etoolbox.backpack.request.annotations.FieldType;
+import com.exadel.etoolbox.backpack.request.annotations.RequestMapping;
+import com.exadel.etoolbox.backpack.request.annotations.RequestParam;
+import com.exadel.etoolbox.backpack.request.annotations.Validate;
+import com.exadel.etoolbox.backpack.request.validator.impl.RequiredValidator;
+
+import java.util.List;
+
+/**
+ * Represents the set of user-defined filter paths for a request to search for the resources they reference
+ *
+ * @see ReferencesServlet
+ */
+@RequestMapping
+public class ReferencesModel {
+
+    @RequestParam(type = FieldType.MULTIFIELD)
+    @Validate(validator = RequiredValidator.class,
+            invalidMessages = "Resource filter(s) is required")
+    private List<PathModel> paths;
+
+    @RequestParam
+    private int referenceDepth;
+
+    /**
+     * Gets the collection of filters for the resources to search references for
+     *
+     * @return {@code List<PathModel>} object
+     */
+    public List<PathModel> getPaths() {
+        return paths;
+    }
+
+    /**
+     * Sets the collection of filters for the resources to search references for
+     *
+     * @param paths {@code List<PathModel>} object
+     */
+    public void setPaths(final List<PathModel> paths) {
+        this.paths = paths;
+    }
+
+    /**
+     * Gets the number of reference levels to follow: the references of the filtered content, then the references of
+     * the referenced pages and assets, and so on
+     *
+     * @return Integer value; 0 or 1 stand for the direct references only
+     */
+    public int getReferenceDepth() {
+        return referenceDepth;
+    }
+
+    /**
+     * Sets the number of reference levels to follow
+     *
+     * @param referenceDepth Integer value
+     */
+    public void setReferenceDepth(final int referenceDepth) {
+        this.referenceDepth = referenceDepth;
+    }
+}
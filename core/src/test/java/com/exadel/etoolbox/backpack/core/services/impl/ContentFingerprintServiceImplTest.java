@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.ContentFingerprint;
+import com.exadel.etoolbox.backpack.core.services.ContentFingerprintService;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ContentFingerprintServiceImplTest {
+
+    private static final String ROOT = "/content/site/pages";
+    private static final String PAGE_1 = ROOT + "/page1";
+    private static final String PAGE_2 = ROOT + "/page2";
+    private static final long BUILD_TIME = 1_000_000L;
+
+    @Rule
+    public final AemContext context = new AemContext();
+
+    private ContentFingerprintService fingerprintService;
+
+    @Before
+    public void beforeTest() {
+        fingerprintService = context.registerInjectActivateService(new ContentFingerprintServiceImpl());
+        context.create().resource(ROOT);
+        context.create().resource(PAGE_1, getModifiedProperties(BUILD_TIME - 1));
+        context.create().resource(PAGE_2, getModifiedProperties(BUILD_TIME - 1));
+    }
+
+    @Test
+    public void shouldReturnNullForMissingPath() {
+        assertNull(fingerprintService.getFingerprint(context.resourceResolver(), "/content/missing"));
+    }
+
+    @Test
+    public void shouldKeepFingerprintForUnchangedContent() {
+        ContentFingerprint before = fingerprintService.getFingerprint(context.resourceResolver(), ROOT);
+        ContentFingerprint after = fingerprintService.getFingerprint(context.resourceResolver(), ROOT);
+
+        assertEquals(before, after);
+        assertEquals(BUILD_TIME - 1, before.getLastModified());
+        assertEquals(3, before.getNodeCount());
+    }
+
+    @Test
+    public void shouldChangeFingerprintWhenNodeAdded() {
+        ContentFingerprint before = fingerprintService.getFingerprint(context.resourceResolver(), ROOT);
+        context.create().resource(PAGE_1 + "/child");
+
+        assertNotEquals(before, fingerprintService.getFingerprint(context.resourceResolver(), ROOT));
+    }
+
+    @Test
+    public void shouldReturnTopmostModifiedPaths() {
+        context.create().resource(PAGE_2 + "/child", getModifiedProperties(BUILD_TIME + 1));
+
+        assertEquals(Collections.singletonList(PAGE_2 + "/child"),
+                fingerprintService.getModifiedPaths(context.resourceResolver(), ROOT, BUILD_TIME));
+        assertTrue(fingerprintService.getModifiedPaths(context.resourceResolver(), ROOT, BUILD_TIME + 1).isEmpty());
+    }
+
+    @Test
+    public void shouldAdvanceWatermarkOfChangedSubtreesOnly() {
+        ResourceChangeListener listener = (ResourceChangeListener) fingerprintService;
+        Long rootWatermark = fingerprintService.getChangeWatermark(ROOT);
+        Long page1Watermark = fingerprintService.getChangeWatermark(PAGE_1);
+        Long page2Watermark = fingerprintService.getChangeWatermark(PAGE_2);
+        assertNull(fingerprintService.getChangeWatermark("/etc/packages"));
+
+        listener.onChange(Collections.singletonList(getChange(ResourceChange.ChangeType.CHANGED, PAGE_2 + "/jcr:content")));
+        assertNotEquals(rootWatermark, fingerprintService.getChangeWatermark(ROOT));
+        assertNotEquals(page2Watermark, fingerprintService.getChangeWatermark(PAGE_2));
+        assertEquals(page1Watermark, fingerprintService.getChangeWatermark(PAGE_1));
+
+        listener.onChange(Collections.singletonList(getChange(ResourceChange.ChangeType.REMOVED, ROOT)));
+        assertNotEquals(page1Watermark, fingerprintService.getChangeWatermark(PAGE_1 + "/jcr:content"));
+    }
+
+    private static ResourceChange getChange(final ResourceChange.ChangeType type, final String path) {
+        ResourceChange change = mock(ResourceChange.class);
+        when(change.getType()).thenReturn(type);
+        when(change.getPath()).thenReturn(path);
+        return change;
+    }
+
+    private static Map<String, Object> getModifiedProperties(final long timestamp) {
+        Calendar lastModified = Calendar.getInstance();
+        lastModified.setTimeInMillis(timestamp);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("cq:lastModified", lastModified);
+        return properties;
+    }
+}
@@ -130,6 +130,33 @@ public class PageReferenceSearchServiceImplTest {
         assertTrue(expectedPages.containsAll(referencedItems));
     }
 
+    @Test
+    public void shouldSkipIgnoredPropertiesAndPaths() {
+        expectedPages.add(page5Template2);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("ignorePropertyNames", new String[]{"contentReference", "multiple*"});
+        properties.put("ignorePathPatterns", new String[]{".*/comp2"});
+        pageReferenceSearchService = context.registerInjectActivateService(new PageReferenceSearchServiceImpl(), properties);
+        context.create().resource(PAGE_3 + "/jcr:content/par/comp2", Collections.singletonMap("reference", PAGE_4));
+
+        Set<Page> referencedItems = pageReferenceSearchService.findPageReferences(resourceResolver, PAGE_3);
+
+        assertEquals(expectedPages, referencedItems);
+    }
+
+    @Test
+    public void shouldTraversePathsOutsideOfIndexWithQueryStrategy() {
+        expectedPages.add(page4Template);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("searchStrategy", "query");
+        pageReferenceSearchService = context.registerInjectActivateService(new PageReferenceSearchServiceImpl(), properties);
+        context.create().resource("/conf/test/data/item", Collections.singletonMap("reference", PAGE_4));
+
+        Set<Page> referencedItems = pageReferenceSearchService.findPageReferences(resourceResolver, "/conf/test/data");
+
+        assertEquals(expectedPages, referencedItems);
+    }
+
     @Test
     public void shouldGetNoReferencesForPageWithoutAnyReferences() {
         Set<Page> referencedItems = pageReferenceSearchService.findPageReferences(resourceResolver, PAGE_2);
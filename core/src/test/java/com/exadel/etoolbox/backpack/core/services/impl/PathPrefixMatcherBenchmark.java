@@ -0,0 +1,89 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link PathPrefixMatcher} with the regular expression previously used to extract page links from property
+ * values. Not run as a part of the build; launch with {@code main} from the test classpath
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathPrefixMatcherBenchmark {
+
+    private static final String ROOT = "/content/";
+    private static final String PARAGRAPH = "<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor incididunt ut labore.</p>";
+    private static final String LINK = "<p><a href=\"/content/site/en/page.html\">Link</a></p>";
+
+    @Param({"plain", "links"})
+    private String content;
+
+    private String value;
+    private Pattern pattern;
+    private PathPrefixMatcher matcher;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append(PARAGRAPH);
+            if ("links".equals(content) && i % 10 == 0) {
+                builder.append(LINK);
+            }
+        }
+        value = builder.toString();
+        pattern = Pattern.compile("([\"']|^)(" + Pattern.quote(ROOT) + "[\\S]*?)([\"']|$)");
+        matcher = new PathPrefixMatcher(ROOT);
+    }
+
+    @Benchmark
+    public void regex(final Blackhole blackhole) {
+        Matcher regexMatcher = pattern.matcher(value);
+        while (regexMatcher.find()) {
+            blackhole.consume(regexMatcher.group(2));
+        }
+    }
+
+    @Benchmark
+    public void prefixScan(final Blackhole blackhole) {
+        matcher.forEachMatch(value, blackhole::consume);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PathPrefixMatcherBenchmark.class.getSimpleName()).build()).run();
+    }
+}
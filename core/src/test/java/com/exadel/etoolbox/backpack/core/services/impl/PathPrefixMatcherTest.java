@@ -0,0 +1,75 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+
+public class PathPrefixMatcherTest {
+
+    private static final String ROOT = "/content/";
+    private static final Pattern PATTERN = Pattern.compile("([\"']|^)(" + Pattern.quote(ROOT) + "[\\S]*?)([\"']|$)");
+
+    private final PathPrefixMatcher matcher = new PathPrefixMatcher(ROOT);
+
+    @Test
+    public void shouldFindPathsInMarkup() {
+        assertEquals(Arrays.asList("/content/site/page1.html", "/content/site/page2"),
+                find("<p><a href=\"/content/site/page1.html\">1</a> <a href='/content/site/page2'>2</a></p>"));
+        assertEquals(Collections.singletonList("/content/site/page1"), find("/content/site/page1"));
+        assertEquals(Collections.emptyList(), find("<a href=\"/content/site/my page\">"));
+        assertEquals(Collections.emptyList(), find("text without links"));
+    }
+
+    @Test
+    public void shouldMatchRegularExpression() {
+        List<String> values = Arrays.asList(
+                "",
+                "/content/",
+                "\"/content/a\"/content/b\"",
+                "'/content/a','/content/b'",
+                "x/content/a",
+                "/content/a\n",
+                "/content/a\r\n",
+                "/content/a\nb",
+                "\"/content/a /content/b\"",
+                "{\"link\":\"/content/site/page\",\"other\":\"/content/dam/image.png\"}");
+        for (String value : values) {
+            assertEquals(value, findWithPattern(value), find(value));
+        }
+    }
+
+    private List<String> find(final String value) {
+        List<String> result = new ArrayList<>();
+        matcher.forEachMatch(value, result::add);
+        return result;
+    }
+
+    private static List<String> findWithPattern(final String value) {
+        List<String> result = new ArrayList<>();
+        Matcher regexMatcher = PATTERN.matcher(value);
+        while (regexMatcher.find()) {
+            result.add(regexMatcher.group(2));
+        }
+        return result;
+    }
+}
@@ -1,6 +1,7 @@
 package com.exadel.etoolbox.backpack.core.services.impl;
 
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
 import io.wcm.testing.mock.aem.junit.AemContext;
 import junit.framework.TestCase;
 import org.apache.sling.api.resource.ResourceResolver;
@@ -10,11 +11,14 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 public class QueryServiceImplTest {
 
@@ -41,7 +45,7 @@ public class QueryServiceImplTest {
     @Test
     public void shouldReturnListResourcesPath() {
         PackageInfo packageInfo = new PackageInfo();
-        List<String> resourcesPathsFromQuery = queryService.getResourcesPathsFromQuery(resourceResolver, QUERY, packageInfo);
+        List<String> resourcesPathsFromQuery = queryService.getResourcesPathsFromQuery(resourceResolver, QUERY, packageInfo, true);
 
         assertEquals("resources paths size", 2 , resourcesPathsFromQuery.size());
         assertEquals("page3 path", "/content/site/pages/page3/jcr:content", resourcesPathsFromQuery.get(0));
@@ -55,4 +59,49 @@ public class QueryServiceImplTest {
 
         assertEquals("empty List with incorrect query", Collections.emptyList(), resourcesPathsFromQuery);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldReturnPageOfResourcesPath() {
+        PackageInfo packageInfo = new PackageInfo();
+        List<String> resourcesPathsFromQuery = queryService.getResourcesPathsFromQuery(resourceResolver, QUERY, packageInfo, 1, 1, true);
+
+        assertEquals(Collections.singletonList("/content/site/pages/page1/jcr:content"), resourcesPathsFromQuery);
+    }
+
+    @Test
+    public void shouldRejectQueryExceedingMaxResults() {
+        queryService = context.registerInjectActivateService(new QueryServiceImpl(), Collections.<String, Object>singletonMap("maxResults", 1L));
+        PackageInfo packageInfo = new PackageInfo();
+
+        List<String> resourcesPathsFromQuery = queryService.getResourcesPathsFromQuery(resourceResolver, QUERY, packageInfo, true);
+
+        assertEquals(Collections.emptyList(), resourcesPathsFromQuery);
+        assertEquals(PackageStatus.ERROR, packageInfo.getPackageStatus());
+        assertEquals(1, queryService.getResourcesPathsFromQuery(resourceResolver, QUERY, new PackageInfo(), 0, 0, true).size());
+    }
+
+    @Test
+    public void shouldRejectTraversalQueryUnlessAllowed() {
+        String traversalQuery = "SELECT * FROM [nt:base] AS s WHERE s.[jcr:title] = 'Page 1'";
+        PackageInfo packageInfo = new PackageInfo();
+
+        List<String> resourcesPathsFromQuery = queryService.getResourcesPathsFromQuery(resourceResolver, traversalQuery, packageInfo);
+
+        assertEquals(Collections.emptyList(), resourcesPathsFromQuery);
+        assertEquals(PackageStatus.ERROR, packageInfo.getPackageStatus());
+        assertTrue(packageInfo.getLog().contains("Query index: traverse"));
+
+        packageInfo = new PackageInfo();
+        queryService.getResourcesPathsFromQuery(resourceResolver, traversalQuery, packageInfo, true);
+
+        assertNotEquals(PackageStatus.ERROR, packageInfo.getPackageStatus());
+    }
+
+    @Test
+    public void shouldGetIndexesFromPlan() {
+        String plan = "[cq:Page] as [a] /* lucene:cqPageLucene(/oak:index/cqPageLucene) +:ancestors:/content */ "
+                + "inner join [dam:Asset] as [b] /* traverse \"/content/dam//*\" where isdescendantnode([b], [/content/dam]) */ on ...";
+
+        assertEquals(Arrays.asList("lucene:cqPageLucene(/oak:index/cqPageLucene)", "traverse"), QueryServiceImpl.getIndexes(plan));
+    }
+}
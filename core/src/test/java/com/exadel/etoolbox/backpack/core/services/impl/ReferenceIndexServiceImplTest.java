@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.AssetReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.PageReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.TagReferencedItem;
+import com.exadel.etoolbox.backpack.core.services.ReferenceIndexService;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.testing.mock.osgi.MockOsgi;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+public class ReferenceIndexServiceImplTest {
+
+    private static final String PAGE_1 = "/content/site/pages/page1";
+    private static final String PAGE_2 = "/content/site/pages/page2";
+    private static final String ASSET_1 = "/content/dam/asset1.png";
+    private static final String ASSET_2 = "/content/dam/asset2.pdf";
+    private static final String MIME_TYPE_PNG = "image/png";
+    private static final String MIME_TYPE_PDF = "application/pdf";
+    private static final long TIMEOUT = 5000;
+
+    @Rule
+    public final AemContext context = new AemContext(ResourceResolverType.JCR_MOCK);
+    private ResourceResolver resourceResolver;
+    private ReferenceIndexService referenceIndexService;
+
+    @Before
+    public void beforeTest() throws PersistenceException {
+        context.load().json("/com/exadel/etoolbox/backpack/core/services/impl/page1.json", PAGE_1);
+        context.load().json("/com/exadel/etoolbox/backpack/core/services/impl/page2.json", PAGE_2);
+        context.create().tag("test:topics/test-tag");
+        context.create().asset(ASSET_1, "/com/exadel/etoolbox/backpack/core/services/impl/asset.png", MIME_TYPE_PNG);
+        context.create().asset(ASSET_2, "/com/exadel/etoolbox/backpack/core/services/impl/asset.pdf", MIME_TYPE_PDF);
+        resourceResolver = context.resourceResolver();
+        resourceResolver.commit();
+
+        context.registerInjectActivateService(new PageReferenceSearchServiceImpl());
+        referenceIndexService = context.registerInjectActivateService(new ReferenceIndexServiceImpl(),
+                Collections.<String, Object>singletonMap("enabled", true));
+        waitFor(referenceIndexService::isReady);
+    }
+
+    @Test
+    public void shouldGetReferencesFromIndex() {
+        Set<ReferencedItem> expectedReferencedItems = new LinkedHashSet<>();
+        expectedReferencedItems.add(new TagReferencedItem("/etc/tags/test/topics/test-tag"));
+        expectedReferencedItems.add(new PageReferencedItem(PAGE_2 + "/jcr:content"));
+        expectedReferencedItems.add(new AssetReferencedItem(ASSET_1, MIME_TYPE_PNG));
+        expectedReferencedItems.add(new AssetReferencedItem(ASSET_2, MIME_TYPE_PDF));
+
+        Set<ReferencedItem> referencedItems = referenceIndexService.getReferences(resourceResolver, PAGE_1);
+
+        assertEquals(expectedReferencedItems, referencedItems);
+        assertTrue(referenceIndexService.getReferences(resourceResolver, PAGE_2).isEmpty());
+        assertNull(referenceIndexService.getReferences(resourceResolver, "/etc/tags"));
+    }
+
+    @Test
+    public void shouldSkipReferencesOfUnreadableDescendants() {
+        String pagesFolder = "/content/site/pages";
+        ResourceResolver restrictedResolver = spy(resourceResolver);
+        doReturn(null).when(restrictedResolver).getResource(PAGE_1);
+
+        assertTrue(referenceIndexService.getReferences(resourceResolver, pagesFolder)
+                .contains(new AssetReferencedItem(ASSET_1, MIME_TYPE_PNG)));
+        assertFalse(referenceIndexService.getReferences(restrictedResolver, pagesFolder)
+                .contains(new AssetReferencedItem(ASSET_1, MIME_TYPE_PNG)));
+    }
+
+    @Test
+    public void shouldUpdateReferrersAfterRemoval() throws PersistenceException {
+        assertEquals(Collections.singleton(PAGE_1), referenceIndexService.getReferrers(resourceResolver, ASSET_1));
+
+        resourceResolver.delete(resourceResolver.getResource(PAGE_1));
+        resourceResolver.commit();
+        ((ReferenceIndexServiceImpl) referenceIndexService).onChange(
+                Collections.singletonList(getChange(ResourceChange.ChangeType.REMOVED, PAGE_1)));
+
+        waitFor(() -> referenceIndexService.getReferrers(context.resourceResolver(), ASSET_1).isEmpty());
+        assertTrue(referenceIndexService.getReferrers(resourceResolver, ASSET_2).isEmpty());
+    }
+
+    @Test
+    public void shouldMarkIndexIncompleteUponDeactivation() {
+        MockOsgi.deactivate(referenceIndexService, context.bundleContext());
+
+        assertFalse(referenceIndexService.isReady());
+        resourceResolver.refresh();
+        assertFalse(resourceResolver.getResource(ReferenceIndexServiceImpl.INDEX_ROOT).getValueMap().get("complete", true));
+    }
+
+    @Test
+    public void shouldNotBeReadyIfIndexedPathIsMissing() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("enabled", true);
+        properties.put("resource.paths", new String[] {"/content/site", "/content/missing"});
+        ReferenceIndexService missingPathService = context.registerInjectActivateService(new ReferenceIndexServiceImpl(), properties);
+
+        long deadline = System.currentTimeMillis() + TIMEOUT / 10;
+        while (System.currentTimeMillis() < deadline) {
+            assertFalse(missingPathService.isReady());
+            Thread.yield();
+        }
+        assertNull(missingPathService.getReferences(resourceResolver, PAGE_1));
+    }
+
+    private static void waitFor(final BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + TIMEOUT;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.yield();
+        }
+    }
+
+    private static ResourceChange getChange(final ResourceChange.ChangeType type, final String path) {
+        ResourceChange change = mock(ResourceChange.class);
+        when(change.getType()).thenReturn(type);
+        when(change.getPath()).thenReturn(path);
+        return change;
+    }
+}
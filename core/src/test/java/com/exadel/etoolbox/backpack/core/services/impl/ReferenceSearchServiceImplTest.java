@@ -15,23 +15,38 @@
 package com.exadel.etoolbox.backpack.core.services.impl;
 
 import com.exadel.etoolbox.backpack.core.dto.repository.AssetReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.ConfigReferencedItem;
 import com.exadel.etoolbox.backpack.core.dto.repository.PageReferencedItem;
 import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
 import com.exadel.etoolbox.backpack.core.dto.repository.TagReferencedItem;
+import com.exadel.etoolbox.backpack.core.services.ReferenceIndexService;
+import com.exadel.etoolbox.backpack.core.services.ReferenceProvider;
 import com.exadel.etoolbox.backpack.core.services.ReferenceService;
 import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.testing.mock.sling.ResourceResolverType;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static junit.framework.TestCase.assertTrue;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ReferenceSearchServiceImplTest {
 
@@ -82,6 +97,29 @@ public class ReferenceSearchServiceImplTest {
         assertTrue(expectedReferencedItems.containsAll(referencedItems));
     }
 
+    @Test
+    public void shouldPassReferencesToConsumerAsFound() {
+        List<ReferencedItem> consumedItems = new ArrayList<>();
+
+        Set<ReferencedItem> referencedItems = referenceService.getReferences(resourceResolver, PAGE_1, consumedItems::add);
+
+        assertEquals(referencedItems.size(), consumedItems.size());
+        assertTrue(referencedItems.containsAll(consumedItems));
+    }
+
+    @Test
+    public void shouldResolveTagsOncePerRequest() {
+        context.create().resource(PAGE_2 + "/jcr:content/tagged", Collections.<String, Object>singletonMap("cq:tags",
+                new String[]{"test:topics/test-tag", "test:topics/missing-tag"}));
+        Map<String, ReferencedItem> resolvedTags = new ConcurrentHashMap<>();
+
+        referenceService.getReferences(resourceResolver, PAGE_1, resolvedTags, item -> {});
+        Set<ReferencedItem> referencedItems = referenceService.getReferences(resourceResolver, PAGE_2, resolvedTags, item -> {});
+
+        assertEquals(Collections.singleton(new TagReferencedItem("/etc/tags/test/topics/test-tag")), referencedItems);
+        assertEquals(2, resolvedTags.size());
+    }
+
     @Test
     public void shouldGetNoReferencesPageWithNoAssets() {
         Set<ReferencedItem> referencedItems = referenceService.getReferences(resourceResolver, PAGE_2);
@@ -93,4 +131,82 @@ public class ReferenceSearchServiceImplTest {
         Set<ReferencedItem> referencedItems = referenceService.getReferences(resourceResolver, PAGE_NON_EXISTING);
         assertEquals(Collections.EMPTY_SET, referencedItems);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void shouldGetTransitiveReferencesWithinLimits() {
+        String asset3 = "/content/dam/asset3.png";
+        context.create().asset(asset3, "/com/exadel/etoolbox/backpack/core/services/impl/asset.png", MINE_TYPE_PNG);
+        context.create().resource(PAGE_2 + "/jcr:content/image", Collections.singletonMap("fileReference", asset3));
+        List<String> searchPaths = Collections.singletonList(PAGE_1);
+
+        Map<ReferencedItem, Integer> referencedItems = referenceService.getReferences(resourceResolver, searchPaths, 2, 100, 0);
+
+        assertEquals(expectedReferencedItems.size() + 1, referencedItems.size());
+        assertEquals(Integer.valueOf(1), referencedItems.get(new PageReferencedItem(PAGE_2 + "/jcr:content")));
+        assertEquals(Integer.valueOf(2), referencedItems.get(new AssetReferencedItem(asset3, MINE_TYPE_PNG)));
+
+        assertEquals(expectedReferencedItems, referenceService.getReferences(resourceResolver, searchPaths, 1, 100, 0).keySet());
+        assertEquals(2, referenceService.getReferences(resourceResolver, searchPaths, 2, 2, 0).size());
+    }
+
+    @Test
+    public void shouldGetReferencesOfEnabledProviders() throws PersistenceException {
+        String configPath = "/conf/site";
+        context.create().resource(configPath);
+        context.create().resource(PAGE_1 + "/jcr:content/settings", Collections.<String, Object>singletonMap("cq:conf", configPath));
+        resourceResolver.commit();
+        ReferenceProvider customProvider = new ReferenceProvider() {
+            @Override
+            public boolean accepts(final String propertyName, final String value) {
+                return "cq:conf".equals(propertyName);
+            }
+
+            @Override
+            public Collection<ReferencedItem> getReferences(final ResourceResolver resourceResolver, final String propertyName, final String value) {
+                return Collections.singletonList(new ReferencedItem(value + "/custom", "Custom"));
+            }
+        };
+        context.registerInjectActivateService(new ContextAwareConfigReferenceProvider());
+        context.registerService(ReferenceProvider.class, customProvider);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("providerParallelism", 2);
+        referenceService = context.registerInjectActivateService(new ReferenceServiceImpl(), properties);
+
+        Set<ReferencedItem> referencedItems = referenceService.getReferences(resourceResolver, PAGE_1);
+
+        assertTrue(referencedItems.containsAll(expectedReferencedItems));
+        assertTrue(referencedItems.contains(new ConfigReferencedItem(configPath)));
+        assertTrue(referencedItems.contains(new ReferencedItem(configPath + "/custom", "Custom")));
+        assertTrue(referenceService.getProviderTimings().containsKey(ContextAwareConfigReferenceProvider.class.getName()));
+
+        properties.put("disabledProviders", new String[]{ContextAwareConfigReferenceProvider.class.getName()});
+        referenceService = context.registerInjectActivateService(new ReferenceServiceImpl(), properties);
+
+        referencedItems = referenceService.getReferences(resourceResolver, PAGE_1);
+
+        assertFalse(referencedItems.contains(new ConfigReferencedItem(configPath)));
+        assertTrue(referencedItems.contains(new ReferencedItem(configPath + "/custom", "Custom")));
+    }
+
+    @Test
+    public void shouldAddReferencesOfProvidersToIndexedReferences() throws PersistenceException {
+        String configPath = "/conf/site";
+        context.create().resource(configPath);
+        context.create().resource(PAGE_1 + "/jcr:content/settings", Collections.<String, Object>singletonMap("cq:conf", configPath));
+        resourceResolver.commit();
+        ReferencedItem indexedItem = new TagReferencedItem("/etc/tags/test/topics/test-tag");
+        ReferenceIndexService referenceIndexService = mock(ReferenceIndexService.class);
+        when(referenceIndexService.getReferences(any(ResourceResolver.class), eq(PAGE_1)))
+                .thenReturn(new LinkedHashSet<>(Collections.singletonList(indexedItem)));
+        context.registerService(ReferenceIndexService.class, referenceIndexService);
+        context.registerInjectActivateService(new ContextAwareConfigReferenceProvider());
+        referenceService = context.registerInjectActivateService(new ReferenceServiceImpl());
+
+        Set<ReferencedItem> referencedItems = referenceService.getReferences(resourceResolver, PAGE_1);
+
+        Set<ReferencedItem> expectedItems = new LinkedHashSet<>();
+        expectedItems.add(indexedItem);
+        expectedItems.add(new ConfigReferencedItem(configPath));
+        assertEquals(expectedItems, referencedItems);
+    }
+}
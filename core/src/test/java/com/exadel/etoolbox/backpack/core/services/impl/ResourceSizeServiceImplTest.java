@@ -0,0 +1,185 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.impl;
+
+import com.exadel.etoolbox.backpack.core.dto.response.SizeInfo;
+import com.exadel.etoolbox.backpack.core.services.SessionService;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.testing.mock.sling.ResourceResolverType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.jcr.Session;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ResourceSizeServiceImplTest {
+
+    private static final String DAM_FOLDER = "/content/dam/folder";
+    private static final String PICTURE_1 = DAM_FOLDER + "/picture1.jpg";
+    private static final String PICTURE_2 = DAM_FOLDER + "/picture2.png";
+    private static final String LARGE_FOLDER = "/content/dam/large";
+    private static final int LARGE_FOLDER_SIZE = 25;
+
+    @Rule
+    public final AemContext context = new AemContext(ResourceResolverType.JCR_OAK);
+    private ResourceResolver resourceResolver;
+    private ResourceSizeServiceImpl resourceSizeService;
+    private SessionService sessionService;
+
+    @Before
+    public void beforeTest() {
+        resourceResolver = context.resourceResolver();
+        sessionService = mock(SessionService.class);
+        context.registerService(SessionService.class, sessionService);
+        resourceSizeService = context.registerInjectActivateService(new ResourceSizeServiceImpl());
+        context.create().asset(PICTURE_1, 100, 100, "image/jpeg");
+        context.create().asset(PICTURE_2, 100, 100, "image/png");
+    }
+
+    @Test
+    public void shouldSumUpBinarySizes() {
+        long folderSize = resourceSizeService.getSize(resourceResolver, DAM_FOLDER);
+
+        assertTrue(folderSize > 0);
+        assertEquals(folderSize, resourceSizeService.getSize(resourceResolver, PICTURE_1)
+                + resourceSizeService.getSize(resourceResolver, PICTURE_2));
+        assertEquals(0L, resourceSizeService.getSize(resourceResolver, "/content/dam/missing"));
+    }
+
+    @Test
+    public void shouldRecomputeSizeAfterChange() throws PersistenceException {
+        long folderSize = resourceSizeService.getSize(resourceResolver, DAM_FOLDER);
+        long pictureSize = resourceSizeService.getSize(resourceResolver, PICTURE_2);
+
+        resourceResolver.delete(resourceResolver.getResource(PICTURE_2));
+        assertEquals(folderSize, resourceSizeService.getSize(resourceResolver, DAM_FOLDER));
+
+        resourceSizeService.onChange(Collections.singletonList(getChange(ResourceChange.ChangeType.REMOVED, PICTURE_2)));
+        assertEquals(folderSize - pictureSize, resourceSizeService.getSize(resourceResolver, DAM_FOLDER));
+    }
+
+    @Test
+    public void shouldCacheSizesPerUser() {
+        assertTrue(resourceSizeService.getSize(resourceResolver, DAM_FOLDER) > 0);
+
+        Resource restrictedFolder = mock(Resource.class);
+        when(restrictedFolder.getPath()).thenReturn(DAM_FOLDER);
+        when(restrictedFolder.getChildren()).thenReturn(Collections.<Resource>emptyList());
+        ResourceResolver restrictedResolver = mock(ResourceResolver.class);
+        when(restrictedResolver.getUserID()).thenReturn("restricted");
+        when(restrictedResolver.getResource(DAM_FOLDER)).thenReturn(restrictedFolder);
+
+        assertEquals(0L, resourceSizeService.getSize(restrictedResolver, DAM_FOLDER));
+    }
+
+    @Test
+    public void shouldInvalidateOwnerOfChangedContentNode() throws PersistenceException {
+        long folderSize = resourceSizeService.getSize(resourceResolver, DAM_FOLDER);
+        long pictureSize = resourceSizeService.getSize(resourceResolver, PICTURE_1);
+
+        resourceResolver.delete(resourceResolver.getResource(PICTURE_1 + "/jcr:content/renditions/original"));
+        resourceSizeService.onChange(Collections.singletonList(
+                getChange(ResourceChange.ChangeType.REMOVED, PICTURE_1 + "/jcr:content/renditions/original")));
+
+        assertTrue(resourceSizeService.getSize(resourceResolver, PICTURE_1) < pictureSize);
+        assertTrue(resourceSizeService.getSize(resourceResolver, DAM_FOLDER) < folderSize);
+    }
+
+    @Test
+    public void shouldComputeSizeInParallel() throws PersistenceException {
+        resourceResolver.commit();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("parallelism", 2);
+        properties.put("forkThreshold", 1);
+        ResourceSizeServiceImpl parallelSizeService = context.registerInjectActivateService(new ResourceSizeServiceImpl(), properties);
+
+        SizeInfo sizeInfo = parallelSizeService.getSize(resourceResolver, Arrays.asList(PICTURE_1, PICTURE_2, "/content/dam/missing"));
+
+        assertFalse(sizeInfo.isEstimated());
+        assertEquals(resourceSizeService.getSize(resourceResolver, DAM_FOLDER), sizeInfo.getSize());
+    }
+
+    @Test
+    public void shouldReturnExactSizeWhenNothingSampled() {
+        SizeInfo sizeInfo = resourceSizeService.estimateSize(resourceResolver, Collections.singletonList(DAM_FOLDER));
+
+        assertFalse(sizeInfo.isEstimated());
+        assertEquals(resourceSizeService.getSize(resourceResolver, DAM_FOLDER), sizeInfo.getSize());
+    }
+
+    @Test
+    public void shouldEstimateSizeBySampling() {
+        for (int i = 1; i <= LARGE_FOLDER_SIZE; i++) {
+            context.create().asset(LARGE_FOLDER + "/picture" + i + ".jpg", i * 10, i * 10, "image/jpeg");
+        }
+        ResourceSizeServiceImpl samplingSizeService = context.registerInjectActivateService(new ResourceSizeServiceImpl(),
+                Collections.<String, Object>singletonMap("sampleSize", 5));
+
+        SizeInfo sizeInfo = samplingSizeService.estimateSize(resourceResolver, Collections.singletonList(LARGE_FOLDER));
+
+        assertTrue(sizeInfo.isEstimated());
+        assertTrue(sizeInfo.getSize() > 0);
+        assertTrue(sizeInfo.getLowerBound() <= sizeInfo.getSize());
+        assertTrue(sizeInfo.getUpperBound() >= sizeInfo.getSize());
+    }
+
+    @Test
+    public void shouldShareBackgroundComputationOfSamePaths() throws Exception {
+        resourceResolver.commit();
+        CountDownLatch release = new CountDownLatch(1);
+        Session session = resourceResolver.adaptTo(Session.class);
+        when(sessionService.getUserImpersonatedSession(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return session;
+        });
+
+        CompletableFuture<SizeInfo> first = resourceSizeService.getSizeAsync(resourceResolver, Arrays.asList(PICTURE_1, PICTURE_2));
+        CompletableFuture<SizeInfo> second = resourceSizeService.getSizeAsync(resourceResolver, Arrays.asList(PICTURE_2, PICTURE_1));
+        assertSame(first, second);
+        release.countDown();
+
+        SizeInfo sizeInfo = first.get(5, TimeUnit.SECONDS);
+        assertFalse(sizeInfo.isEstimated());
+        assertEquals(resourceSizeService.getSize(resourceResolver, DAM_FOLDER), sizeInfo.getSize());
+        verify(sessionService, times(1)).getUserImpersonatedSession(any());
+    }
+
+    private static ResourceChange getChange(final ResourceChange.ChangeType type, final String path) {
+        ResourceChange change = mock(ResourceChange.class);
+        when(change.getType()).thenReturn(type);
+        when(change.getPath()).thenReturn(path);
+        return change;
+    }
+}
@@ -17,7 +17,10 @@ import com.exadel.etoolbox.backpack.core.dto.repository.AssetReferencedItem;
 import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
 import com.exadel.etoolbox.backpack.core.services.ReferenceService;
+import com.exadel.etoolbox.backpack.core.services.SessionService;
+import com.exadel.etoolbox.backpack.core.services.impl.ContentFingerprintServiceImpl;
 import com.exadel.etoolbox.backpack.core.services.impl.QueryServiceImpl;
+import com.exadel.etoolbox.backpack.core.services.impl.ResourceSizeServiceImpl;
 import com.exadel.etoolbox.backpack.core.services.pckg.BasePackageService;
 import com.exadel.etoolbox.backpack.core.services.pckg.PackageInfoService;
 import com.exadel.etoolbox.backpack.core.servlets.model.PathModel;
@@ -42,10 +45,12 @@ import javax.jcr.Session;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.*;
+import java.util.function.Consumer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -96,14 +101,18 @@ public class Base {
         assetReferenceItems.add(new AssetReferencedItem(PICTURE_1, IMAGE_JPEG));
         assetReferenceItems.add(new AssetReferencedItem(PICTURE_2, IMAGE_PNG));
         referenceServiceMock = mock(ReferenceService.class);
-        when(referenceServiceMock.getReferences(any(ResourceResolver.class), any(String.class))).thenReturn(assetReferenceItems);
+        mockReferences(assetReferenceItems);
 
 
         context.registerService(ReferenceService.class, referenceServiceMock);
 
         Map<String, Object> properties = new HashMap<>();
         properties.put("buildInfoTTL", 1);
+        properties.put("referenceSearchParallelism", 1);
         context.registerInjectActivateService(new QueryServiceImpl());
+        context.registerInjectActivateService(new ContentFingerprintServiceImpl());
+        context.registerService(SessionService.class, mock(SessionService.class));
+        context.registerInjectActivateService(new ResourceSizeServiceImpl(), Collections.<String, Object>singletonMap("parallelism", 1));
         basePackageService = context.registerInjectActivateService(new BasePackageServiceImpl(), properties);
         packageInfoService = context.registerInjectActivateService(new PackageInfoServiceImpl());
 
@@ -208,4 +217,13 @@ public class Base {
             }
         }
     }
+
+    @SuppressWarnings("unchecked")
+    protected void mockReferences(final Set<ReferencedItem> referencedItems) {
+        when(referenceServiceMock.getReferences(any(ResourceResolver.class), any(String.class), anyMap(), any(Consumer.class))).thenAnswer(invocation -> {
+            Consumer<ReferencedItem> consumer = invocation.getArgument(3);
+            referencedItems.forEach(consumer);
+            return referencedItems;
+        });
+    }
 }
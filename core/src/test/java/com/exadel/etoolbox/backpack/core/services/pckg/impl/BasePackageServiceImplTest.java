@@ -0,0 +1,141 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg.impl;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.PageReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
+import com.exadel.etoolbox.backpack.core.services.ContentFingerprintService;
+import com.exadel.etoolbox.backpack.core.services.pckg.BasePackageService;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BasePackageServiceImplTest extends Base {
+
+    @Test
+    public void shouldCacheReferencesOfUnchangedPaths() {
+        List<String> paths = Collections.singletonList(PAGE_1);
+
+        Set<ReferencedItem> references = basePackageService.getReferencedResources(resourceResolver, paths);
+        assertEquals(references, basePackageService.getReferencedResources(resourceResolver, paths));
+
+        verify(referenceServiceMock, times(1)).getReferences(any(ResourceResolver.class), any(String.class), anyMap(), any(Consumer.class));
+        assertEquals(1, basePackageService.getReferenceCacheStats().hitCount());
+        assertEquals(1, basePackageService.getReferenceCacheStats().missCount());
+
+        context.create().resource(PAGE_1 + "/jcr:content/child");
+        ResourceChange change = mock(ResourceChange.class);
+        when(change.getType()).thenReturn(ResourceChange.ChangeType.ADDED);
+        when(change.getPath()).thenReturn(PAGE_1 + "/jcr:content/child");
+        ((ResourceChangeListener) context.getService(ContentFingerprintService.class)).onChange(Collections.singletonList(change));
+        basePackageService.getReferencedResources(resourceResolver, paths);
+
+        verify(referenceServiceMock, times(2)).getReferences(any(ResourceResolver.class), any(String.class), anyMap(), any(Consumer.class));
+        assertEquals(2, basePackageService.getReferenceCacheStats().missCount());
+    }
+
+    @Test
+    public void shouldSearchPathsInParallel() throws PersistenceException {
+        resourceResolver.commit();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("referenceSearchParallelism", 2);
+        properties.put("referenceCacheSize", 0);
+        BasePackageService parallelService = context.registerInjectActivateService(new BasePackageServiceImpl(), properties);
+
+        Set<ReferencedItem> references = parallelService.getReferencedResources(resourceResolver, Arrays.asList(PAGE_1, PAGE_2));
+
+        assertEquals(2, references.size());
+        verify(referenceServiceMock, times(2)).getReferences(any(ResourceResolver.class), any(String.class), anyMap(), any(Consumer.class));
+    }
+
+    @Test
+    public void shouldSearchPathOfFailedWorkerAgain() throws PersistenceException {
+        resourceResolver.commit();
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("referenceSearchParallelism", 2);
+        properties.put("referenceCacheSize", 0);
+        BasePackageService parallelService = context.registerInjectActivateService(new BasePackageServiceImpl(), properties);
+        AtomicBoolean failed = new AtomicBoolean();
+        when(referenceServiceMock.getReferences(any(ResourceResolver.class), any(String.class), anyMap(), any(Consumer.class))).thenAnswer(invocation -> {
+            String path = invocation.getArgument(1);
+            if (PAGE_1.equals(path) && failed.compareAndSet(false, true)) {
+                throw new IllegalStateException("Search failed");
+            }
+            ReferencedItem item = new PageReferencedItem(path + "/referenced");
+            Consumer<ReferencedItem> consumer = invocation.getArgument(3);
+            consumer.accept(item);
+            return Collections.singleton(item);
+        });
+
+        Set<ReferencedItem> references = parallelService.getReferencedResources(resourceResolver, Arrays.asList(PAGE_1, PAGE_2));
+
+        assertTrue(failed.get());
+        assertTrue(references.contains(new PageReferencedItem(PAGE_1 + "/referenced")));
+        assertTrue(references.contains(new PageReferencedItem(PAGE_2 + "/referenced")));
+    }
+
+    @Test
+    public void shouldFollowReferencesUpToMaxDepth() {
+        Map<ReferencedItem, Integer> transitiveReferences = new LinkedHashMap<>();
+        transitiveReferences.put(new PageReferencedItem(PAGE_2), 1);
+        transitiveReferences.put(new PageReferencedItem(PAGE_2 + "/child"), 2);
+        when(referenceServiceMock.getReferences(any(ResourceResolver.class), anyCollection(), anyInt(), anyInt(), anyLong()))
+                .thenReturn(transitiveReferences);
+
+        assertEquals(transitiveReferences, basePackageService.getReferencedResources(resourceResolver, Collections.singletonList(PAGE_1), 5));
+        verify(referenceServiceMock).getReferences(any(ResourceResolver.class), eq(Collections.singletonList(PAGE_1)), eq(3), eq(1000), eq(60000L));
+
+        Map<ReferencedItem, Integer> directReferences = basePackageService.getReferencedResources(resourceResolver, Collections.singletonList(PAGE_1), 0);
+        assertTrue(directReferences.values().stream().allMatch(level -> level == 1));
+        verify(referenceServiceMock).getReferences(any(ResourceResolver.class), any(String.class), anyMap(), any(Consumer.class));
+        verify(referenceServiceMock, never()).getReferences(any(ResourceResolver.class), anyCollection(), eq(1), anyInt(), anyLong());
+    }
+
+    @Test
+    public void shouldSearchNestedPathsOnce() {
+        List<String> paths = Arrays.asList(PAGE_1 + "/jcr:content", PAGE_2, PAGE_1);
+
+        assertEquals(Arrays.asList(PAGE_2, PAGE_1), BasePackageServiceImpl.collapseNestedPaths(paths));
+
+        basePackageService.getReferencedResources(resourceResolver, paths);
+
+        verify(referenceServiceMock, times(2)).getReferences(any(ResourceResolver.class), any(String.class), anyMap(), any(Consumer.class));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg.impl;
+
+import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
+import com.exadel.etoolbox.backpack.core.services.pckg.BuildExecutorService;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BuildExecutorServiceImplTest {
+
+    @Rule
+    public final AemContext context = new AemContext();
+
+    private BuildExecutorService getExecutor(final int poolSize, final int queueCapacity) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("poolSize", poolSize);
+        properties.put("queueCapacity", queueCapacity);
+        return context.registerInjectActivateService(new BuildExecutorServiceImpl(), properties);
+    }
+
+    @Test
+    public void shouldRunSubmittedBuild() throws InterruptedException {
+        BuildExecutorService executor = getExecutor(1, 1);
+        PackageInfo packageInfo = new PackageInfo();
+        CountDownLatch done = new CountDownLatch(1);
+
+        assertTrue(executor.submit(packageInfo, () -> {
+            packageInfo.setPackageStatus(PackageStatus.BUILT);
+            done.countDown();
+        }));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(PackageStatus.BUILT, packageInfo.getPackageStatus());
+        assertNull(packageInfo.getQueuePosition());
+    }
+
+    @Test
+    public void shouldReportRunningStatusOfSubmittedInstall() throws InterruptedException {
+        BuildExecutorService executor = getExecutor(1, 1);
+        PackageInfo packageInfo = new PackageInfo();
+        CountDownLatch done = new CountDownLatch(1);
+        PackageStatus[] runningStatus = new PackageStatus[1];
+
+        assertTrue(executor.submit(packageInfo, PackageStatus.INSTALL_IN_PROGRESS, () -> {
+            runningStatus[0] = packageInfo.getPackageStatus();
+            done.countDown();
+        }));
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(PackageStatus.INSTALL_IN_PROGRESS, runningStatus[0]);
+    }
+
+    @Test
+    public void shouldQueueAndRejectBuildsOverCapacity() throws InterruptedException {
+        BuildExecutorService executor = getExecutor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        PackageInfo running = new PackageInfo();
+        PackageInfo queued = new PackageInfo();
+        PackageInfo rejected = new PackageInfo();
+
+        executor.submit(running, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertTrue(executor.submit(queued, () -> {}));
+        assertEquals(PackageStatus.QUEUED, queued.getPackageStatus());
+        assertEquals(Integer.valueOf(1), queued.getQueuePosition());
+
+        assertFalse(executor.submit(rejected, () -> {}));
+        assertEquals(PackageStatus.ERROR, rejected.getPackageStatus());
+        assertEquals(BasePackageServiceImpl.ERROR + BuildExecutorServiceImpl.QUEUE_IS_FULL_MESSAGE, rejected.getLog().get(0));
+
+        release.countDown();
+    }
+
+    @Test
+    public void shouldCancelQueuedAndRunningBuilds() throws InterruptedException {
+        BuildExecutorService executor = getExecutor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        PackageInfo running = new PackageInfo();
+        running.setPackagePath("/etc/packages/running.zip");
+        PackageInfo queued = new PackageInfo();
+        queued.setPackagePath("/etc/packages/queued.zip");
+
+        executor.submit(running, () -> {
+            started.countDown();
+            while (!executor.isCancelRequested(running.getPackagePath())) {
+                Thread.yield();
+            }
+            finished.countDown();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.submit(queued, () -> {});
+
+        assertTrue(executor.cancel(queued.getPackagePath()));
+        assertEquals(PackageStatus.CANCELLED, queued.getPackageStatus());
+        assertNull(queued.getQueuePosition());
+
+        assertTrue(executor.cancel(running.getPackagePath()));
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+        assertFalse(executor.cancel("/etc/packages/missing.zip"));
+    }
+
+    @Test
+    public void shouldNotCancelNextBuildOfCancelledPackage() throws InterruptedException {
+        BuildExecutorService executor = getExecutor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(1);
+        CountDownLatch rebuilt = new CountDownLatch(1);
+        PackageInfo packageInfo = new PackageInfo();
+        packageInfo.setPackagePath("/etc/packages/package.zip");
+        boolean[] cancelRequested = new boolean[1];
+
+        executor.submit(packageInfo, () -> {
+            started.countDown();
+            while (!executor.isCancelRequested(packageInfo.getPackagePath())) {
+                Thread.yield();
+            }
+            finished.countDown();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        assertTrue(executor.cancel(packageInfo.getPackagePath()));
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+        executor.submit(packageInfo, () -> {
+            cancelRequested[0] = executor.isCancelRequested(packageInfo.getPackagePath());
+            rebuilt.countDown();
+        });
+
+        assertTrue(rebuilt.await(5, TimeUnit.SECONDS));
+        assertFalse(cancelRequested[0]);
+    }
+
+    @Test
+    public void shouldNotifyOfDroppedBuilds() throws InterruptedException {
+        BuildExecutorService executor = getExecutor(1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch dropped = new CountDownLatch(1);
+        PackageInfo running = new PackageInfo();
+        PackageInfo queued = new PackageInfo();
+        queued.setPackagePath("/etc/packages/queued.zip");
+
+        executor.submit(running, () -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.submit(queued, PackageStatus.BUILD_IN_PROGRESS, () -> {}, dropped::countDown);
+
+        assertTrue(executor.cancel(queued.getPackagePath()));
+        assertTrue(dropped.await(5, TimeUnit.SECONDS));
+        assertEquals(PackageStatus.CANCELLED, queued.getPackageStatus());
+
+        release.countDown();
+    }
+}
@@ -56,6 +56,8 @@ public class BuildPackageImplTest extends Base {
     @Override
     public void beforeTest() throws IOException, RepositoryException {
         super.beforeTest();
+        context.registerInjectActivateService(new BuildExecutorServiceImpl());
+        context.registerInjectActivateService(new PackageJobServiceImpl());
         buildPackage = context.registerInjectActivateService(new BuildPackageImpl());
     }
 
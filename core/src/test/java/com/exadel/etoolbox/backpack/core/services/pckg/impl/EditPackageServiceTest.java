@@ -21,7 +21,6 @@ import com.exadel.etoolbox.backpack.core.services.pckg.EditPackageService;
 import com.exadel.etoolbox.backpack.core.servlets.model.PackageModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.PathModel;
 import org.apache.jackrabbit.vault.fs.config.DefaultWorkspaceFilter;
-import org.apache.sling.api.resource.ResourceResolver;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -33,8 +32,6 @@ import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.when;
 
 public class EditPackageServiceTest extends Base {
     private static final String TEST_GROUP_2 = "testGroup2";
@@ -63,7 +60,7 @@ public class EditPackageServiceTest extends Base {
         PackageModel packageModel = new PackageModel();
         HashSet<ReferencedItem> assetReferenceItems = new HashSet<>();
         assetReferenceItems.add(new AssetReferencedItem(PICTURE_3, IMAGE_JPEG));
-        when(referenceServiceMock.getReferences(any(ResourceResolver.class), any(String.class))).thenReturn(assetReferenceItems);
+        mockReferences(assetReferenceItems);
 
         Map<String, List<String>> modifiedReferencedResources = new HashMap<>();
         modifiedReferencedResources.put(IMAGE_JPEG, Collections.singletonList(PICTURE_3));
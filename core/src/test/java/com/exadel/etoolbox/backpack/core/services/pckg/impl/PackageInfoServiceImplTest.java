@@ -13,9 +13,11 @@
  */
 package com.exadel.etoolbox.backpack.core.services.pckg.impl;
 
+import com.exadel.etoolbox.backpack.core.dto.response.BatchInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
 import com.exadel.etoolbox.backpack.core.services.pckg.PackageInfoService;
+import com.exadel.etoolbox.backpack.core.servlets.model.BatchInfoModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.LatestPackageInfoModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.PackageInfoModel;
 import com.exadel.etoolbox.backpack.core.servlets.model.PackageModel;
@@ -40,6 +42,7 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -275,6 +278,51 @@ public class PackageInfoServiceImplTest extends Base {
         }
     }
 
+    public static class GetBatchInfo extends Base {
+        private static final String BATCH_ID = "batch";
+        private static final String BUILT_PACKAGE_PATH = "/etc/packages/EToolbox_BackPack/testPackage-1.zip";
+        private static final String FAILED_PACKAGE_PATH = "/etc/packages/EToolbox_BackPack/testPackage-2.zip";
+        private static final String MISSING_PACKAGE_PATH = "/etc/packages/EToolbox_BackPack/testPackage-3.zip";
+        private static final String QUEUED_PACKAGE_PATH = "/etc/packages/EToolbox_BackPack/testPackage-4.zip";
+        private static final long DATA_SIZE = 1024L;
+
+        @Test
+        public void shouldReturnAggregateBatchProgress() {
+            BatchInfo batchInfo = new BatchInfo(BATCH_ID,
+                    Arrays.asList(BUILT_PACKAGE_PATH, FAILED_PACKAGE_PATH, MISSING_PACKAGE_PATH, QUEUED_PACKAGE_PATH));
+            basePackageService.getBatchInfos().put(BATCH_ID, batchInfo);
+
+            PackageInfo builtPackageInfo = new PackageInfo();
+            builtPackageInfo.setPackagePath(BUILT_PACKAGE_PATH);
+            builtPackageInfo.setPackageStatus(PackageStatus.BUILT);
+            builtPackageInfo.setDataSize(DATA_SIZE);
+            batchInfo.onBuildFinished(builtPackageInfo);
+            PackageInfo failedPackageInfo = new PackageInfo();
+            failedPackageInfo.setPackagePath(FAILED_PACKAGE_PATH);
+            failedPackageInfo.setPackageStatus(PackageStatus.ERROR);
+            batchInfo.onBuildFinished(failedPackageInfo);
+            batchInfo.onBuildSkipped(MISSING_PACKAGE_PATH, TEST_PACKAGE);
+
+            BatchInfoModel batchInfoModel = new BatchInfoModel();
+            batchInfoModel.setBatchId(BATCH_ID);
+            BatchInfo result = packageInfoService.getBatchInfo(batchInfoModel);
+
+            assertEquals(1, result.getDone());
+            assertEquals(2, result.getFailed());
+            assertEquals(1, result.getRemaining());
+            assertEquals(DATA_SIZE, result.getTotalSize());
+            assertEquals(2, result.getLog().size());
+        }
+
+        @Test
+        public void shouldReturnNullForUnknownBatch() {
+            BatchInfoModel batchInfoModel = new BatchInfoModel();
+            batchInfoModel.setBatchId(BATCH_ID);
+
+            assertNull(packageInfoService.getBatchInfo(batchInfoModel));
+        }
+    }
+
     public static class PackageExists extends Base {
 
         private static final String PACKAGE_PATH = "/etc/packages/EToolbox_BackPack/testPackage-1.zip";
@@ -0,0 +1,101 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg.impl;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.PackageJob;
+import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
+import com.exadel.etoolbox.backpack.core.services.SessionService;
+import com.exadel.etoolbox.backpack.core.services.pckg.BasePackageService;
+import com.exadel.etoolbox.backpack.core.services.pckg.PackageInfoService;
+import com.exadel.etoolbox.backpack.core.services.pckg.PackageJobService;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class PackageJobServiceImplTest {
+
+    private static final String PACKAGE_PATH = "/etc/packages/testGroup/testPackage-1.zip";
+    private static final String USER_ID = "admin";
+
+    @Rule
+    public final AemContext context = new AemContext();
+
+    private PackageJobService packageJobService;
+
+    @Before
+    public void beforeTest() {
+        context.registerService(BasePackageService.class, mock(BasePackageService.class));
+        context.registerService(PackageInfoService.class, mock(PackageInfoService.class));
+        context.registerService(SessionService.class, mock(SessionService.class));
+        packageJobService = context.registerInjectActivateService(new PackageJobServiceImpl());
+    }
+
+    @Test
+    public void shouldPersistEnqueuedJob() {
+        PackageJob job = packageJobService.enqueue(PackageJob.Type.BUILD, PACKAGE_PATH, USER_ID, "{}");
+
+        List<PackageJob> jobs = packageJobService.getJobs(PackageJob.Type.BUILD);
+
+        assertEquals(1, jobs.size());
+        assertEquals(job.getId(), jobs.get(0).getId());
+        assertEquals(PACKAGE_PATH, jobs.get(0).getPackagePath());
+        assertEquals(USER_ID, jobs.get(0).getUserId());
+        assertEquals("{}", jobs.get(0).getParameters());
+        assertEquals(PackageJob.State.PENDING, jobs.get(0).getState());
+        assertTrue(packageJobService.getJobs(PackageJob.Type.INSTALL).isEmpty());
+    }
+
+    @Test
+    public void shouldPersistJobState() {
+        PackageJob job = packageJobService.enqueue(PackageJob.Type.INSTALL, PACKAGE_PATH, USER_ID, null);
+
+        packageJobService.start(job);
+
+        List<PackageJob> jobs = packageJobService.getJobs(PackageJob.Type.INSTALL);
+        assertEquals(PackageJob.State.RUNNING, jobs.get(0).getState());
+        assertNull(jobs.get(0).getParameters());
+    }
+
+    @Test
+    public void shouldRemoveCompletedJob() {
+        PackageJob job = packageJobService.enqueue(PackageJob.Type.REPLICATE, PACKAGE_PATH, USER_ID, null);
+
+        packageJobService.complete(job);
+
+        assertTrue(packageJobService.getJobs(PackageJob.Type.REPLICATE).isEmpty());
+        assertFalse(context.resourceResolver().getResource(PackageJobServiceImpl.JOBS_ROOT).hasChildren());
+    }
+
+    @Test
+    public void shouldReportFailedJob() {
+        PackageJob job = packageJobService.enqueue(PackageJob.Type.INSTALL, PACKAGE_PATH, USER_ID, null);
+        PackageInfo packageInfo = new PackageInfo();
+
+        packageJobService.fail(job, packageInfo, "Interrupted");
+
+        assertEquals(PackageStatus.ERROR, packageInfo.getPackageStatus());
+        assertEquals(BasePackageServiceImpl.ERROR + "Interrupted", packageInfo.getLog().get(0));
+        assertTrue(packageJobService.getJobs(PackageJob.Type.INSTALL).isEmpty());
+    }
+}
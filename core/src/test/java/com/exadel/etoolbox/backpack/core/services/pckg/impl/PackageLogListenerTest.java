@@ -0,0 +1,79 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg.impl;
+
+import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import org.apache.jackrabbit.vault.fs.api.ProgressTrackerListener;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class PackageLogListenerTest {
+
+    private static final int TAIL_SIZE = 4;
+    private static final int MESSAGES_COUNT = 100;
+
+    @Test
+    public void shouldKeepBoundedLogTail() {
+        PackageInfo packageInfo = new PackageInfo();
+        try (PackageLogListener listener = new PackageLogListener(packageInfo, TAIL_SIZE, false)) {
+            for (int i = 0; i < MESSAGES_COUNT; i++) {
+                listener.onMessage(ProgressTrackerListener.Mode.PATHS, i % 2 == 0 ? "A" : "U", "/content/page" + i);
+            }
+        }
+
+        assertTrue(packageInfo.getLog().size() <= TAIL_SIZE + TAIL_SIZE / 4);
+        assertEquals(MESSAGES_COUNT, packageInfo.getLogSize());
+        assertEquals(Long.valueOf(MESSAGES_COUNT / 2), packageInfo.getLogCounters().get("A"));
+        assertEquals(Long.valueOf(MESSAGES_COUNT / 2), packageInfo.getLogCounters().get("U"));
+    }
+
+    @Test
+    public void shouldReturnLatestEntriesByAbsoluteIndex() {
+        PackageInfo packageInfo = new PackageInfo();
+        try (PackageLogListener listener = new PackageLogListener(packageInfo, TAIL_SIZE, false)) {
+            for (int i = 0; i < MESSAGES_COUNT; i++) {
+                listener.onMessage(ProgressTrackerListener.Mode.PATHS, "A", "/content/page" + i);
+            }
+        }
+
+        assertEquals(Arrays.asList("A /content/page98", "A /content/page99"), packageInfo.getLatestBuildInfo(MESSAGES_COUNT - 2));
+        assertTrue(packageInfo.getLatestBuildInfo(MESSAGES_COUNT).isEmpty());
+        assertEquals(packageInfo.getLog(), packageInfo.getLatestBuildInfo(0));
+    }
+
+    @Test
+    public void shouldWriteFullLogToFile() throws IOException {
+        PackageInfo packageInfo = new PackageInfo();
+        try (PackageLogListener listener = new PackageLogListener(packageInfo, TAIL_SIZE, true)) {
+            for (int i = 0; i < MESSAGES_COUNT; i++) {
+                listener.onMessage(ProgressTrackerListener.Mode.PATHS, "A", "/content/page" + i);
+            }
+        }
+
+        assertNotNull(packageInfo.getLogFile());
+        List<String> lines = Files.readAllLines(Paths.get(packageInfo.getLogFile()));
+        assertEquals(MESSAGES_COUNT, lines.size());
+        assertEquals("A /content/page0", lines.get(0));
+        BasePackageServiceImpl.deleteLogFile(packageInfo);
+    }
+}
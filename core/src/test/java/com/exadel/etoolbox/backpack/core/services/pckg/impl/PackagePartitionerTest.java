@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.services.pckg.impl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PackagePartitionerTest {
+
+    private static final String ROOT_1 = "/content/dam/folder1";
+    private static final String ROOT_2 = "/content/dam/folder2";
+    private static final String ROOT_3 = "/content/dam/folder3";
+    private static final String ROOT_4 = "/content/dam/folder4";
+
+    @Test
+    public void shouldKeepSinglePartWhenUnderLimit() {
+        Map<String, Long> rootSizes = new LinkedHashMap<>();
+        rootSizes.put(ROOT_1, 10L);
+        rootSizes.put(ROOT_2, 20L);
+
+        List<List<String>> parts = PackagePartitioner.partition(rootSizes, 100L);
+
+        assertEquals(Collections.singletonList(Arrays.asList(ROOT_1, ROOT_2)), parts);
+    }
+
+    @Test
+    public void shouldSplitRootsIntoBoundedParts() {
+        Map<String, Long> rootSizes = new LinkedHashMap<>();
+        rootSizes.put(ROOT_1, 60L);
+        rootSizes.put(ROOT_2, 50L);
+        rootSizes.put(ROOT_3, 40L);
+        rootSizes.put(ROOT_4, 30L);
+
+        List<List<String>> parts = PackagePartitioner.partition(rootSizes, 100L);
+
+        assertEquals(2, parts.size());
+        assertEquals(Arrays.asList(ROOT_1, ROOT_3), parts.get(0));
+        assertEquals(Arrays.asList(ROOT_2, ROOT_4), parts.get(1));
+        for (List<String> part : parts) {
+            assertTrue(part.stream().mapToLong(rootSizes::get).sum() <= 100L);
+        }
+    }
+
+    @Test
+    public void shouldPlaceOversizedRootSeparately() {
+        Map<String, Long> rootSizes = new LinkedHashMap<>();
+        rootSizes.put(ROOT_1, 10L);
+        rootSizes.put(ROOT_2, 500L);
+
+        List<List<String>> parts = PackagePartitioner.partition(rootSizes, 100L);
+
+        assertEquals(Arrays.asList(Collections.singletonList(ROOT_2), Collections.singletonList(ROOT_1)), parts);
+    }
+}
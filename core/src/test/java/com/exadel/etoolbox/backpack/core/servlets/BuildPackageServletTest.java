@@ -17,7 +17,10 @@ package com.exadel.etoolbox.backpack.core.servlets;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
 import com.exadel.etoolbox.backpack.core.dto.response.PackageStatus;
 import com.exadel.etoolbox.backpack.core.services.ReferenceService;
+import com.exadel.etoolbox.backpack.core.services.SessionService;
+import com.exadel.etoolbox.backpack.core.services.impl.ContentFingerprintServiceImpl;
 import com.exadel.etoolbox.backpack.core.services.impl.QueryServiceImpl;
+import com.exadel.etoolbox.backpack.core.services.impl.ResourceSizeServiceImpl;
 import com.exadel.etoolbox.backpack.core.services.impl.ReferenceServiceImpl;
 import com.exadel.etoolbox.backpack.core.services.pckg.BuildPackageService;
 import com.exadel.etoolbox.backpack.core.services.pckg.impl.BasePackageServiceImpl;
@@ -40,6 +43,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -65,11 +69,15 @@ public class BuildPackageServletTest {
     @Before
     public void beforeTest() {
         context.registerInjectActivateService(new QueryServiceImpl());
+        context.registerInjectActivateService(new ContentFingerprintServiceImpl());
+        context.registerService(SessionService.class, mock(SessionService.class));
+        context.registerInjectActivateService(new ResourceSizeServiceImpl(), Collections.<String, Object>singletonMap("parallelism", 1));
         context.registerService(BuildPackageService.class, buildPackageServiceMock);
         context.registerService(RequestAdapter.class, new RequestAdapterImpl());
         context.registerService(ReferenceService.class, new ReferenceServiceImpl());
         Map<String, Object> properties = new HashMap<>();
         properties.put("buildInfoTTL", 1);
+        properties.put("referenceSearchParallelism", 1);
         context.registerInjectActivateService(new BasePackageServiceImpl(), properties);
         context.registerInjectActivateService(new PackageInfoServiceImpl());
         servlet = context.registerInjectActivateService(new BuildPackageServlet());
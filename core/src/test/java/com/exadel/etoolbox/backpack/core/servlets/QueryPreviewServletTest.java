@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.servlets;
+
+import com.exadel.etoolbox.backpack.core.dto.response.PackageInfo;
+import com.exadel.etoolbox.backpack.core.services.QueryService;
+import com.exadel.etoolbox.backpack.request.RequestAdapter;
+import com.exadel.etoolbox.backpack.request.impl.RequestAdapterImpl;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class QueryPreviewServletTest {
+
+    private static final String PAGE_1 = "/content/site/pages/page1";
+    private static final String QUERY = "SELECT * FROM [cq:Page] AS s WHERE ISDESCENDANTNODE([/content/site])";
+    private static final String QUERY_PARAM = "query";
+    private static final String OFFSET_PARAM = "offset";
+
+    @Rule
+    public final AemContext context = new AemContext();
+    private final QueryService queryServiceMock = mock(QueryService.class);
+    private QueryPreviewServlet servlet;
+
+    @Before
+    public void beforeTest() {
+        when(queryServiceMock.getResourcesPathsFromQuery(any(ResourceResolver.class), anyString(), any(PackageInfo.class), anyLong(), anyLong(), anyBoolean()))
+                .thenReturn(Collections.singletonList(PAGE_1));
+        context.registerService(QueryService.class, queryServiceMock);
+        context.registerService(RequestAdapter.class, new RequestAdapterImpl());
+        servlet = context.registerInjectActivateService(new QueryPreviewServlet());
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenRequestIsEmpty() throws IOException {
+        servlet.doGet(context.request(), context.response());
+
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, context.response().getStatus());
+    }
+
+    @Test
+    public void shouldReturnPageOfQueryPaths() throws IOException {
+        context.request().addRequestParameter(QUERY_PARAM, QUERY);
+        context.request().addRequestParameter(OFFSET_PARAM, "20");
+
+        servlet.doGet(context.request(), context.response());
+
+        assertEquals(HttpServletResponse.SC_OK, context.response().getStatus());
+        JsonObject result = new JsonParser().parse(context.response().getOutputAsString()).getAsJsonObject();
+        assertEquals(PAGE_1, result.getAsJsonArray("paths").get(0).getAsString());
+        verify(queryServiceMock).getResourcesPathsFromQuery(any(ResourceResolver.class), eq(QUERY), any(PackageInfo.class),
+                eq(QueryPreviewServlet.DEFAULT_PREVIEW_SIZE), eq(20L), eq(false));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.exadel.etoolbox.backpack.core.servlets;
+
+import com.exadel.etoolbox.backpack.core.dto.repository.AssetReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.ReferencedItem;
+import com.exadel.etoolbox.backpack.core.dto.repository.TagReferencedItem;
+import com.exadel.etoolbox.backpack.core.services.pckg.BasePackageService;
+import com.exadel.etoolbox.backpack.request.RequestAdapter;
+import com.exadel.etoolbox.backpack.request.impl.RequestAdapterImpl;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.wcm.testing.mock.aem.junit.AemContext;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.ObjIntConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ReferencesServletTest {
+
+    private static final String PAGE_1 = "/content/site/pages/page1";
+    private static final String PICTURE_1 = "/content/dam/picture1.jpg";
+    private static final String TAG = "/etc/tags/test/topics/test-tag";
+    private static final String PACKAGE_PATHS_MULTIFIELD_PARAM = "paths/item0/path";
+    private static final String REFERENCE_DEPTH_PARAM = "referenceDepth";
+    private static final long PICTURE_SIZE = 100L;
+
+    @Rule
+    public final AemContext context = new AemContext();
+    private final BasePackageService basePackageServiceMock = mock(BasePackageService.class);
+    private ReferencesServlet servlet;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void beforeTest() {
+        when(basePackageServiceMock.getActualPaths(any(ResourceResolver.class), anyList())).thenReturn(Collections.singletonList(PAGE_1));
+        when(basePackageServiceMock.getAssetSize(any(ResourceResolver.class), anyString())).thenReturn(PICTURE_SIZE);
+        doAnswer(invocation -> {
+            int depth = invocation.getArgument(2);
+            ObjIntConsumer<ReferencedItem> consumer = invocation.getArgument(3);
+            consumer.accept(new TagReferencedItem(TAG), 1);
+            consumer.accept(new AssetReferencedItem(PICTURE_1, "image/jpeg"), depth);
+            return null;
+        }).when(basePackageServiceMock).getReferencedResources(any(ResourceResolver.class), any(Collection.class), anyInt(), any(ObjIntConsumer.class));
+        context.registerService(BasePackageService.class, basePackageServiceMock);
+        context.registerService(RequestAdapter.class, new RequestAdapterImpl());
+        servlet = context.registerInjectActivateService(new ReferencesServlet());
+    }
+
+    @Test
+    public void shouldReturnBadRequestWhenRequestIsEmpty() throws IOException {
+        servlet.doPost(context.request(), context.response());
+
+        assertEquals(HttpServletResponse.SC_BAD_REQUEST, context.response().getStatus());
+    }
+
+    @Test
+    public void shouldStreamReferencesWithRunningTotals() throws IOException {
+        context.request().addRequestParameter(PACKAGE_PATHS_MULTIFIELD_PARAM, PAGE_1);
+        context.request().addRequestParameter(REFERENCE_DEPTH_PARAM, "2");
+
+        servlet.doPost(context.request(), context.response());
+
+        assertEquals(HttpServletResponse.SC_OK, context.response().getStatus());
+        assertTrue(context.response().getContentType().startsWith(ReferencesServlet.APPLICATION_NDJSON));
+        String[] lines = context.response().getOutputAsString().split("\n");
+        assertEquals(3, lines.length);
+
+        JsonObject tagRecord = new JsonParser().parse(lines[0]).getAsJsonObject();
+        assertEquals(TAG, tagRecord.getAsJsonObject("item").get("path").getAsString());
+        assertEquals(1, tagRecord.get("level").getAsInt());
+        assertEquals(0L, tagRecord.get("totalSize").getAsLong());
+
+        JsonObject assetRecord = new JsonParser().parse(lines[1]).getAsJsonObject();
+        assertEquals(2, assetRecord.get("count").getAsInt());
+        assertEquals(2, assetRecord.get("level").getAsInt());
+        assertEquals(PICTURE_SIZE, assetRecord.get("totalSize").getAsLong());
+
+        JsonObject finalRecord = new JsonParser().parse(lines[2]).getAsJsonObject();
+        assertTrue(finalRecord.get("done").getAsBoolean());
+        assertEquals(2, finalRecord.get("count").getAsInt());
+    }
+}
@@ -19,13 +19,17 @@ $(function () {
         packageName,
         goBackLink;
     var BUILT = 'BUILT',
+        QUEUED = 'QUEUED',
+        CANCELLED = 'CANCELLED',
         BUILD_IN_PROGRESS = 'BUILD_IN_PROGRESS',
         COMMAND_URL = Granite.HTTP.externalize("/bin/wcmcommand"),
         DIALOG_MODAL_URL = '/mnt/overlay/etoolbox-backpack/admin/console/page/content/editpackagedialog.html?packagePath=',
         EDIT_PAGE_URL = '/tools/etoolbox/backpack/package.html?path=',
         REPLICATE_URL = '/services/backpack/replicatePackage',
         INSTALL = 'INSTALL',
-        INSTALL_IN_PROGRESS = 'INSTALL_IN_PROGRESS';
+        INSTALL_IN_PROGRESS = 'INSTALL_IN_PROGRESS',
+        EXACT_SIZE_POLL_ATTEMPTS = 30,
+        EXACT_SIZE_POLL_INTERVAL = 2000;
     var $packageName = $('#packageName'),
         $name = $('#name'),
         $version = $('#version'),
@@ -33,6 +37,9 @@ $(function () {
         $filters = $('#filters'),
         $packageSize = $('#packageSize'),
         $buildButton = $('#buildButton'),
+        $buildMode = $('#buildMode'),
+        $compressionLevel = $('#compressionLevel'),
+        $cancelBuildButton = $('#cancelBuildButton'),
         $referencedResourcesList = $('#referencedResourcesList'),
         $testBuildButton = $('#testBuildButton'),
         $downloadBtn = $('#downloadBtn'),
@@ -65,7 +72,7 @@ $(function () {
         getPackageInfo(path, function (data) {
             if (data.packageStatus === BUILT) {
                 packageBuilt();
-            } else if (data.packageStatus === BUILD_IN_PROGRESS) {
+            } else if (data.packageStatus === QUEUED || data.packageStatus === BUILD_IN_PROGRESS) {
                 updateLog(0);
             } else if (data.packageStatus === INSTALL) {
                 packageBuilt();
@@ -78,6 +85,9 @@ $(function () {
             }
 
             updatePackageDisplayInfo(data);
+            if (data.dataSizeEstimated) {
+                pollExactSize(EXACT_SIZE_POLL_ATTEMPTS);
+            }
 
             function initFilters() {
                 if (data.paths) {
@@ -166,6 +176,19 @@ $(function () {
         buildPackage(false);
     });
 
+    $cancelBuildButton.click(function () {
+        $cancelBuildButton.prop('disabled', true);
+        $.ajax({
+            type: 'POST',
+            url: '/services/backpack/buildPackage',
+            data: {
+                path: path,
+                cancel: true
+            },
+            dataType: 'json'
+        });
+    });
+
     $downloadBtn.click(function () {
         downloadPackage();
     });
@@ -247,7 +270,9 @@ $(function () {
             data: {
                 path: path,
                 referencedResources: JSON.stringify(referencedResources),
-                testBuild: testBuild
+                testBuild: testBuild,
+                buildMode: $buildMode.val(),
+                compressionLevel: $compressionLevel.val()
             }, success: function (data) {
                 $buildLog.empty();
                 if (testBuild) {
@@ -327,7 +352,13 @@ $(function () {
 
                     scrollLog();
                 }
-                if (data.packageStatus === BUILD_IN_PROGRESS || data.packageStatus === INSTALL_IN_PROGRESS) {
+                if (typeof data.nextLogIndex === 'number') {
+                    logIndex = data.nextLogIndex;
+                }
+                updateLogCounters(data);
+                updateQueuePosition(data);
+                toggleCancelBuild(data.packageStatus === QUEUED || data.packageStatus === BUILD_IN_PROGRESS);
+                if (data.packageStatus === QUEUED || data.packageStatus === BUILD_IN_PROGRESS || data.packageStatus === INSTALL_IN_PROGRESS) {
                     setTimeout(function () {
                         updateLog(logIndex);
                     }, 1000);
@@ -338,11 +369,61 @@ $(function () {
                 } else if (data.packageStatus === INSTALL) {
                     packageInstall();
                     updatePackageDisplayInfo(data);
+                } else if (data.packageStatus === CANCELLED) {
+                    if (data.packageBuilt) {
+                        packageBuilt();
+                    } else {
+                        packageCreated();
+                    }
                 }
             }
         })
     }
 
+    function toggleCancelBuild(visible) {
+        $cancelBuildButton.prop('hidden', !visible);
+        if (!visible) {
+            $cancelBuildButton.prop('disabled', false);
+        }
+    }
+
+    function updateLogCounters(data) {
+        var $logCounters = $buildLogWrapper.find('.log-counters');
+        if (data.logCounters) {
+            if (!$logCounters.length) {
+                $logCounters = $('<div class="log-counters"></div>').insertBefore($buildLog);
+            }
+            $logCounters.text($.map(data.logCounters, function (count, statusCode) {
+                return statusCode + ': ' + count;
+            }).join(', '));
+        } else {
+            $logCounters.remove();
+        }
+    }
+
+    function updateQueuePosition(data) {
+        var $queuePosition = $buildLogWrapper.find('.queue-position');
+        if (data.packageStatus === QUEUED && data.queuePosition) {
+            if (!$queuePosition.length) {
+                $queuePosition = $('<div class="queue-position"></div>').prependTo($buildLogWrapper);
+            }
+            $queuePosition.text('Waiting in the build queue, position: ' + data.queuePosition);
+        } else {
+            $queuePosition.remove();
+        }
+    }
+
+    function pollExactSize(attempts) {
+        setTimeout(function () {
+            getPackageInfo(path, function (data) {
+                updatePackageDisplayInfo(data);
+                if (data.dataSizeEstimated && attempts > 1) {
+                    pollExactSize(attempts - 1);
+                }
+            });
+        }, EXACT_SIZE_POLL_INTERVAL);
+    }
+
     function getPackageInfo(packagePath, updateFunction, errorFunction) {
         $.ajax({
             url: '/services/backpack/packageInfo',
@@ -370,7 +451,13 @@ $(function () {
             $query.hide();
         }
         if (data.dataSize) {
-            $packageSize.text('Package size: ' + bytesToSize(data.dataSize));
+            var sizeText = 'Package size: ' + bytesToSize(data.dataSize);
+            if (data.dataSizeLowerBound !== undefined && data.dataSizeUpperBound !== undefined) {
+                sizeText += ' (estimated: ' + bytesToSize(data.dataSizeLowerBound) + ' to ' + bytesToSize(data.dataSizeUpperBound) + ')';
+            } else if (data.dataSizeEstimated) {
+                sizeText += ' (estimated)';
+            }
+            $packageSize.text(sizeText);
         }
         $lastInstalled.val(getLastBuiltDate(data.packageInstalled));
         $lastReplicated.val(getLastBuiltDate(data.packageReplicated));
@@ -0,0 +1,80 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+$(function () {
+    "use strict";
+
+    var QUERY_PREVIEW_URL = '/services/backpack/queryPreview',
+        PREVIEW_SIZE = 20;
+
+    $(document).on('click', '#preview-query-button', function () {
+        var $button = $(this),
+            $preview = $('#query-preview'),
+            $summary = $('<div/>'),
+            $list = $('<ul/>'),
+            more = new Coral.Button(),
+            $more = $(more),
+            form = $button.closest('form')[0],
+            count = 0;
+
+        more.type = 'button';
+        more.label.textContent = 'Show more';
+        $preview.empty().append($summary).append($list).append($more.hide());
+        loadPage();
+
+        $more.on('click', loadPage);
+
+        // the paths are requested page by page, so that a broad query is not run to the end just to be previewed
+        function loadPage() {
+            $button.prop('disabled', true);
+            $more.hide();
+            $summary.text('Running the query...');
+            $.ajax({
+                type: 'GET',
+                url: QUERY_PREVIEW_URL,
+                data: {
+                    query: $(form).find('[name="query"]').val(),
+                    allowTraversal: $(form).find('input[type="checkbox"][name="allowTraversal"]').is(':checked'),
+                    limit: PREVIEW_SIZE,
+                    offset: count
+                },
+                dataType: 'json',
+                success: showPage,
+                error: function (xhr) {
+                    $summary.text('Could not run the query: ' + xhr.statusText);
+                },
+                complete: function () {
+                    $button.prop('disabled', false);
+                }
+            });
+        }
+
+        function showPage(data) {
+            var paths = data.paths || [];
+            paths.forEach(function (path) {
+                $('<li/>').text(path).appendTo($list);
+            });
+            count += paths.length;
+            if (data.packageStatus === 'ERROR') {
+                $summary.text((data.log || []).filter(function (line) {
+                    return line.indexOf('ERROR') === 0;
+                }).join(' ') || 'Query is not valid');
+                return;
+            }
+            $summary.text(count ? 'First ' + count + ' paths found by the query' : 'The query has not found any paths');
+            if (paths.length === PREVIEW_SIZE) {
+                $more.show();
+            }
+        }
+    });
+});
@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+$(function () {
+    "use strict";
+
+    var REFERENCES_URL = '/services/backpack/references',
+        CSRF_TOKEN_URL = '/libs/granite/csrf/token.json',
+        BYTES_IN_MEGABYTE = 1024 * 1024;
+
+    $(document).on('click', '#find-references-button', function () {
+        var $button = $(this),
+            $progress = $('#references-progress'),
+            $summary = $('<div/>'),
+            $list = $('<ul/>'),
+            form = $button.closest('form')[0];
+
+        $button.prop('disabled', true);
+        $progress.empty().append($summary).append($list);
+        $summary.text('Searching for references...');
+
+        // unlike XHR requests, fetch requests are not supplied with the CSRF token by Granite, so it is sent explicitly
+        fetch(CSRF_TOKEN_URL, {credentials: 'same-origin'}).then(function (response) {
+            return response.ok ? response.json() : {};
+        }).then(function (csrf) {
+            return fetch(REFERENCES_URL, {
+                method: 'POST',
+                credentials: 'same-origin',
+                headers: {
+                    'Content-Type': 'application/x-www-form-urlencoded; charset=UTF-8',
+                    'CSRF-Token': csrf.token || ''
+                },
+                body: $(form).serialize()
+            });
+        }).then(function (response) {
+            if (!response.ok || !response.body) {
+                throw new Error(response.statusText);
+            }
+            var reader = response.body.getReader(),
+                decoder = new TextDecoder(),
+                buffer = '';
+
+            function read() {
+                return reader.read().then(function (chunk) {
+                    if (chunk.done) {
+                        return;
+                    }
+                    buffer += decoder.decode(chunk.value, {stream: true});
+                    var lines = buffer.split('\n');
+                    buffer = lines.pop();
+                    lines.filter(Boolean).forEach(function (line) {
+                        showRecord(JSON.parse(line));
+                    });
+                    return read();
+                });
+            }
+
+            return read();
+        }).catch(function (error) {
+            $summary.text('Could not search for references: ' + error.message);
+        }).then(function () {
+            $button.prop('disabled', false);
+        });
+
+        function showRecord(record) {
+            var size = (record.totalSize / BYTES_IN_MEGABYTE).toFixed(2) + ' MB';
+            if (record.done) {
+                $summary.text('Found ' + record.count + ' references, assets total ' + size);
+                return;
+            }
+            $summary.text('Searching for references... found ' + record.count + ', assets total ' + size);
+            $('<li/>').text('Level ' + record.level + ' ' + record.item.type + ': ' + record.item.path).appendTo($list);
+        }
+    });
+});